@@ -0,0 +1,106 @@
+package com.lz.logging.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import com.lz.logging.config.ElasticsearchLoggingProperties;
+import com.lz.logging.logback.ElasticsearchLogAppender;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.MDC;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 业务线程调用 logger.info 的开销：Logback 创建事件、级别过滤、捕获快照并写入环形队列
+ *
+ * <p>序列化工作线程照常转换和序列化，但不发送。{@code async=false} 时转换和序列化都在调用线程上完成。
+ * 队列写满时按默认的 DROP_NEWEST 策略丢弃，调用线程不会阻塞。</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AppenderBenchmark {
+
+    @Param({"true", "false"})
+    private boolean async;
+
+    private LoggerContext context;
+    private Logger logger;
+    private ElasticsearchLogAppender appender;
+
+    @State(Scope.Thread)
+    public static class ThreadContext {
+
+        @Setup
+        public void setup() {
+            for (Map.Entry<String, String> entry : Fixtures.mdc("small").entrySet()) {
+                MDC.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        @TearDown
+        public void tearDown() {
+            MDC.clear();
+        }
+    }
+
+    @Setup
+    public void setup() {
+        ElasticsearchLoggingProperties properties = Fixtures.properties();
+        properties.setAsync(async);
+        context = new LoggerContext();
+        appender = new ElasticsearchLogAppender(new NoopLogClient(properties), properties);
+        appender.setName("ELASTICSEARCH");
+        appender.setContext(context);
+        appender.start();
+
+        logger = context.getLogger(Fixtures.LOGGER);
+        logger.setLevel(Level.INFO);
+        logger.setAdditive(false);
+        logger.addAppender(appender);
+    }
+
+    @TearDown
+    public void tearDown() {
+        appender.stop();
+        context.stop();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void append1Thread(ThreadContext threadContext) {
+        log();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void append8Threads(ThreadContext threadContext) {
+        log();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void append64Threads(ThreadContext threadContext) {
+        log();
+    }
+
+    private void log() {
+        logger.info(Fixtures.TEMPLATE, 10086, "u-102938", 35);
+    }
+}
@@ -0,0 +1,32 @@
+package com.lz.logging.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 基准入口：接受与 JMH 相同的命令行参数，并始终启用 GC 分析器
+ *
+ * <p>每个基准在吞吐或耗时之外同时报告 {@code gc.alloc.rate.norm}（每次操作分配的字节数）。</p>
+ *
+ * <pre>
+ * mvn -pl elasticsearch-logging-benchmarks -am package -DskipTests
+ * java -jar elasticsearch-logging-benchmarks/target/benchmarks.jar              # 全部基准
+ * java -jar elasticsearch-logging-benchmarks/target/benchmarks.jar Serializer   # 按名称过滤
+ * </pre>
+ */
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
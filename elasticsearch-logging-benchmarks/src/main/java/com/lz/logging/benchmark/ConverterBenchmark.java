@@ -0,0 +1,76 @@
+package com.lz.logging.benchmark;
+
+import com.lz.logging.config.ElasticsearchLoggingProperties;
+import com.lz.logging.core.model.EsLogDocument;
+import com.lz.logging.core.model.LogEventSnapshot;
+import com.lz.logging.logback.LogEventConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 快照转换为文档的开销
+ *
+ * <ul>
+ *     <li>mdc：small 为 4 个条目，large 为 48 个条目</li>
+ *     <li>mdcKeys：all 输出整个 MDC；whitelist 只按白名单捕获 traceId、spanId、requestId</li>
+ *     <li>exception：带约 40 层栈帧和一层 Caused by 的异常（堆栈按指纹缓存，稳态下命中缓存）</li>
+ * </ul>
+ *
+ * <p>{@link #convertIntoCarrier} 对应开启 reuseDocuments 时的路径，不带异常时稳态下的 gc.alloc.rate.norm 应接近 0，
+ * 文档复用是否生效以此为准。</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConverterBenchmark {
+
+    @Param({"small", "large"})
+    private String mdc;
+
+    @Param({"all", "whitelist"})
+    private String mdcKeys;
+
+    @Param({"false", "true"})
+    private boolean exception;
+
+    private LogEventConverter converter;
+    private LogEventSnapshot snapshot;
+    private final EsLogDocument carrier = new EsLogDocument();
+
+    @Setup
+    public void setup() {
+        ElasticsearchLoggingProperties properties = Fixtures.properties();
+        if ("whitelist".equals(mdcKeys)) {
+            properties.setMdcKeys(Arrays.asList("traceId", "spanId", "requestId"));
+        }
+        converter = new LogEventConverter(properties);
+        snapshot = Fixtures.snapshot(Fixtures.mdc(mdc), exception);
+    }
+
+    @Benchmark
+    public EsLogDocument convert() {
+        return converter.convert(snapshot);
+    }
+
+    @Benchmark
+    public EsLogDocument convertIntoCarrier() {
+        EsLogDocument document = converter.convert(snapshot, carrier);
+        carrier.reset();
+        return document;
+    }
+}
@@ -0,0 +1,67 @@
+package com.lz.logging.benchmark;
+
+import com.lz.logging.config.ElasticsearchLoggingProperties;
+import com.lz.logging.core.model.LogEventSnapshot;
+import org.slf4j.event.Level;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 各基准共用的配置和事件数据
+ */
+final class Fixtures {
+
+    static final String LOGGER = "com.lz.logging.benchmark.OrderService";
+    static final String THREAD = "http-nio-8080-exec-12";
+    static final String TEMPLATE = "order {} paid by user {} in {} ms";
+
+    private Fixtures() {
+    }
+
+    static ElasticsearchLoggingProperties properties() {
+        ElasticsearchLoggingProperties properties = new ElasticsearchLoggingProperties();
+        properties.setApplicationName("order-service");
+        properties.setEnvironment("bench");
+        return properties;
+    }
+
+    /**
+     * small：traceId、spanId、userId、requestId 4 个条目；large：再加 44 个业务条目，共 48 个
+     */
+    static Map<String, String> mdc(String size) {
+        Map<String, String> mdc = new HashMap<>();
+        mdc.put("traceId", "4bf92f3577b34da6a3ce929d0e0e4736");
+        mdc.put("spanId", "00f067aa0ba902b7");
+        mdc.put("userId", "u-102938");
+        mdc.put("requestId", "req-5f1d7a");
+        if ("large".equals(size)) {
+            for (int i = 0; i < 44; i++) {
+                mdc.put("attribute" + i, "value-" + i + "-中文");
+            }
+        }
+        return Collections.unmodifiableMap(mdc);
+    }
+
+    static LogEventSnapshot snapshot(Map<String, String> mdc, boolean exception) {
+        Level level = exception ? Level.ERROR : Level.INFO;
+        String message = "order 10086 paid by user u-102938 in 35 ms";
+        return new LogEventSnapshot(System.currentTimeMillis(), level, LOGGER, THREAD, message, TEMPLATE,
+                mdc, exception ? throwable() : null);
+    }
+
+    /**
+     * 带 Caused by 和约 40 层栈帧的异常，接近业务代码中的典型深度
+     */
+    static Throwable throwable() {
+        return nest(40, new IllegalStateException("connection reset"));
+    }
+
+    private static Throwable nest(int depth, Throwable cause) {
+        if (depth > 0) {
+            return nest(depth - 1, cause);
+        }
+        return new RuntimeException("payment failed for order 10086", cause);
+    }
+}
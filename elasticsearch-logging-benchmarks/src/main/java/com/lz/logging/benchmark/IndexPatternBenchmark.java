@@ -0,0 +1,63 @@
+package com.lz.logging.benchmark;
+
+import com.lz.logging.core.util.CompiledIndexPattern;
+import com.lz.logging.core.util.IndexPatternResolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 索引名解析：按模式字符串查找编译结果、直接使用编译结果，以及按事件时间解析
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IndexPatternBenchmark {
+
+    @Param({"app-logs-%{yyyy.MM.dd}", "app-logs-%{yyyy-MM-dd-HH}"})
+    private String pattern;
+
+    private IndexPatternResolver resolver;
+    private CompiledIndexPattern compiled;
+    private long eventTime;
+
+    @Setup
+    public void setup() {
+        resolver = new IndexPatternResolver(ZoneId.of("Asia/Shanghai"));
+        compiled = resolver.compile(pattern);
+        eventTime = System.currentTimeMillis();
+    }
+
+    @Benchmark
+    public String resolve() {
+        return resolver.resolve(pattern);
+    }
+
+    @Benchmark
+    public String resolveCompiled() {
+        return compiled.resolve();
+    }
+
+    /**
+     * 事件时间每次前进 7 毫秒，偶尔跨越时间桶
+     */
+    @Benchmark
+    public String resolveEventTime() {
+        eventTime += 7;
+        return compiled.resolve(eventTime);
+    }
+}
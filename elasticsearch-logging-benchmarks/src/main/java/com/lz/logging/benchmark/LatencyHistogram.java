@@ -0,0 +1,92 @@
+package com.lz.logging.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 并发记录的对数-线性延迟直方图，精度为微秒
+ *
+ * <p>小于 32µs 的值逐个计数；更大的值按 2 的幂分段，每段再等分为 16 个桶，相对误差不超过 1/16。
+ * 百分位取所在桶的上界，结果偏保守。</p>
+ */
+final class LatencyHistogram {
+
+    private static final int LINEAR_BUCKETS = 32;
+    private static final int SUB_BUCKETS = 16;
+    private static final int MAX_MAGNITUDE = 40;
+
+    private final AtomicLongArray counts = new AtomicLongArray(LINEAR_BUCKETS + MAX_MAGNITUDE * SUB_BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumMicros = new LongAdder();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    void recordNanos(long nanos) {
+        long micros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos));
+        counts.incrementAndGet(indexOf(micros));
+        count.increment();
+        sumMicros.add(micros);
+        long max;
+        while (micros > (max = maxMicros.get()) && !maxMicros.compareAndSet(max, micros)) {
+            // 重试直到写入更大的值
+        }
+    }
+
+    long getCount() {
+        return count.sum();
+    }
+
+    double getMeanMicros() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sumMicros.sum() / n;
+    }
+
+    long getMaxMicros() {
+        return maxMicros.get();
+    }
+
+    /**
+     * @param percentile 0 ~ 100
+     * @return 不小于该比例记录值的最小桶上界（微秒），没有记录时为 0
+     */
+    long percentileMicros(double percentile) {
+        long total = 0;
+        long[] snapshot = new long[counts.length()];
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= target) {
+                return Math.min(upperBoundOf(i), maxMicros.get());
+            }
+        }
+        return maxMicros.get();
+    }
+
+    private static int indexOf(long micros) {
+        if (micros < LINEAR_BUCKETS) {
+            return (int) micros;
+        }
+        // micros >= 32 时最高位不低于第 5 位，右移 magnitude 位后落在 [16, 32)
+        int magnitude = Math.min(63 - Long.numberOfLeadingZeros(micros) - 4, MAX_MAGNITUDE);
+        int sub = (int) Math.min(micros >>> magnitude, 2 * SUB_BUCKETS - 1);
+        return LINEAR_BUCKETS + (magnitude - 1) * SUB_BUCKETS + (sub - SUB_BUCKETS);
+    }
+
+    private static long upperBoundOf(int index) {
+        if (index < LINEAR_BUCKETS) {
+            return index;
+        }
+        int magnitude = (index - LINEAR_BUCKETS) / SUB_BUCKETS + 1;
+        int sub = (index - LINEAR_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((long) (sub + 1) << magnitude) - 1;
+    }
+}
@@ -0,0 +1,283 @@
+package com.lz.logging.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import com.lz.logging.config.ElasticsearchLoggingProperties;
+import com.lz.logging.core.bulk.StripedBulkSender;
+import com.lz.logging.core.client.ElasticsearchLogClient;
+import com.lz.logging.logback.ElasticsearchLogAppender;
+import org.slf4j.MDC;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 端到端压测：真实的 Logback 上下文经 {@link ElasticsearchLogAppender} 写入进程内的 {@link StubElasticsearch}
+ *
+ * <p>N 个生产线程按目标速率调用 {@code logger.info}，每条事件在 MDC 中带上写日志时的 nanoTime，
+ * 桩服务确认文档时据此记录延迟。结束后等待剩余事件发送完毕，输出吞吐、各环节丢弃数、
+ * 写日志到确认的延迟分布和传输字节数。</p>
+ *
+ * <pre>
+ * java -cp elasticsearch-logging-benchmarks/target/benchmarks.jar com.lz.logging.benchmark.LoadHarness \
+ *     --threads=8 --rate=50000 --duration=30 --latency-ms=20 --item-reject-rate=0.01 \
+ *     --bulk-interval=200 --bulk-transport=ndjson
+ * </pre>
+ *
+ * <p>压测参数见 {@link #OPTIONS}；其余 {@code --name=value} 参数作为 {@code es.logging.name} 绑定到 Starter 配置。</p>
+ */
+public final class LoadHarness {
+
+    private static final Map<String, String> OPTIONS = new LinkedHashMap<>();
+
+    static {
+        OPTIONS.put("threads", "8");
+        OPTIONS.put("rate", "20000");
+        OPTIONS.put("duration", "30");
+        OPTIONS.put("mdc", "small");
+        OPTIONS.put("latency-ms", "5");
+        OPTIONS.put("latency-jitter-ms", "0");
+        OPTIONS.put("reject-rate", "0");
+        OPTIONS.put("item-reject-rate", "0");
+        OPTIONS.put("item-error-rate", "0");
+        OPTIONS.put("stub-threads", "16");
+        OPTIONS.put("drain-timeout", "30");
+        OPTIONS.put("report-interval", "5");
+    }
+
+    private final Map<String, String> options;
+    private final ElasticsearchLoggingProperties properties;
+    private final LatencyHistogram ackLatency = new LatencyHistogram();
+    private final LongAdder produced = new LongAdder();
+
+    private StubElasticsearch stub;
+    private ElasticsearchLogClient client;
+    private LoggerContext context;
+    private ElasticsearchLogAppender appender;
+    private Logger logger;
+
+    private LoadHarness(Map<String, String> options, ElasticsearchLoggingProperties properties) {
+        this.options = options;
+        this.properties = properties;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>(OPTIONS);
+        Map<String, String> overrides = new LinkedHashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            String name = arg.substring(2, separator);
+            String value = arg.substring(separator + 1);
+            (OPTIONS.containsKey(name) ? options : overrides).put(name, value);
+        }
+
+        ElasticsearchLoggingProperties properties = Fixtures.properties();
+        Map<String, String> source = new LinkedHashMap<>();
+        overrides.forEach((name, value) -> source.put("es.logging." + name, value));
+        new Binder(new MapConfigurationPropertySource(source))
+                .bind("es.logging", Bindable.ofInstance(properties));
+
+        new LoadHarness(options, properties).run();
+    }
+
+    private void run() throws Exception {
+        stub = new StubElasticsearch(intOption("stub-threads"), ackLatency);
+        stub.setLatency(longOption("latency-ms"), longOption("latency-jitter-ms"));
+        stub.setRejectRate(doubleOption("reject-rate"));
+        stub.setItemRejectRate(doubleOption("item-reject-rate"));
+        stub.setItemErrorRate(doubleOption("item-error-rate"));
+        stub.start();
+
+        properties.setHosts(stub.getAddress());
+        if (!properties.getMdcKeys().isEmpty() && !properties.getMdcKeys().contains(StubElasticsearch.ENQUEUE_NANOS_KEY)) {
+            // 配置了 MDC 白名单时也要输出写日志时间，否则无法统计延迟
+            properties.getMdcKeys().add(StubElasticsearch.ENQUEUE_NANOS_KEY);
+        }
+        startLogging();
+
+        int threads = intOption("threads");
+        long durationNanos = TimeUnit.SECONDS.toNanos(longOption("duration"));
+        System.out.printf("Load: %d threads, target %s events/s, %d s, stub %s%n",
+                threads, longOption("rate") > 0 ? options.get("rate") : "unlimited",
+                TimeUnit.NANOSECONDS.toSeconds(durationNanos), stub.getAddress());
+
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "load-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long startNanos = System.nanoTime();
+        long interval = longOption("report-interval");
+        reporter.scheduleAtFixedRate(() -> printProgress(startNanos), interval, interval, TimeUnit.SECONDS);
+
+        long deadline = startNanos + durationNanos;
+        List<Thread> producers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            Thread producer = new Thread(() -> produce(startNanos, deadline, threads), "load-producer-" + i);
+            producers.add(producer);
+            producer.start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        long producedNanos = System.nanoTime() - startNanos;
+
+        drain(TimeUnit.SECONDS.toNanos(longOption("drain-timeout")));
+        reporter.shutdownNow();
+        printSummary(startNanos, producedNanos);
+
+        appender.stop();
+        context.stop();
+        client.shutdown();
+        stub.stop();
+    }
+
+    private void startLogging() {
+        client = new ElasticsearchLogClient(properties);
+        client.start();
+
+        context = new LoggerContext();
+        appender = new ElasticsearchLogAppender(client, properties);
+        appender.setName("ELASTICSEARCH");
+        appender.setContext(context);
+        appender.start();
+
+        logger = context.getLogger(Fixtures.LOGGER);
+        logger.setLevel(Level.INFO);
+        logger.setAdditive(false);
+        logger.addAppender(appender);
+    }
+
+    /**
+     * 按各自分得的速率写日志：落后于计划时立即补发，不跳过，使实际速率尽量接近目标
+     */
+    private void produce(long startNanos, long deadline, int threads) {
+        for (Map.Entry<String, String> entry : Fixtures.mdc(options.get("mdc")).entrySet()) {
+            MDC.put(entry.getKey(), entry.getValue());
+        }
+        long rate = longOption("rate");
+        long intervalNanos = rate > 0 ? TimeUnit.SECONDS.toNanos(threads) / rate : 0;
+        long next = startNanos;
+        long sequence = 0;
+        try {
+            while (true) {
+                long now = System.nanoTime();
+                if (now >= deadline) {
+                    return;
+                }
+                if (intervalNanos > 0 && now < next) {
+                    LockSupport.parkNanos(next - now);
+                    continue;
+                }
+                MDC.put(StubElasticsearch.ENQUEUE_NANOS_KEY, Long.toString(System.nanoTime()));
+                logger.info(Fixtures.TEMPLATE, sequence++, "u-102938", 35);
+                produced.increment();
+                next += intervalNanos;
+            }
+        } finally {
+            MDC.clear();
+        }
+    }
+
+    /**
+     * 刷新所有批次，等待每条事件都有去向（被确认或计入某个丢弃计数），或超时
+     */
+    private void drain(long timeoutNanos) throws InterruptedException {
+        client.flush();
+        long deadline = System.nanoTime() + timeoutNanos;
+        while (System.nanoTime() < deadline && accounted() < produced.sum()) {
+            TimeUnit.MILLISECONDS.sleep(100);
+            client.flush();
+        }
+    }
+
+    private long accounted() {
+        StripedBulkSender sender = client.getBulkSender();
+        return ackLatency.getCount() + droppedEvents()
+                + (sender != null ? sender.getFailedItems() + sender.getDeadLetteredItems() : 0);
+    }
+
+    /**
+     * 在 Appender 上被丢弃的事件：队列溢出与熔断
+     */
+    private long droppedEvents() {
+        return appender.getDroppedEvents() + appender.getCircuitBreakerDroppedEventCounters().total();
+    }
+
+    private void printProgress(long startNanos) {
+        System.out.printf("[%4ds] produced=%d acked=%d queue=%d dropped=%d bulk-requests=%d%n",
+                TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startNanos), produced.sum(),
+                ackLatency.getCount(), appender.getQueueDepth(), droppedEvents(), stub.getBulkRequests());
+    }
+
+    private void printSummary(long startNanos, long producedNanos) {
+        long total = produced.sum();
+        long acked = ackLatency.getCount();
+        long lastAck = stub.getLastAckNanos();
+        double producedSeconds = producedNanos / 1e9;
+        double ackSeconds = lastAck > startNanos ? (lastAck - startNanos) / 1e9 : producedSeconds;
+        StripedBulkSender sender = client.getBulkSender();
+        long failed = sender != null ? sender.getFailedItems() : 0;
+        long deadLettered = sender != null ? sender.getDeadLetteredItems() : 0;
+        long lost = total - acked - droppedEvents() - failed - deadLettered;
+
+        System.out.println();
+        System.out.println("== Summary ==");
+        System.out.printf(Locale.ROOT, "produced        %d events, %.0f events/s%n", total, total / producedSeconds);
+        System.out.printf(Locale.ROOT, "acknowledged    %d events, %.0f events/s%n", acked, acked / ackSeconds);
+        System.out.printf("dropped         queue overflow %d, circuit breaker %d, bulk failed %d, "
+                        + "dead-lettered %d, unaccounted %d%n",
+                appender.getDroppedEvents(), appender.getCircuitBreakerDroppedEventCounters().total(),
+                failed, deadLettered, Math.max(0, lost));
+        System.out.printf("bulk            %d requests, %d rejected (429), item rejections %d, item errors %d, "
+                        + "retried items %d%n",
+                stub.getBulkRequests(), stub.getRejectedRequests(), stub.getRejectedItems(),
+                stub.getErroredItems(), sender != null ? sender.getRetriedItems() : 0);
+        System.out.printf(Locale.ROOT, "bytes on wire   sent %s (decoded %s), received %s, %.0f B/event%n",
+                bytes(stub.getRequestBytes()), bytes(stub.getDecodedBytes()), bytes(stub.getResponseBytes()),
+                stub.getIndexedItems() > 0 ? (double) stub.getRequestBytes() / stub.getIndexedItems() : 0.0);
+        System.out.printf(Locale.ROOT, "latency (ms)    enqueue -> ack: mean %.2f, p50 %.2f, p90 %.2f, p99 %.2f, "
+                        + "p99.9 %.2f, max %.2f%n",
+                ackLatency.getMeanMicros() / 1000, millis(ackLatency.percentileMicros(50)),
+                millis(ackLatency.percentileMicros(90)), millis(ackLatency.percentileMicros(99)),
+                millis(ackLatency.percentileMicros(99.9)), millis(ackLatency.getMaxMicros()));
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private static String bytes(long bytes) {
+        if (bytes < 1024 * 1024) {
+            return String.format(Locale.ROOT, "%.1f KB", bytes / 1024.0);
+        }
+        return String.format(Locale.ROOT, "%.1f MB", bytes / (1024.0 * 1024));
+    }
+
+    private int intOption(String name) {
+        return Integer.parseInt(options.get(name));
+    }
+
+    private long longOption(String name) {
+        return Long.parseLong(options.get(name));
+    }
+
+    private double doubleOption(String name) {
+        return Double.parseDouble(options.get(name));
+    }
+}
@@ -0,0 +1,41 @@
+package com.lz.logging.benchmark;
+
+import com.lz.logging.config.ElasticsearchLoggingProperties;
+import com.lz.logging.core.client.ElasticsearchLogClient;
+import com.lz.logging.core.model.EsLogDocument;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 只序列化、不发送的客户端，用于隔离 Appender 自身的开销
+ */
+class NoopLogClient extends ElasticsearchLogClient {
+
+    private final LongAdder serializedBytes = new LongAdder();
+
+    NoopLogClient(ElasticsearchLoggingProperties properties) {
+        super(properties);
+    }
+
+    @Override
+    public void sendAsync(EsLogDocument document, long eventTimeMillis) {
+        serialize(document);
+    }
+
+    @Override
+    public void sendSync(EsLogDocument document, long eventTimeMillis) {
+        serialize(document);
+    }
+
+    private void serialize(EsLogDocument document) {
+        try {
+            serializedBytes.add(getSerializer().serialize(document).length);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    long getSerializedBytes() {
+        return serializedBytes.sum();
+    }
+}
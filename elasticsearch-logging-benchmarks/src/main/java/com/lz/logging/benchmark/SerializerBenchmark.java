@@ -0,0 +1,68 @@
+package com.lz.logging.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lz.logging.core.model.EsLogDocument;
+import com.lz.logging.core.model.EsLogDocumentModule;
+import com.lz.logging.core.serializer.DirectLogDocumentSerializer;
+import com.lz.logging.core.serializer.JacksonLogDocumentSerializer;
+import com.lz.logging.core.serializer.LogDocumentSerializer;
+import com.lz.logging.core.util.TimestampEncoder;
+import com.lz.logging.logback.LogEventConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 文档序列化为字节的开销：jackson（ObjectMapper + EsLogDocumentModule）与 direct（专用写出器）对比
+ *
+ * <p>document：info 为普通日志和 small MDC；error 另带 large MDC 和异常堆栈。</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializerBenchmark {
+
+    @Param({"jackson", "direct"})
+    private String engine;
+
+    @Param({"info", "error"})
+    private String document;
+
+    @Param({"iso", "epoch_millis"})
+    private String timestampFormat;
+
+    private LogDocumentSerializer serializer;
+    private EsLogDocument esLogDocument;
+
+    @Setup
+    public void setup() {
+        TimestampEncoder encoder = new TimestampEncoder(TimestampEncoder.Format.of(timestampFormat),
+                ZoneId.systemDefault());
+        serializer = "direct".equals(engine)
+                ? new DirectLogDocumentSerializer(encoder, EsLogDocumentModule.DEFAULT_NAME_CACHE_SIZE)
+                : new JacksonLogDocumentSerializer(new ObjectMapper().registerModule(new EsLogDocumentModule(encoder)));
+        boolean error = "error".equals(document);
+        esLogDocument = new LogEventConverter(Fixtures.properties())
+                .convert(Fixtures.snapshot(Fixtures.mdc(error ? "large" : "small"), error));
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return serializer.serialize(esLogDocument);
+    }
+}
@@ -0,0 +1,405 @@
+package com.lz.logging.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 进程内的 Elasticsearch 桩服务，只实现日志写入用到的接口
+ *
+ * <ul>
+ *     <li>{@code GET /} / {@code HEAD /}：返回 7.17 的版本信息和 {@code X-Elastic-Product} 头，
+ *     满足 RestHighLevelClient 的版本校验和 ping</li>
+ *     <li>{@code POST /_bulk}：支持 gzip 请求体；按配置的延迟响应，按比例整体返回 429，
+ *     或让单个条目返回 429（可重试）/ 400（文档错误）</li>
+ *     <li>{@code POST /{index}/_doc}：同步模式下的单条写入</li>
+ * </ul>
+ *
+ * <p>文档 MDC 中带有 {@value #ENQUEUE_NANOS_KEY}（写日志时的 {@link System#nanoTime()}）时，
+ * 在成功响应前记录从写日志到确认的延迟。桩服务与被测代码在同一进程中，两端的 nanoTime 可以直接相减。</p>
+ */
+final class StubElasticsearch {
+
+    static final String ENQUEUE_NANOS_KEY = "loadNanos";
+
+    private static final byte[] ENQUEUE_NANOS_MARKER =
+            ("\"" + ENQUEUE_NANOS_KEY + "\":\"").getBytes(StandardCharsets.UTF_8);
+    private static final byte[] INDEX_MARKER = "\"_index\":\"".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ID_MARKER = "\"_id\":\"".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] INFO = ("{\"name\":\"stub\",\"cluster_name\":\"stub\",\"cluster_uuid\":\"_na_\","
+            + "\"version\":{\"number\":\"7.17.0\",\"build_flavor\":\"default\",\"build_type\":\"tar\","
+            + "\"build_hash\":\"unknown\",\"build_date\":\"2022-01-28T08:36:04.875279988Z\",\"build_snapshot\":false,"
+            + "\"lucene_version\":\"8.11.1\",\"minimum_wire_compatibility_version\":\"6.8.0\","
+            + "\"minimum_index_compatibility_version\":\"6.0.0-beta1\"},\"tagline\":\"You Know, for Search\"}")
+            .getBytes(StandardCharsets.UTF_8);
+    private static final byte[] REJECTED = ("{\"error\":{\"root_cause\":[{\"type\":\"es_rejected_execution_exception\","
+            + "\"reason\":\"rejected execution of coordinating operation\"}],"
+            + "\"type\":\"es_rejected_execution_exception\","
+            + "\"reason\":\"rejected execution of coordinating operation\"},\"status\":429}")
+            .getBytes(StandardCharsets.UTF_8);
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final LatencyHistogram ackLatency;
+
+    private volatile long latencyMillis;
+    private volatile long latencyJitterMillis;
+    private volatile double rejectRate;
+    private volatile double itemRejectRate;
+    private volatile double itemErrorRate;
+
+    private final AtomicLong seqNo = new AtomicLong();
+    private final AtomicLong lastAckNanos = new AtomicLong();
+    private final LongAdder bulkRequests = new LongAdder();
+    private final LongAdder rejectedRequests = new LongAdder();
+    private final LongAdder indexedItems = new LongAdder();
+    private final LongAdder rejectedItems = new LongAdder();
+    private final LongAdder erroredItems = new LongAdder();
+    private final LongAdder untrackedItems = new LongAdder();
+    private final LongAdder requestBytes = new LongAdder();
+    private final LongAdder decodedBytes = new LongAdder();
+    private final LongAdder responseBytes = new LongAdder();
+
+    /**
+     * @param handlerThreads 处理请求的线程数，应不少于客户端的在途请求数，否则延迟会被串行放大
+     * @param ackLatency     记录确认延迟的直方图
+     */
+    StubElasticsearch(int handlerThreads, LatencyHistogram ackLatency) throws IOException {
+        this.ackLatency = ackLatency;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 128);
+        AtomicInteger threadId = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(handlerThreads, r -> {
+            Thread thread = new Thread(r, "stub-es-" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    void start() {
+        server.start();
+    }
+
+    void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * 监听地址，形如 127.0.0.1:port，可直接作为 hosts 配置
+     */
+    String getAddress() {
+        return "127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /* ================= 行为配置 ================= */
+
+    /**
+     * 写入请求的固定延迟和 [0, jitter] 的随机附加延迟
+     */
+    void setLatency(long latencyMillis, long latencyJitterMillis) {
+        this.latencyMillis = latencyMillis;
+        this.latencyJitterMillis = latencyJitterMillis;
+    }
+
+    /**
+     * 整个批量请求返回 429 的比例
+     */
+    void setRejectRate(double rejectRate) {
+        this.rejectRate = rejectRate;
+    }
+
+    /**
+     * 单个条目返回 429 的比例
+     */
+    void setItemRejectRate(double itemRejectRate) {
+        this.itemRejectRate = itemRejectRate;
+    }
+
+    /**
+     * 单个条目返回 400（mapper_parsing_exception）的比例
+     */
+    void setItemErrorRate(double itemErrorRate) {
+        this.itemErrorRate = itemErrorRate;
+    }
+
+    /* ================= 统计 ================= */
+
+    long getBulkRequests() {
+        return bulkRequests.sum();
+    }
+
+    /**
+     * 整体返回 429 的批量请求数
+     */
+    long getRejectedRequests() {
+        return rejectedRequests.sum();
+    }
+
+    /**
+     * 成功写入的文档数，包括不带写日志时间的文档（兜底文档）
+     */
+    long getIndexedItems() {
+        return indexedItems.sum();
+    }
+
+    long getRejectedItems() {
+        return rejectedItems.sum();
+    }
+
+    long getErroredItems() {
+        return erroredItems.sum();
+    }
+
+    /**
+     * 成功写入但不带写日志时间、未计入延迟的文档数
+     */
+    long getUntrackedItems() {
+        return untrackedItems.sum();
+    }
+
+    /**
+     * 收到的请求体字节数（压缩时为压缩后的大小）
+     */
+    long getRequestBytes() {
+        return requestBytes.sum();
+    }
+
+    /**
+     * 解压后的请求体字节数
+     */
+    long getDecodedBytes() {
+        return decodedBytes.sum();
+    }
+
+    long getResponseBytes() {
+        return responseBytes.sum();
+    }
+
+    /**
+     * 最近一次确认文档的 nanoTime，没有确认过时为 0
+     */
+    long getLastAckNanos() {
+        return lastAckNanos.get();
+    }
+
+    /* ================= 请求处理 ================= */
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath();
+            if ("/".equals(path)) {
+                respond(exchange, 200, "HEAD".equals(method) ? null : INFO);
+            } else if (path.endsWith("/_bulk") && "POST".equals(method)) {
+                handleBulk(exchange, readBody(exchange));
+            } else if (path.contains("/_doc") && ("POST".equals(method) || "PUT".equals(method))) {
+                handleIndex(exchange, path, readBody(exchange));
+            } else {
+                respond(exchange, 404, ("{\"error\":\"no handler for " + method + " " + path + "\",\"status\":404}")
+                        .getBytes(StandardCharsets.UTF_8));
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleBulk(HttpExchange exchange, byte[] body) throws IOException {
+        bulkRequests.increment();
+        sleep();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (rejectRate > 0 && random.nextDouble() < rejectRate) {
+            rejectedRequests.increment();
+            respond(exchange, 429, REJECTED);
+            return;
+        }
+
+        StringBuilder response = new StringBuilder(256 + body.length / 8);
+        boolean errors = false;
+        int items = 0;
+        int position = 0;
+        while (position < body.length) {
+            int actionEnd = lineEnd(body, position);
+            int sourceStart = actionEnd + 1;
+            int sourceEnd = lineEnd(body, sourceStart);
+            if (sourceStart >= body.length) {
+                break;
+            }
+            String index = stringValue(body, position, actionEnd, INDEX_MARKER);
+            String id = stringValue(body, position, actionEnd, ID_MARKER);
+            if (items++ > 0) {
+                response.append(',');
+            }
+            double roll = random.nextDouble();
+            if (roll < itemRejectRate) {
+                rejectedItems.increment();
+                errors = true;
+                appendFailure(response, index, id, 429, "es_rejected_execution_exception",
+                        "rejected execution of primary operation");
+            } else if (roll < itemRejectRate + itemErrorRate) {
+                erroredItems.increment();
+                errors = true;
+                appendFailure(response, index, id, 400, "mapper_parsing_exception", "failed to parse field [message]");
+            } else {
+                acknowledge(body, sourceStart, sourceEnd);
+                response.append("{\"index\":");
+                appendDocument(response, index, id, 201);
+                response.append('}');
+            }
+            position = sourceEnd + 1;
+        }
+        response.insert(0, "{\"took\":" + latencyMillis + ",\"errors\":" + errors + ",\"items\":[").append("]}");
+        respond(exchange, 200, response.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void handleIndex(HttpExchange exchange, String path, byte[] body) throws IOException {
+        sleep();
+        String index = path.substring(1, path.indexOf("/_doc"));
+        acknowledge(body, 0, body.length);
+        StringBuilder response = new StringBuilder(256);
+        appendDocument(response, index, null, 0);
+        respond(exchange, 201, response.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void acknowledge(byte[] body, int from, int to) {
+        indexedItems.increment();
+        int start = indexOf(body, from, to, ENQUEUE_NANOS_MARKER);
+        if (start < 0) {
+            untrackedItems.increment();
+            return;
+        }
+        long enqueueNanos = 0;
+        for (int i = start + ENQUEUE_NANOS_MARKER.length; i < to && body[i] != '"'; i++) {
+            enqueueNanos = enqueueNanos * 10 + (body[i] - '0');
+        }
+        long now = System.nanoTime();
+        ackLatency.recordNanos(now - enqueueNanos);
+        lastAckNanos.accumulateAndGet(now, Math::max);
+    }
+
+    /**
+     * @param status 批量响应中条目的状态码，单条写入的响应不带状态码时传 0
+     */
+    private void appendDocument(StringBuilder response, String index, String id, int status) {
+        response.append("{\"_index\":\"").append(index).append("\",\"_type\":\"_doc\",\"_id\":\"")
+                .append(id != null ? id : "stub-" + seqNo.get())
+                .append("\",\"_version\":1,\"result\":\"created\",")
+                .append("\"_shards\":{\"total\":1,\"successful\":1,\"failed\":0},")
+                .append("\"_seq_no\":").append(seqNo.getAndIncrement()).append(",\"_primary_term\":1");
+        if (status > 0) {
+            response.append(",\"status\":").append(status);
+        }
+        response.append('}');
+    }
+
+    private static void appendFailure(StringBuilder response, String index, String id,
+                                      int status, String type, String reason) {
+        response.append("{\"index\":{\"_index\":\"").append(index).append("\",\"_type\":\"_doc\",\"_id\":\"")
+                .append(id != null ? id : "stub-failed").append("\",\"status\":").append(status)
+                .append(",\"error\":{\"type\":\"").append(type).append("\",\"reason\":\"").append(reason)
+                .append("\"}}}");
+    }
+
+    private void sleep() {
+        long delay = latencyMillis;
+        if (latencyJitterMillis > 0) {
+            delay += ThreadLocalRandom.current().nextLong(latencyJitterMillis + 1);
+        }
+        if (delay > 0) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private byte[] readBody(HttpExchange exchange) throws IOException {
+        byte[] raw = readFully(exchange.getRequestBody());
+        requestBytes.add(raw.length);
+        byte[] body = raw;
+        if ("gzip".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+            body = readFully(new GZIPInputStream(new ByteArrayInputStream(raw)));
+        }
+        decodedBytes.add(body.length);
+        return body;
+    }
+
+    private void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "application/json; charset=UTF-8");
+        exchange.getResponseHeaders().add("X-Elastic-Product", "Elasticsearch");
+        exchange.sendResponseHeaders(status, body != null ? body.length : -1);
+        if (body != null) {
+            responseBytes.add(body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        try (InputStream input = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(16 * 1024);
+            byte[] chunk = new byte[16 * 1024];
+            int read;
+            while ((read = input.read(chunk)) != -1) {
+                out.write(chunk, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    private static int lineEnd(byte[] data, int from) {
+        int i = from;
+        while (i < data.length && data[i] != '\n') {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * 取 marker 之后到下一个引号之间的字符串，不存在时返回 null；只用于不含转义字符的索引名和 ID
+     */
+    private static String stringValue(byte[] data, int from, int to, byte[] marker) {
+        int start = indexOf(data, from, to, marker);
+        if (start < 0) {
+            return null;
+        }
+        start += marker.length;
+        int end = start;
+        while (end < to && data[end] != '"') {
+            end++;
+        }
+        return new String(data, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    private static int indexOf(byte[] data, int from, int to, byte[] marker) {
+        outer:
+        for (int i = from; i <= to - marker.length; i++) {
+            for (int j = 0; j < marker.length; j++) {
+                if (data[i + j] != marker[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+}
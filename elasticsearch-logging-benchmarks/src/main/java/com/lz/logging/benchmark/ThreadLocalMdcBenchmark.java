@@ -0,0 +1,64 @@
+package com.lz.logging.benchmark;
+
+import com.lz.logging.core.util.ThreadLocalMDC;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ThreadLocalMDC} 的常用操作；每个基准线程有自己的 8 个条目的上下文
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class ThreadLocalMdcBenchmark {
+
+    private Map<String, String> context;
+
+    @Setup
+    public void setup() {
+        ThreadLocalMDC.clear();
+        for (int i = 0; i < 8; i++) {
+            ThreadLocalMDC.put("key" + i, "value" + i);
+        }
+        context = ThreadLocalMDC.getCopyOfContextMap();
+    }
+
+    @Benchmark
+    public void putGetRemove(Blackhole blackhole) {
+        ThreadLocalMDC.put("requestId", "req-5f1d7a");
+        blackhole.consume(ThreadLocalMDC.get("requestId"));
+        blackhole.consume(ThreadLocalMDC.remove("requestId"));
+    }
+
+    @Benchmark
+    public boolean containsKey() {
+        return ThreadLocalMDC.containsKey("key3");
+    }
+
+    @Benchmark
+    public Map<String, String> getCopyOfContextMap() {
+        return ThreadLocalMDC.getCopyOfContextMap();
+    }
+
+    @Benchmark
+    public void setContextMap() {
+        ThreadLocalMDC.setContextMap(context);
+    }
+}
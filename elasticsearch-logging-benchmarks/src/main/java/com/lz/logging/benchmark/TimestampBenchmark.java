@@ -0,0 +1,61 @@
+package com.lz.logging.benchmark;
+
+import com.lz.logging.core.util.TimestampEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 时间戳编码：按秒缓存前缀的 {@link TimestampEncoder} 与每次完整格式化的 DateTimeFormatter 对比
+ *
+ * <p>基线是引入 TimestampEncoder 之前转换器使用的格式化器（{@code yyyy-MM-dd'T'HH:mm:ss.SSS}，带时区，
+ * 输出不含偏移），TimestampEncoder 在此基础上还多输出了时区偏移。</p>
+ *
+ * <p>每次调用时间前进 1 毫秒，约每千次调用跨越一秒，接近持续写日志时的实际分布。</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimestampBenchmark {
+
+    private final ZoneId zone = ZoneId.of("Asia/Shanghai");
+    private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS").withZone(zone);
+    private final TimestampEncoder encoder = new TimestampEncoder(TimestampEncoder.Format.ISO, zone);
+    private final char[] buffer = new char[TimestampEncoder.MAX_LENGTH];
+    private long epochMillis;
+
+    @Setup
+    public void setup() {
+        epochMillis = System.currentTimeMillis();
+    }
+
+    @Benchmark
+    public String dateTimeFormatter() {
+        return formatter.format(Instant.ofEpochMilli(++epochMillis));
+    }
+
+    @Benchmark
+    public String encoderToString() {
+        return encoder.encode(++epochMillis);
+    }
+
+    @Benchmark
+    public int encoderIntoBuffer() {
+        return encoder.encodeIso(++epochMillis, buffer, 0);
+    }
+}
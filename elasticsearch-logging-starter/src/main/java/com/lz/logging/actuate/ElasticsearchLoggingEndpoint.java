@@ -0,0 +1,113 @@
+package com.lz.logging.actuate;
+
+import com.lz.logging.core.bulk.AdaptiveBulkController;
+import com.lz.logging.core.bulk.StripedBulkSender;
+import com.lz.logging.core.client.CircuitBreaker;
+import com.lz.logging.core.client.ElasticsearchLogClient;
+import com.lz.logging.core.pipeline.EventCollapser;
+import com.lz.logging.logback.ElasticsearchLogAppender;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 日志流水线的实时快照：{@code GET /actuator/eslogging}
+ *
+ * <p>每次请求直接读取 Appender、批量发送器和熔断器的当前计数与状态，不做缓存。</p>
+ */
+@Endpoint(id = "eslogging")
+public class ElasticsearchLoggingEndpoint {
+
+    private final ElasticsearchLogClient client;
+    private final ElasticsearchLogAppender appender;
+
+    public ElasticsearchLoggingEndpoint(ElasticsearchLogClient client, ElasticsearchLogAppender appender) {
+        this.client = client;
+        this.appender = appender;
+    }
+
+    @ReadOperation
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("appender", appender());
+        StripedBulkSender sender = client.getBulkSender();
+        if (sender != null) {
+            snapshot.put("bulk", bulk(sender));
+        }
+        snapshot.put("health", health());
+        return snapshot;
+    }
+
+    private Map<String, Object> appender() {
+        Map<String, Object> events = new LinkedHashMap<>();
+        events.put("accepted", appender.getAcceptedEvents());
+        events.put("filtered", appender.getFilteredEvents());
+        events.put("sampledOut", appender.getSampledOutEventCounters().total());
+        events.put("dropped", appender.getDroppedEvents());
+        events.put("circuitBreakerDropped", appender.getCircuitBreakerDroppedEventCounters().total());
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("started", appender.isStarted());
+        result.put("async", appender.isAsync());
+        result.put("queueDepth", appender.getQueueDepth());
+        result.put("queueCapacity", appender.getQueueSize());
+        result.put("events", events);
+        EventCollapser collapser = appender.getCollapser();
+        if (collapser != null) {
+            Map<String, Object> collapse = new LinkedHashMap<>();
+            collapse.put("collapsedEvents", collapser.getCollapsedEvents());
+            collapse.put("summaries", collapser.getSummaries());
+            collapse.put("trackedKeys", collapser.getTrackedKeys());
+            result.put("collapser", collapse);
+        }
+        return result;
+    }
+
+    private static Map<String, Object> bulk(StripedBulkSender sender) {
+        Map<String, Object> documents = new LinkedHashMap<>();
+        documents.put("sent", sender.getSentItems());
+        documents.put("retried", sender.getRetriedItems());
+        documents.put("deadLettered", sender.getDeadLetteredItems());
+        documents.put("failed", sender.getFailedItems());
+        documents.put("circuitBreakerDropped", sender.getCircuitBreakerDroppedItems());
+
+        Map<String, Long> itemFailures = new LinkedHashMap<>();
+        sender.getItemFailures().forEach((status, count) ->
+                itemFailures.put(status.name().toLowerCase(Locale.ROOT), count));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("lanes", sender.getLaneCount());
+        result.put("queueDepths", sender.getQueueDepths());
+        result.put("sentBatches", sender.getSentBatches());
+        result.put("failedBatches", sender.getFailedBatches());
+        result.put("documents", documents);
+        result.put("itemFailures", itemFailures);
+        // 各通道的控制器独立调整，这里取第一个通道作为代表
+        AdaptiveBulkController controller = sender.getLane(0).getController();
+        Map<String, Object> limits = new LinkedHashMap<>();
+        limits.put("adaptive", controller.isEnabled());
+        limits.put("bulkActions", controller.getBulkActions());
+        limits.put("bulkBytes", controller.getBulkBytes());
+        limits.put("concurrency", controller.getConcurrency());
+        result.put("limits", limits);
+        return result;
+    }
+
+    private Map<String, Object> health() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("healthy", client.isHealthy());
+        long lastCheck = client.getLastHealthCheckMillis();
+        result.put("lastCheck", lastCheck > 0 ? Instant.ofEpochMilli(lastCheck).toString() : null);
+        CircuitBreaker circuitBreaker = client.getCircuitBreaker();
+        if (circuitBreaker != null) {
+            result.put("circuitBreaker", circuitBreaker.getState().name());
+            result.put("circuitBreakerOpenedCount", circuitBreaker.getOpenedCount());
+        }
+        result.put("lateEvents", client.getLateEvents());
+        return result;
+    }
+}
@@ -0,0 +1,169 @@
+package com.lz.logging.actuate;
+
+import com.lz.logging.core.bulk.BulkListener;
+import com.lz.logging.core.bulk.BulkResult;
+import com.lz.logging.core.bulk.StripedBulkSender;
+import com.lz.logging.core.client.CircuitBreaker;
+import com.lz.logging.core.client.ElasticsearchLogClient;
+import com.lz.logging.logback.ElasticsearchLogAppender;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * 日志流水线的 Micrometer 指标
+ *
+ * <ul>
+ *     <li>计数类指标直接读取 Appender 和批量发送器中已有的 LongAdder 计数，写日志的线程上没有额外开销</li>
+ *     <li>批次往返耗时、took、条数和字节数由 {@link BulkListener} 在传输回调线程上记录</li>
+ *     <li>单条失败按响应状态（如 too_many_requests、bad_request）分别计数</li>
+ * </ul>
+ *
+ * <p>绑定时把自身注册为客户端的批次观察者，因此只应绑定到一个注册表（Spring Boot 默认如此）。</p>
+ */
+public class ElasticsearchLoggingMetrics implements MeterBinder, BulkListener {
+
+    private static final String PREFIX = "es.logging";
+
+    private final ElasticsearchLogClient client;
+    private final ElasticsearchLogAppender appender;
+
+    private volatile MeterRegistry registry;
+    private volatile Timer successDuration;
+    private volatile Timer failureDuration;
+    private volatile Timer took;
+    private volatile DistributionSummary bulkSize;
+    private volatile DistributionSummary bulkBytes;
+
+    public ElasticsearchLoggingMetrics(ElasticsearchLogClient client, ElasticsearchLogAppender appender) {
+        this.client = client;
+        this.appender = appender;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        // 事件：Appender 上的去向
+        eventCounter(registry, "accepted", ElasticsearchLogAppender::getAcceptedEvents);
+        eventCounter(registry, "filtered", ElasticsearchLogAppender::getFilteredEvents);
+        eventCounter(registry, "sampled_out", a -> a.getSampledOutEventCounters().total());
+        eventCounter(registry, "dropped", ElasticsearchLogAppender::getDroppedEvents);
+        eventCounter(registry, "circuit_breaker", a -> a.getCircuitBreakerDroppedEventCounters().total());
+
+        // 文档：批量发送阶段的去向，未启用批量发送时为 0
+        documentCounter(registry, "sent", StripedBulkSender::getSentItems);
+        documentCounter(registry, "retried", StripedBulkSender::getRetriedItems);
+        documentCounter(registry, "dead_lettered", StripedBulkSender::getDeadLetteredItems);
+        documentCounter(registry, "failed", StripedBulkSender::getFailedItems);
+        documentCounter(registry, "circuit_breaker", StripedBulkSender::getCircuitBreakerDroppedItems);
+
+        Gauge.builder(PREFIX + ".queue.depth", appender, ElasticsearchLogAppender::getQueueDepth)
+                .tag("queue", "pipeline")
+                .description("Events waiting in the serializer ring buffer")
+                .register(registry);
+        Gauge.builder(PREFIX + ".queue.capacity", appender, ElasticsearchLogAppender::getQueueSize)
+                .tag("queue", "pipeline")
+                .register(registry);
+        Gauge.builder(PREFIX + ".queue.depth", client, c -> bulkValue(c, StripedBulkSender::getQueueDepth))
+                .tag("queue", "bulk")
+                .description("Serialized documents waiting to be batched")
+                .register(registry);
+
+        this.successDuration = bulkDuration(registry, "success");
+        this.failureDuration = bulkDuration(registry, "failure");
+        this.took = Timer.builder(PREFIX + ".bulk.took")
+                .description("Time Elasticsearch reported for processing a bulk request")
+                .register(registry);
+        this.bulkSize = DistributionSummary.builder(PREFIX + ".bulk.size")
+                .baseUnit("documents")
+                .description("Documents per bulk request")
+                .register(registry);
+        this.bulkBytes = DistributionSummary.builder(PREFIX + ".bulk.bytes")
+                .baseUnit("bytes")
+                .description("Uncompressed document bytes per bulk request")
+                .register(registry);
+
+        Gauge.builder(PREFIX + ".health", client, c -> c.isHealthy() ? 1 : 0)
+                .description("1 if the last health check reached Elasticsearch, 0 otherwise")
+                .register(registry);
+        CircuitBreaker circuitBreaker = client.getCircuitBreaker();
+        if (circuitBreaker != null) {
+            for (CircuitBreaker.State state : CircuitBreaker.State.values()) {
+                Gauge.builder(PREFIX + ".circuit.breaker.state", circuitBreaker, b -> b.getState() == state ? 1 : 0)
+                        .tag("state", state.name().toLowerCase(Locale.ROOT))
+                        .register(registry);
+            }
+        }
+
+        this.registry = registry;
+        client.setBulkListener(this);
+    }
+
+    @Override
+    public void onBulkCompleted(int items, long bytes, long roundTripNanos, BulkResult result) {
+        if (registry == null) {
+            return;
+        }
+        successDuration.record(roundTripNanos, TimeUnit.NANOSECONDS);
+        took.record(result.getTookMillis(), TimeUnit.MILLISECONDS);
+        bulkSize.record(items);
+        bulkBytes.record(bytes);
+        for (BulkResult.ItemFailure failure : result.getFailures()) {
+            itemFailures(failure.getStatus().name()).increment();
+        }
+    }
+
+    @Override
+    public void onBulkFailed(int items, long bytes, long roundTripNanos, Exception failure) {
+        if (registry == null) {
+            return;
+        }
+        failureDuration.record(roundTripNanos, TimeUnit.NANOSECONDS);
+        bulkSize.record(items);
+        bulkBytes.record(bytes);
+    }
+
+    /**
+     * 单条失败数，按状态打标签；注册表会缓存同名同标签的计数器
+     */
+    private Counter itemFailures(String reason) {
+        return Counter.builder(PREFIX + ".bulk.item.failures")
+                .tag("reason", reason.toLowerCase(Locale.ROOT))
+                .description("Bulk items rejected by Elasticsearch")
+                .register(registry);
+    }
+
+    private void eventCounter(MeterRegistry registry, String outcome, ToDoubleFunction<ElasticsearchLogAppender> count) {
+        FunctionCounter.builder(PREFIX + ".events", appender, count)
+                .tag("outcome", outcome)
+                .baseUnit("events")
+                .register(registry);
+    }
+
+    private void documentCounter(MeterRegistry registry, String outcome, ToLongFunction<StripedBulkSender> count) {
+        FunctionCounter.builder(PREFIX + ".documents", client, c -> bulkValue(c, count))
+                .tag("outcome", outcome)
+                .baseUnit("documents")
+                .register(registry);
+    }
+
+    private static Timer bulkDuration(MeterRegistry registry, String outcome) {
+        return Timer.builder(PREFIX + ".bulk.duration")
+                .tag("outcome", outcome)
+                .description("Round trip time of bulk requests")
+                .register(registry);
+    }
+
+    private static double bulkValue(ElasticsearchLogClient client, ToLongFunction<StripedBulkSender> value) {
+        StripedBulkSender sender = client.getBulkSender();
+        return sender != null ? value.applyAsLong(sender) : 0;
+    }
+}
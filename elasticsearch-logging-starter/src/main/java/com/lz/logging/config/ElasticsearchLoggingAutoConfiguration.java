@@ -2,15 +2,24 @@ package com.lz.logging.config;
 
 import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.LoggerContext;
+import com.lz.logging.actuate.ElasticsearchLoggingEndpoint;
+import com.lz.logging.actuate.ElasticsearchLoggingMetrics;
 import com.lz.logging.core.client.ElasticsearchLogClient;
+import com.lz.logging.core.serializer.LogDocumentSerializer;
 import com.lz.logging.logback.ElasticsearchLogAppender;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 
 /**
  * Elasticsearch Logging 自动配置类
@@ -20,6 +29,8 @@ import org.springframework.context.annotation.Configuration;
  * 2. 创建并配置 ElasticsearchLogAppender
  * 3. 在 Spring Boot 启动完成后，将 Appender 挂载到 Root Logger
  * 4. 在容器关闭时，安全停止 Appender
+ * 5. 类路径上有 Micrometer 时注册指标，有 Actuator 时注册 eslogging 端点
+ * 6. 类路径上有 Spring Cloud Context 时，配置刷新后重新加载级别阈值和采样率
  *
  * 设计原则：
  * - Appender 不作为 @Component
@@ -48,12 +59,13 @@ public class ElasticsearchLoggingAutoConfiguration {
     private static final String APPENDER_NAME = "ELASTICSEARCH";
 
     /**
-     * 创建 Elasticsearch 日志客户端
+     * 创建 Elasticsearch 日志客户端；容器中存在 LogDocumentSerializer 时用它序列化文档
      */
     @Bean
     public ElasticsearchLogClient elasticsearchLogClient(
-            ElasticsearchLoggingProperties properties) {
-        return new ElasticsearchLogClient(properties);
+            ElasticsearchLoggingProperties properties,
+            ObjectProvider<LogDocumentSerializer> serializer) {
+        return new ElasticsearchLogClient(properties, null, serializer.getIfAvailable());
     }
 
     /**
@@ -62,8 +74,9 @@ public class ElasticsearchLoggingAutoConfiguration {
      * 注意：
      * - 这里只做对象构造和基础属性设置
      * - 不在此处 start()
+     * - 容器关闭时先于 ElasticsearchLogClient 调用 stop()，排空流水线中的剩余事件
      */
-    @Bean
+    @Bean(destroyMethod = "stop")
     public ElasticsearchLogAppender elasticsearchLogAppender(
             ElasticsearchLogClient client,
             ElasticsearchLoggingProperties properties) {
@@ -104,4 +117,53 @@ public class ElasticsearchLoggingAutoConfiguration {
             }
         };
     }
+
+    /**
+     * 配置刷新监听器，类路径上有 Spring Cloud Context 时注册
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(name = ElasticsearchLoggingRefreshListener.ENVIRONMENT_CHANGE_EVENT)
+    static class RefreshConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public ElasticsearchLoggingRefreshListener elasticsearchLoggingRefreshListener(
+                Environment environment,
+                ElasticsearchLogAppender appender) {
+            return new ElasticsearchLoggingRefreshListener(environment, appender);
+        }
+    }
+
+    /**
+     * 流水线指标，类路径上有 Micrometer 时注册；由 Actuator 的指标自动配置绑定到注册表
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(MeterBinder.class)
+    static class MetricsConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public ElasticsearchLoggingMetrics elasticsearchLoggingMetrics(
+                ElasticsearchLogClient client,
+                ElasticsearchLogAppender appender) {
+            return new ElasticsearchLoggingMetrics(client, appender);
+        }
+    }
+
+    /**
+     * 流水线实时快照端点，需要引入 Actuator 并暴露 eslogging 端点
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(Endpoint.class)
+    static class EndpointConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        @ConditionalOnAvailableEndpoint
+        public ElasticsearchLoggingEndpoint elasticsearchLoggingEndpoint(
+                ElasticsearchLogClient client,
+                ElasticsearchLogAppender appender) {
+            return new ElasticsearchLoggingEndpoint(client, appender);
+        }
+    }
 }
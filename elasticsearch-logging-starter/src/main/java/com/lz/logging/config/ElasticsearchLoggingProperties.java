@@ -1,8 +1,15 @@
 package com.lz.logging.config;
 
+import com.lz.logging.core.model.MessageMode;
+import com.lz.logging.core.pipeline.OverflowPolicy;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Elasticsearch 日志记录配置属性类
  * <p>该类用于配置与 Elasticsearch 日志记录相关的各项参数，包括连接信息、索引设置、日志级别等。</p>
@@ -30,6 +37,16 @@ public class ElasticsearchLoggingProperties {
      */
     private String index = "app-logs";
 
+    /**
+     * 迟到事件的兜底索引（可含日期占位符，按到达时间计算），为空时所有事件都按自身时间写入对应索引
+     */
+    private String lateEventIndex;
+
+    /**
+     * 事件时间早于当前时间超过该值（毫秒）视为迟到事件，仅在配置了 lateEventIndex 时生效
+     */
+    private long lateEventThreshold = 3600000;
+
     /**
      * 应用名称，自动获取 spring.application.name
      */
@@ -45,6 +62,29 @@ public class ElasticsearchLoggingProperties {
      */
     private String minLevel = "INFO";
 
+    /**
+     * 按 Logger 名称前缀配置的级别阈值，按最长前缀匹配，未匹配时使用 minLevel
+     * 例如：es.logging.logger-levels[com.foo.cache]=WARN
+     */
+    private Map<String, String> loggerLevels = new LinkedHashMap<>();
+
+    /**
+     * 是否启用按 traceId 一致的采样；WARN 及以上级别始终保留
+     */
+    private boolean samplingEnabled = false;
+
+    /**
+     * 按级别配置的采样率（0~1），未配置的级别全部保留
+     * 例如：es.logging.sample-rates.INFO=0.1
+     */
+    private Map<String, Double> sampleRates = new LinkedHashMap<>();
+
+    /**
+     * 按 Logger 名称前缀配置的采样率，按最长前缀匹配，匹配时覆盖按级别配置的采样率
+     * 例如：es.logging.logger-sample-rates[com.foo.access]=0.01
+     */
+    private Map<String, Double> loggerSampleRates = new LinkedHashMap<>();
+
     /**
      * ES 连接超时（毫秒）
      */
@@ -85,6 +125,31 @@ public class ElasticsearchLoggingProperties {
      */
     private int queueSize = 10000;
 
+    /**
+     * 异步队列溢出策略：BLOCK, DROP_NEWEST, DROP_OLDEST, DISCARD_BELOW_LEVEL
+     */
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_NEWEST;
+
+    /**
+     * BLOCK / DISCARD_BELOW_LEVEL 策略下等待队列空间的最长时间（毫秒）
+     */
+    private int overflowBlockTimeout = 100;
+
+    /**
+     * DISCARD_BELOW_LEVEL 策略下的保留级别，低于该级别的事件在队列满时直接丢弃
+     */
+    private String overflowDiscardLevel = "WARN";
+
+    /**
+     * 序列化工作线程数，默认为 CPU 核数的一半
+     */
+    private int serializerThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+    /**
+     * 是否为每个序列化工作线程预分配文档载体并在序列化后清空复用，减少每条事件的对象分配（仅异步模式）
+     */
+    private boolean reuseDocuments = false;
+
     /**
      * 是否启用批量发送
      */
@@ -105,11 +170,218 @@ public class ElasticsearchLoggingProperties {
      */
     private int maxRetries = 3;
 
+    /**
+     * 批量传输方式：high-level 使用 RestHighLevelClient 的 BulkRequest，ndjson 把条目直接写入复用的 NDJSON 缓冲区并通过低级 RestClient 发送
+     */
+    private String bulkTransport = "high-level";
+
+    /**
+     * 批量发送通道数，0 表示按 CPU 核数自动选择（每 8 核一个通道，最多 8 个，且不超过序列化线程数）
+     */
+    private int bulkLanes = 0;
+
+    /**
+     * 是否以 gzip 压缩批量请求体；ndjson 传输下使用池化的 Deflater，并按阈值与级别压缩、统计压缩率和耗时
+     */
+    private boolean compressionEnabled = false;
+
+    /**
+     * 压缩级别 1-9，越大压缩率越高、CPU 开销越大（仅 ndjson 传输）
+     */
+    private int compressionLevel = 3;
+
+    /**
+     * 压缩阈值（字节），小于该值的请求体不压缩（仅 ndjson 传输）
+     */
+    private int compressionThreshold = 16 * 1024;
+
+    /**
+     * 死信索引：条目因 mapping 等文档错误被拒绝时，只含时间戳、级别、消息和错误原因的兜底文档写入该索引，为空时写入原索引
+     */
+    private String deadLetterIndex;
+
+    /**
+     * 单批次最大字节数
+     */
+    private long bulkMaxBytes = 5 * 1024 * 1024;
+
+    /**
+     * 是否启用自适应批量：根据 took、往返耗时和 429 拒绝按 AIMD 调整批次条数、字节数和在途请求数
+     */
+    private boolean adaptiveBulkEnabled = false;
+
+    /**
+     * 自适应批量的批次条数下限
+     */
+    private int adaptiveMinBulkSize = 100;
+
+    /**
+     * 自适应批量的批次条数上限
+     */
+    private int adaptiveMaxBulkSize = 10000;
+
+    /**
+     * 自适应批量的批次字节数下限
+     */
+    private long adaptiveMinBulkBytes = 1024 * 1024;
+
+    /**
+     * 自适应批量的批次字节数上限
+     */
+    private long adaptiveMaxBulkBytes = 20 * 1024 * 1024;
+
+    /**
+     * 自适应批量的在途请求数上限
+     */
+    private int adaptiveMaxConcurrentRequests = 8;
+
+    /**
+     * 自适应批量的目标延迟（毫秒），ES 处理耗时（took）超过该值时收缩
+     */
+    private int adaptiveTargetLatency = 1000;
+
+    /**
+     * 自适应批量的拒绝比例阈值：一个调整周期内被拒绝（429）的条目占发送条目的比例达到该值时减半
+     */
+    private double adaptiveRejectionRatio = 0.01;
+
+    /**
+     * 自适应批量的调整周期（毫秒），每个周期至多调整一次
+     */
+    private int adaptiveAdjustInterval = 5000;
+
+    /**
+     * 是否启用磁盘暂存：ES 不可用时失败或溢出的批次追加到磁盘段文件，恢复后按顺序重放
+     */
+    private boolean spoolEnabled = false;
+
+    /**
+     * 磁盘暂存目录
+     */
+    private String spoolDirectory = System.getProperty("java.io.tmpdir") + java.io.File.separator + "es-logging-spool";
+
+    /**
+     * 单个暂存段文件大小（字节）
+     */
+    private int spoolSegmentSize = 64 * 1024 * 1024;
+
+    /**
+     * 暂存总大小上限（字节），超过时删除最旧的段
+     */
+    private long spoolMaxSize = 1024L * 1024 * 1024;
+
+    /**
+     * 暂存重放检查间隔（毫秒）
+     */
+    private int spoolReplayInterval = 5000;
+
+    /**
+     * 是否启用发送熔断器
+     */
+    private boolean circuitBreakerEnabled = true;
+
+    /**
+     * 熔断器统计失败比例的滑动窗口大小（批次数）
+     */
+    private int circuitBreakerWindowSize = 20;
+
+    /**
+     * 触发熔断的失败比例
+     */
+    private double circuitBreakerFailureRatio = 0.5;
+
+    /**
+     * 慢调用阈值（毫秒），超过该耗时的批次视为失败
+     */
+    private int circuitBreakerSlowCallThreshold = 10000;
+
+    /**
+     * 首次熔断的开启时长（毫秒），之后每次探测失败翻倍
+     */
+    private int circuitBreakerOpenDuration = 5000;
+
+    /**
+     * 熔断开启时长上限（毫秒）
+     */
+    private int circuitBreakerMaxOpenDuration = 60000;
+
     /**
      * 时区 ID，例如 "Asia/Shanghai"，默认使用系统默认时区
      */
     private String zoneId = java.time.ZoneId.systemDefault().getId();
 
+    /**
+     * 时间戳格式：iso 为带时区偏移的 ISO 8601 字符串，epoch_millis 为毫秒时间戳数值
+     */
+    private String timestampFormat = "iso";
+
+    /**
+     * 消息模式：FORMATTED 在调用线程上格式化；LAZY 延迟到序列化线程格式化并携带模板和参数；TEMPLATE 只输出模板和参数
+     */
+    private MessageMode messageMode = MessageMode.FORMATTED;
+
+    /**
+     * MDC 白名单，条目为 key 或 key:field（以 field 为名输出，多个 key 可指向同一 field）；
+     * field 为 traceId、spanId、userId、clientIp、requestPath、requestMethod 时写入同名顶层字段。为空时输出整个 MDC
+     */
+    private List<String> mdcKeys = new ArrayList<>();
+
+    /**
+     * Logger 名称和线程名称各自缓存的预编码条数上限，超出后的新名称按普通字符串写出
+     */
+    private int encodedNameCacheSize = 1024;
+
+    /**
+     * 文档序列化方式：jackson 通过 ObjectMapper 序列化（输出 null 字段，遵循传入 ObjectMapper 的配置），direct 按固定字段顺序直接写出 UTF-8 字节并跳过空字段。
+     * 容器中存在 LogDocumentSerializer Bean 时以其为准
+     */
+    private String documentSerializer = "jackson";
+
+    /**
+     * 每层异常最多输出的栈帧数，0 表示不输出异常堆栈
+     */
+    private int stackTraceDepth = 50;
+
+    /**
+     * Caused by 和 Suppressed 最多嵌套的层数
+     */
+    private int stackTraceCauseDepth = 5;
+
+    /**
+     * 按指纹缓存的已渲染堆栈条数
+     */
+    private int stackTraceCacheSize = 1024;
+
+    /**
+     * 同一索引周期内相同结构的异常只在第一次输出完整堆栈，之后只输出指纹
+     */
+    private boolean stackTraceFingerprintOnly = false;
+
+    /**
+     * 是否在窗口内折叠相同的事件（Logger、消息模板、异常指纹均相同）
+     */
+    private boolean collapseEnabled = false;
+
+    /**
+     * 折叠窗口（毫秒）
+     */
+    private int collapseWindow = 1000;
+
+    /**
+     * 同时跟踪的折叠键数上限，超出后新键的事件不折叠
+     */
+    private int collapseMaxKeys = 1024;
+
+    /**
+     * 每条汇总保留的 MDC 样本数
+     */
+    private int collapseSampleSize = 3;
+
+    /**
+     * 参与折叠的最低级别
+     */
+    private String collapseMinLevel = "ERROR";
+
     /**
      * 并发请求数，0 表示仅允许一个请求执行（同步），1 表示允许一个并发请求
      */
@@ -147,6 +419,22 @@ public class ElasticsearchLoggingProperties {
         this.index = index;
     }
 
+    public String getLateEventIndex() {
+        return lateEventIndex;
+    }
+
+    public void setLateEventIndex(String lateEventIndex) {
+        this.lateEventIndex = lateEventIndex;
+    }
+
+    public long getLateEventThreshold() {
+        return lateEventThreshold;
+    }
+
+    public void setLateEventThreshold(long lateEventThreshold) {
+        this.lateEventThreshold = lateEventThreshold;
+    }
+
     public String getApplicationName() {
         return applicationName;
     }
@@ -171,6 +459,38 @@ public class ElasticsearchLoggingProperties {
         this.minLevel = minLevel;
     }
 
+    public Map<String, String> getLoggerLevels() {
+        return loggerLevels;
+    }
+
+    public void setLoggerLevels(Map<String, String> loggerLevels) {
+        this.loggerLevels = loggerLevels;
+    }
+
+    public boolean isSamplingEnabled() {
+        return samplingEnabled;
+    }
+
+    public void setSamplingEnabled(boolean samplingEnabled) {
+        this.samplingEnabled = samplingEnabled;
+    }
+
+    public Map<String, Double> getSampleRates() {
+        return sampleRates;
+    }
+
+    public void setSampleRates(Map<String, Double> sampleRates) {
+        this.sampleRates = sampleRates;
+    }
+
+    public Map<String, Double> getLoggerSampleRates() {
+        return loggerSampleRates;
+    }
+
+    public void setLoggerSampleRates(Map<String, Double> loggerSampleRates) {
+        this.loggerSampleRates = loggerSampleRates;
+    }
+
     public int getConnectTimeout() {
         return connectTimeout;
     }
@@ -235,6 +555,46 @@ public class ElasticsearchLoggingProperties {
         this.queueSize = queueSize;
     }
 
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    public int getOverflowBlockTimeout() {
+        return overflowBlockTimeout;
+    }
+
+    public void setOverflowBlockTimeout(int overflowBlockTimeout) {
+        this.overflowBlockTimeout = overflowBlockTimeout;
+    }
+
+    public String getOverflowDiscardLevel() {
+        return overflowDiscardLevel;
+    }
+
+    public void setOverflowDiscardLevel(String overflowDiscardLevel) {
+        this.overflowDiscardLevel = overflowDiscardLevel;
+    }
+
+    public int getSerializerThreads() {
+        return serializerThreads;
+    }
+
+    public void setSerializerThreads(int serializerThreads) {
+        this.serializerThreads = serializerThreads;
+    }
+
+    public boolean isReuseDocuments() {
+        return reuseDocuments;
+    }
+
+    public void setReuseDocuments(boolean reuseDocuments) {
+        this.reuseDocuments = reuseDocuments;
+    }
+
     public boolean isBulkEnabled() {
         return bulkEnabled;
     }
@@ -267,6 +627,222 @@ public class ElasticsearchLoggingProperties {
         this.maxRetries = maxRetries;
     }
 
+    public String getBulkTransport() {
+        return bulkTransport;
+    }
+
+    public void setBulkTransport(String bulkTransport) {
+        this.bulkTransport = bulkTransport;
+    }
+
+    public int getBulkLanes() {
+        return bulkLanes;
+    }
+
+    public void setBulkLanes(int bulkLanes) {
+        this.bulkLanes = bulkLanes;
+    }
+
+    public boolean isCompressionEnabled() {
+        return compressionEnabled;
+    }
+
+    public void setCompressionEnabled(boolean compressionEnabled) {
+        this.compressionEnabled = compressionEnabled;
+    }
+
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    public void setCompressionLevel(int compressionLevel) {
+        this.compressionLevel = compressionLevel;
+    }
+
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    public void setCompressionThreshold(int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    public String getDeadLetterIndex() {
+        return deadLetterIndex;
+    }
+
+    public void setDeadLetterIndex(String deadLetterIndex) {
+        this.deadLetterIndex = deadLetterIndex;
+    }
+
+    public long getBulkMaxBytes() {
+        return bulkMaxBytes;
+    }
+
+    public void setBulkMaxBytes(long bulkMaxBytes) {
+        this.bulkMaxBytes = bulkMaxBytes;
+    }
+
+    public boolean isAdaptiveBulkEnabled() {
+        return adaptiveBulkEnabled;
+    }
+
+    public void setAdaptiveBulkEnabled(boolean adaptiveBulkEnabled) {
+        this.adaptiveBulkEnabled = adaptiveBulkEnabled;
+    }
+
+    public int getAdaptiveMinBulkSize() {
+        return adaptiveMinBulkSize;
+    }
+
+    public void setAdaptiveMinBulkSize(int adaptiveMinBulkSize) {
+        this.adaptiveMinBulkSize = adaptiveMinBulkSize;
+    }
+
+    public int getAdaptiveMaxBulkSize() {
+        return adaptiveMaxBulkSize;
+    }
+
+    public void setAdaptiveMaxBulkSize(int adaptiveMaxBulkSize) {
+        this.adaptiveMaxBulkSize = adaptiveMaxBulkSize;
+    }
+
+    public long getAdaptiveMinBulkBytes() {
+        return adaptiveMinBulkBytes;
+    }
+
+    public void setAdaptiveMinBulkBytes(long adaptiveMinBulkBytes) {
+        this.adaptiveMinBulkBytes = adaptiveMinBulkBytes;
+    }
+
+    public long getAdaptiveMaxBulkBytes() {
+        return adaptiveMaxBulkBytes;
+    }
+
+    public void setAdaptiveMaxBulkBytes(long adaptiveMaxBulkBytes) {
+        this.adaptiveMaxBulkBytes = adaptiveMaxBulkBytes;
+    }
+
+    public int getAdaptiveMaxConcurrentRequests() {
+        return adaptiveMaxConcurrentRequests;
+    }
+
+    public void setAdaptiveMaxConcurrentRequests(int adaptiveMaxConcurrentRequests) {
+        this.adaptiveMaxConcurrentRequests = adaptiveMaxConcurrentRequests;
+    }
+
+    public int getAdaptiveTargetLatency() {
+        return adaptiveTargetLatency;
+    }
+
+    public void setAdaptiveTargetLatency(int adaptiveTargetLatency) {
+        this.adaptiveTargetLatency = adaptiveTargetLatency;
+    }
+
+    public int getAdaptiveAdjustInterval() {
+        return adaptiveAdjustInterval;
+    }
+
+    public void setAdaptiveAdjustInterval(int adaptiveAdjustInterval) {
+        this.adaptiveAdjustInterval = adaptiveAdjustInterval;
+    }
+
+    public double getAdaptiveRejectionRatio() {
+        return adaptiveRejectionRatio;
+    }
+
+    public void setAdaptiveRejectionRatio(double adaptiveRejectionRatio) {
+        this.adaptiveRejectionRatio = adaptiveRejectionRatio;
+    }
+
+    public boolean isSpoolEnabled() {
+        return spoolEnabled;
+    }
+
+    public void setSpoolEnabled(boolean spoolEnabled) {
+        this.spoolEnabled = spoolEnabled;
+    }
+
+    public String getSpoolDirectory() {
+        return spoolDirectory;
+    }
+
+    public void setSpoolDirectory(String spoolDirectory) {
+        this.spoolDirectory = spoolDirectory;
+    }
+
+    public int getSpoolSegmentSize() {
+        return spoolSegmentSize;
+    }
+
+    public void setSpoolSegmentSize(int spoolSegmentSize) {
+        this.spoolSegmentSize = spoolSegmentSize;
+    }
+
+    public long getSpoolMaxSize() {
+        return spoolMaxSize;
+    }
+
+    public void setSpoolMaxSize(long spoolMaxSize) {
+        this.spoolMaxSize = spoolMaxSize;
+    }
+
+    public int getSpoolReplayInterval() {
+        return spoolReplayInterval;
+    }
+
+    public void setSpoolReplayInterval(int spoolReplayInterval) {
+        this.spoolReplayInterval = spoolReplayInterval;
+    }
+
+    public boolean isCircuitBreakerEnabled() {
+        return circuitBreakerEnabled;
+    }
+
+    public void setCircuitBreakerEnabled(boolean circuitBreakerEnabled) {
+        this.circuitBreakerEnabled = circuitBreakerEnabled;
+    }
+
+    public int getCircuitBreakerWindowSize() {
+        return circuitBreakerWindowSize;
+    }
+
+    public void setCircuitBreakerWindowSize(int circuitBreakerWindowSize) {
+        this.circuitBreakerWindowSize = circuitBreakerWindowSize;
+    }
+
+    public double getCircuitBreakerFailureRatio() {
+        return circuitBreakerFailureRatio;
+    }
+
+    public void setCircuitBreakerFailureRatio(double circuitBreakerFailureRatio) {
+        this.circuitBreakerFailureRatio = circuitBreakerFailureRatio;
+    }
+
+    public int getCircuitBreakerSlowCallThreshold() {
+        return circuitBreakerSlowCallThreshold;
+    }
+
+    public void setCircuitBreakerSlowCallThreshold(int circuitBreakerSlowCallThreshold) {
+        this.circuitBreakerSlowCallThreshold = circuitBreakerSlowCallThreshold;
+    }
+
+    public int getCircuitBreakerOpenDuration() {
+        return circuitBreakerOpenDuration;
+    }
+
+    public void setCircuitBreakerOpenDuration(int circuitBreakerOpenDuration) {
+        this.circuitBreakerOpenDuration = circuitBreakerOpenDuration;
+    }
+
+    public int getCircuitBreakerMaxOpenDuration() {
+        return circuitBreakerMaxOpenDuration;
+    }
+
+    public void setCircuitBreakerMaxOpenDuration(int circuitBreakerMaxOpenDuration) {
+        this.circuitBreakerMaxOpenDuration = circuitBreakerMaxOpenDuration;
+    }
+
     public String getZoneId() {
         return zoneId;
     }
@@ -275,6 +851,118 @@ public class ElasticsearchLoggingProperties {
         this.zoneId = zoneId;
     }
 
+    public String getTimestampFormat() {
+        return timestampFormat;
+    }
+
+    public void setTimestampFormat(String timestampFormat) {
+        this.timestampFormat = timestampFormat;
+    }
+
+    public MessageMode getMessageMode() {
+        return messageMode;
+    }
+
+    public void setMessageMode(MessageMode messageMode) {
+        this.messageMode = messageMode;
+    }
+
+    public List<String> getMdcKeys() {
+        return mdcKeys;
+    }
+
+    public void setMdcKeys(List<String> mdcKeys) {
+        this.mdcKeys = mdcKeys;
+    }
+
+    public int getEncodedNameCacheSize() {
+        return encodedNameCacheSize;
+    }
+
+    public void setEncodedNameCacheSize(int encodedNameCacheSize) {
+        this.encodedNameCacheSize = encodedNameCacheSize;
+    }
+
+    public String getDocumentSerializer() {
+        return documentSerializer;
+    }
+
+    public void setDocumentSerializer(String documentSerializer) {
+        this.documentSerializer = documentSerializer;
+    }
+
+    public int getStackTraceDepth() {
+        return stackTraceDepth;
+    }
+
+    public void setStackTraceDepth(int stackTraceDepth) {
+        this.stackTraceDepth = stackTraceDepth;
+    }
+
+    public int getStackTraceCauseDepth() {
+        return stackTraceCauseDepth;
+    }
+
+    public void setStackTraceCauseDepth(int stackTraceCauseDepth) {
+        this.stackTraceCauseDepth = stackTraceCauseDepth;
+    }
+
+    public int getStackTraceCacheSize() {
+        return stackTraceCacheSize;
+    }
+
+    public void setStackTraceCacheSize(int stackTraceCacheSize) {
+        this.stackTraceCacheSize = stackTraceCacheSize;
+    }
+
+    public boolean isStackTraceFingerprintOnly() {
+        return stackTraceFingerprintOnly;
+    }
+
+    public void setStackTraceFingerprintOnly(boolean stackTraceFingerprintOnly) {
+        this.stackTraceFingerprintOnly = stackTraceFingerprintOnly;
+    }
+
+    public boolean isCollapseEnabled() {
+        return collapseEnabled;
+    }
+
+    public void setCollapseEnabled(boolean collapseEnabled) {
+        this.collapseEnabled = collapseEnabled;
+    }
+
+    public int getCollapseWindow() {
+        return collapseWindow;
+    }
+
+    public void setCollapseWindow(int collapseWindow) {
+        this.collapseWindow = collapseWindow;
+    }
+
+    public int getCollapseMaxKeys() {
+        return collapseMaxKeys;
+    }
+
+    public void setCollapseMaxKeys(int collapseMaxKeys) {
+        this.collapseMaxKeys = collapseMaxKeys;
+    }
+
+    public int getCollapseSampleSize() {
+        return collapseSampleSize;
+    }
+
+    public void setCollapseSampleSize(int collapseSampleSize) {
+        this.collapseSampleSize = collapseSampleSize;
+    }
+
+    public String getCollapseMinLevel() {
+        return collapseMinLevel;
+    }
+
+    public void setCollapseMinLevel(String collapseMinLevel) {
+        this.collapseMinLevel = collapseMinLevel;
+    }
+
     public int getConcurrentRequests() {
         return concurrentRequests;
     }
@@ -0,0 +1,48 @@
+package com.lz.logging.config;
+
+import com.lz.logging.logback.ElasticsearchLogAppender;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.env.Environment;
+
+/**
+ * 配置刷新时重新加载级别阈值和采样率
+ *
+ * <p>监听 Spring Cloud 的 {@code EnvironmentChangeEvent}（例如 {@code /actuator/refresh} 或配置中心推送），
+ * 从 Environment 重新绑定 {@code es.logging} 配置，并把 min-level、logger-levels、sample-rates、
+ * logger-sample-rates 应用到 Appender。按类名匹配事件，Starter 不依赖 Spring Cloud。</p>
+ *
+ * <p>其余配置（连接、队列、批量发送等）仍需重启生效；启动时未开启 sampling-enabled 的，刷新后也不会开始采样。
+ * 不使用 Spring Cloud 时，可以直接调用 {@link #refresh()} 或 Appender 的 reload 方法。</p>
+ */
+public class ElasticsearchLoggingRefreshListener implements ApplicationListener<ApplicationEvent> {
+
+    static final String ENVIRONMENT_CHANGE_EVENT = "org.springframework.cloud.context.environment.EnvironmentChangeEvent";
+
+    private final Environment environment;
+    private final ElasticsearchLogAppender appender;
+
+    public ElasticsearchLoggingRefreshListener(Environment environment, ElasticsearchLogAppender appender) {
+        this.environment = environment;
+        this.appender = appender;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationEvent event) {
+        if (ENVIRONMENT_CHANGE_EVENT.equals(event.getClass().getName())) {
+            refresh();
+        }
+    }
+
+    /**
+     * 从 Environment 重新绑定配置，并应用可以在运行时调整的部分
+     */
+    public void refresh() {
+        ElasticsearchLoggingProperties properties = Binder.get(environment)
+                .bind("es.logging", ElasticsearchLoggingProperties.class)
+                .orElseGet(ElasticsearchLoggingProperties::new);
+        appender.reloadLevelThresholds(properties.getMinLevel(), properties.getLoggerLevels());
+        appender.reloadSampleRates(properties.getSampleRates(), properties.getLoggerSampleRates());
+    }
+}
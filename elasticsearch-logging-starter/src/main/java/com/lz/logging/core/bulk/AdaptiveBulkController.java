@@ -0,0 +1,356 @@
+package com.lz.logging.core.bulk;
+
+import com.lz.logging.config.ElasticsearchLoggingProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 自适应批量控制器（AIMD）
+ *
+ * <p>根据观测到的 ES 处理耗时（bulk 响应中的 took）、客户端往返耗时和拒绝（429 / EsRejectedExecutionException）
+ * 在运行时调整批次条数、批次字节数和在途请求数，所有取值都限制在配置的上下限内。
+ * 每个调整周期（adaptiveAdjustInterval）汇总一次观测结果并至多调整一次：</p>
+ * <ul>
+ *     <li>被拒绝的条目占本周期发送条目的比例达到 adaptiveRejectionRatio：批次条数、字节数减半，在途请求数减一（乘性减）</li>
+ *     <li>平均 took 超过目标延迟：ES 处理不过来，批次缩小到 3/4，在途请求数减一</li>
+ *     <li>took 正常但往返耗时超过目标：通常是客户端连接池或 IO 线程排队，增加在途请求只会让排队更长，保持不变</li>
+ *     <li>有拒绝但比例低于阈值：保持不变</li>
+ *     <li>一切正常且多数批次是装满后发出的：批次条数、字节数按固定步长增加（加性增）；
+ *     若发送线程曾等待在途许可，在途请求数加一</li>
+ * </ul>
+ *
+ * <p>未启用自适应时，取值固定为 bulkSize / bulkMaxBytes / concurrentRequests。
+ * 当前取值和最近的调整历史可通过 getter 查询。</p>
+ */
+public class AdaptiveBulkController {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveBulkController.class);
+
+    /**
+     * 保留的调整历史条数
+     */
+    private static final int HISTORY_SIZE = 32;
+
+    /**
+     * 加性增的步数：每次增加 (max - min) / ADDITIVE_STEPS
+     */
+    private static final int ADDITIVE_STEPS = 20;
+
+    private final boolean enabled;
+    private final int minActions;
+    private final int maxActions;
+    private final long minBytes;
+    private final long maxBytes;
+    private final int minConcurrency;
+    private final int maxConcurrency;
+    private final long targetLatencyNanos;
+    private final double rejectionRatio;
+    private final long adjustIntervalNanos;
+
+    private volatile int bulkActions;
+    private volatile long bulkBytes;
+    private volatile int concurrency;
+
+    /* 当前周期的观测值，由实例锁保护 */
+    private long periodStartNanos = System.nanoTime();
+    private int periodBulks;
+    private int periodFullBulks;
+    private long periodItems;
+    private long periodRejectedItems;
+    private long periodTookMillis;
+    private long periodRoundTripNanos;
+    private int periodPermitWaits;
+
+    private final Deque<Adjustment> history = new ArrayDeque<>(HISTORY_SIZE);
+
+    public AdaptiveBulkController(ElasticsearchLoggingProperties properties) {
+        this.enabled = properties.isAdaptiveBulkEnabled();
+        int initialConcurrency = Math.max(1, properties.getConcurrentRequests());
+        if (enabled) {
+            this.minActions = Math.max(1, properties.getAdaptiveMinBulkSize());
+            this.maxActions = Math.max(minActions, properties.getAdaptiveMaxBulkSize());
+            this.minBytes = Math.max(1, properties.getAdaptiveMinBulkBytes());
+            this.maxBytes = Math.max(minBytes, properties.getAdaptiveMaxBulkBytes());
+            this.minConcurrency = 1;
+            this.maxConcurrency = Math.max(initialConcurrency, properties.getAdaptiveMaxConcurrentRequests());
+        } else {
+            this.minActions = this.maxActions = Math.max(1, properties.getBulkSize());
+            this.minBytes = this.maxBytes = properties.getBulkMaxBytes();
+            this.minConcurrency = this.maxConcurrency = initialConcurrency;
+        }
+        this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(properties.getAdaptiveTargetLatency());
+        this.rejectionRatio = properties.getAdaptiveRejectionRatio();
+        this.adjustIntervalNanos = TimeUnit.MILLISECONDS.toNanos(properties.getAdaptiveAdjustInterval());
+        this.bulkActions = clamp(properties.getBulkSize(), minActions, maxActions);
+        this.bulkBytes = clamp(properties.getBulkMaxBytes(), minBytes, maxBytes);
+        this.concurrency = clamp(initialConcurrency, minConcurrency, maxConcurrency);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 当前批次条数上限
+     */
+    public int getBulkActions() {
+        return bulkActions;
+    }
+
+    /**
+     * 当前批次字节数上限
+     */
+    public long getBulkBytes() {
+        return bulkBytes;
+    }
+
+    /**
+     * 当前在途请求数上限
+     */
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * 批次条数可能达到的最大值
+     */
+    public int getMaxBulkActions() {
+        return maxActions;
+    }
+
+    /**
+     * 批次字节数可能达到的最大值
+     */
+    public long getMaxBulkBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * 最近的调整历史，按时间先后排列
+     */
+    public synchronized List<Adjustment> getHistory() {
+        return new ArrayList<>(history);
+    }
+
+    /**
+     * 记录一个收到响应的批次
+     *
+     * @param items          批次条目数
+     * @param tookMillis     ES 处理耗时
+     * @param roundTripNanos 客户端往返耗时
+     * @param rejectedItems  被拒绝（429）的条目数
+     * @param full           批次是否因达到条数或字节上限而发出
+     */
+    public void onBulkCompleted(int items, long tookMillis, long roundTripNanos, int rejectedItems, boolean full) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            periodBulks++;
+            periodItems += items;
+            periodRejectedItems += rejectedItems;
+            periodTookMillis += tookMillis;
+            periodRoundTripNanos += roundTripNanos;
+            if (full) {
+                periodFullBulks++;
+            }
+            maybeAdjust();
+        }
+    }
+
+    /**
+     * 记录一个整体失败的批次
+     *
+     * @param items          批次条目数
+     * @param roundTripNanos 客户端往返耗时
+     * @param rejected       是否因 429 / EsRejectedExecutionException 被拒绝，被拒绝时所有条目都计为被拒绝
+     */
+    public void onBulkFailed(int items, long roundTripNanos, boolean rejected) {
+        if (!enabled || !rejected) {
+            return;
+        }
+        synchronized (this) {
+            periodBulks++;
+            periodItems += items;
+            periodRejectedItems += items;
+            periodRoundTripNanos += roundTripNanos;
+            maybeAdjust();
+        }
+    }
+
+    /**
+     * 记录发送线程因在途请求数达到上限而等待
+     */
+    public void onPermitWait() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            periodPermitWaits++;
+        }
+    }
+
+    private void maybeAdjust() {
+        long now = System.nanoTime();
+        if (now - periodStartNanos < adjustIntervalNanos || periodBulks == 0) {
+            return;
+        }
+
+        long avgTookNanos = TimeUnit.MILLISECONDS.toNanos(periodTookMillis) / periodBulks;
+        long avgRoundTripNanos = periodRoundTripNanos / periodBulks;
+        int actions = bulkActions;
+        long bytes = bulkBytes;
+        int inFlight = concurrency;
+        String reason;
+
+        if (periodRejectedItems > 0 && periodRejectedItems >= rejectionRatio * periodItems) {
+            reason = "rejected";
+            actions /= 2;
+            bytes /= 2;
+            inFlight -= 1;
+        } else if (avgTookNanos > targetLatencyNanos) {
+            reason = "slow-es";
+            actions = actions * 3 / 4;
+            bytes = bytes * 3 / 4;
+            inFlight -= 1;
+        } else if (avgRoundTripNanos > targetLatencyNanos) {
+            // 不增加在途请求，避免加剧客户端排队；也不增大批次
+            reason = "slow-round-trip";
+        } else if (periodRejectedItems > 0) {
+            // 少量拒绝（低于阈值）：不收缩，但也不增长
+            reason = "minor-rejections";
+        } else {
+            reason = "healthy";
+            if (periodFullBulks * 2 >= periodBulks) {
+                actions += Math.max(1, (maxActions - minActions) / ADDITIVE_STEPS);
+                bytes += Math.max(1, (maxBytes - minBytes) / ADDITIVE_STEPS);
+            }
+            if (periodPermitWaits > 0) {
+                inFlight += 1;
+            }
+        }
+
+        actions = clamp(actions, minActions, maxActions);
+        bytes = clamp(bytes, minBytes, maxBytes);
+        inFlight = clamp(inFlight, minConcurrency, maxConcurrency);
+
+        if (actions != bulkActions || bytes != bulkBytes || inFlight != concurrency) {
+            bulkActions = actions;
+            bulkBytes = bytes;
+            concurrency = inFlight;
+            Adjustment adjustment = new Adjustment(System.currentTimeMillis(), reason, actions, bytes, inFlight,
+                    TimeUnit.NANOSECONDS.toMillis(avgTookNanos), TimeUnit.NANOSECONDS.toMillis(avgRoundTripNanos),
+                    periodRejectedItems, periodItems);
+            if (history.size() == HISTORY_SIZE) {
+                history.removeFirst();
+            }
+            history.addLast(adjustment);
+            logger.debug("Adjusted bulk settings: {}", adjustment);
+        }
+
+        periodStartNanos = now;
+        periodBulks = 0;
+        periodFullBulks = 0;
+        periodItems = 0;
+        periodRejectedItems = 0;
+        periodTookMillis = 0;
+        periodRoundTripNanos = 0;
+        periodPermitWaits = 0;
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private static long clamp(long value, long min, long max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    /**
+     * 一次调整记录
+     */
+    public static final class Adjustment {
+        private final long timestamp;
+        private final String reason;
+        private final int bulkActions;
+        private final long bulkBytes;
+        private final int concurrency;
+        private final long avgTookMillis;
+        private final long avgRoundTripMillis;
+        private final long rejectedItems;
+        private final long items;
+
+        Adjustment(long timestamp, String reason, int bulkActions, long bulkBytes, int concurrency,
+                   long avgTookMillis, long avgRoundTripMillis, long rejectedItems, long items) {
+            this.timestamp = timestamp;
+            this.reason = reason;
+            this.bulkActions = bulkActions;
+            this.bulkBytes = bulkBytes;
+            this.concurrency = concurrency;
+            this.avgTookMillis = avgTookMillis;
+            this.avgRoundTripMillis = avgRoundTripMillis;
+            this.rejectedItems = rejectedItems;
+            this.items = items;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        public int getBulkActions() {
+            return bulkActions;
+        }
+
+        public long getBulkBytes() {
+            return bulkBytes;
+        }
+
+        public int getConcurrency() {
+            return concurrency;
+        }
+
+        public long getAvgTookMillis() {
+            return avgTookMillis;
+        }
+
+        public long getAvgRoundTripMillis() {
+            return avgRoundTripMillis;
+        }
+
+        /**
+         * 调整周期内被拒绝的条目数
+         */
+        public long getRejectedItems() {
+            return rejectedItems;
+        }
+
+        /**
+         * 调整周期内发送的条目数
+         */
+        public long getItems() {
+            return items;
+        }
+
+        @Override
+        public String toString() {
+            return "Adjustment{reason=" + reason
+                    + ", bulkActions=" + bulkActions
+                    + ", bulkBytes=" + bulkBytes
+                    + ", concurrency=" + concurrency
+                    + ", avgTookMillis=" + avgTookMillis
+                    + ", avgRoundTripMillis=" + avgRoundTripMillis
+                    + ", rejectedItems=" + rejectedItems
+                    + ", items=" + items + '}';
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.lz.logging.core.bulk;
+
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.xcontent.XContentType;
+
+/**
+ * 待发送的批量条目：目标索引 + 文档 ID + 已序列化的 JSON 文档
+ *
+ * <p>文档 ID 为空时由 Elasticsearch 自动生成；启用磁盘暂存时会在首次发送前分配确定的 ID，
+ * 使暂存后的重放是幂等的。</p>
+ *
+ * <p>条目同时携带原始事件的时间戳、级别和消息，条目因 mapping 错误被拒绝时据此生成精简的兜底文档；
+ * 从磁盘暂存读回的条目不带这些信息。发送次数只由发送线程和重试线程读写。</p>
+ */
+public final class BulkItem {
+
+    private final String index;
+    private final String id;
+    private final byte[] source;
+    private final long timestamp;
+    private final String level;
+    private final String message;
+
+    private int attempts;
+
+    public BulkItem(String index, byte[] source) {
+        this(index, null, source);
+    }
+
+    public BulkItem(String index, String id, byte[] source) {
+        this(index, id, source, 0L, null, null);
+    }
+
+    /**
+     * @param timestamp 原始事件时间（毫秒），未知时为 0
+     * @param level     原始事件级别，可为 null
+     * @param message   原始事件消息，可为 null
+     */
+    public BulkItem(String index, String id, byte[] source, long timestamp, String level, String message) {
+        this.index = index;
+        this.id = id;
+        this.source = source;
+        this.timestamp = timestamp;
+        this.level = level;
+        this.message = message;
+    }
+
+    public String getIndex() {
+        return index;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public byte[] getSource() {
+        return source;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getLevel() {
+        return level;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * 已发送次数
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * 记录一次发送，返回累计发送次数
+     */
+    public int incrementAttempts() {
+        return ++attempts;
+    }
+
+    public int sizeInBytes() {
+        return source.length;
+    }
+
+    public IndexRequest toIndexRequest() {
+        IndexRequest request = new IndexRequest(index).source(source, XContentType.JSON);
+        if (id != null) {
+            request.id(id);
+        }
+        return request;
+    }
+}
@@ -0,0 +1,26 @@
+package com.lz.logging.core.bulk;
+
+/**
+ * 批次结果的观察者，用于导出往返耗时、took、批次大小等分布类指标
+ *
+ * <p>在传输的回调线程上调用，实现应当只做计数或记录，不能阻塞，也不应抛出异常。</p>
+ */
+public interface BulkListener {
+
+    /**
+     * 收到批量响应，包括部分条目失败的情况
+     *
+     * @param items          批次条目数
+     * @param bytes          批次中文档的字节数（不含 action 行，压缩前）
+     * @param roundTripNanos 从发出请求到收到响应的耗时
+     * @param result         响应结果，含 ES 处理耗时和失败条目
+     */
+    void onBulkCompleted(int items, long bytes, long roundTripNanos, BulkResult result);
+
+    /**
+     * 请求最终失败（不再重试整个请求）
+     *
+     * @param roundTripNanos 最后一次发送的耗时
+     */
+    void onBulkFailed(int items, long bytes, long roundTripNanos, Exception failure);
+}
@@ -0,0 +1,75 @@
+package com.lz.logging.core.bulk;
+
+import org.elasticsearch.rest.RestStatus;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 一次批量请求的精简结果：ES 处理耗时、条目数和失败条目
+ *
+ * <p>只保留发送器需要的信息，与具体的传输方式无关。</p>
+ */
+public final class BulkResult {
+
+    private final long tookMillis;
+    private final int itemCount;
+    private final List<ItemFailure> failures;
+
+    public BulkResult(long tookMillis, int itemCount, List<ItemFailure> failures) {
+        this.tookMillis = tookMillis;
+        this.itemCount = itemCount;
+        this.failures = failures != null ? failures : Collections.emptyList();
+    }
+
+    public long getTookMillis() {
+        return tookMillis;
+    }
+
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+
+    /**
+     * 失败条目，按在批次中的位置排列
+     */
+    public List<ItemFailure> getFailures() {
+        return failures;
+    }
+
+    /**
+     * 单个失败条目
+     */
+    public static final class ItemFailure {
+        private final int position;
+        private final RestStatus status;
+        private final String message;
+
+        /**
+         * @param position 条目在批次中的位置
+         * @param status   条目的响应状态
+         * @param message  错误类型与原因
+         */
+        public ItemFailure(int position, RestStatus status, String message) {
+            this.position = position;
+            this.status = status;
+            this.message = message;
+        }
+
+        public int getPosition() {
+            return position;
+        }
+
+        public RestStatus getStatus() {
+            return status;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
@@ -0,0 +1,913 @@
+package com.lz.logging.core.bulk;
+
+import com.lz.logging.config.ElasticsearchLoggingProperties;
+import com.lz.logging.core.client.CircuitBreaker;
+import com.lz.logging.core.pipeline.RingBuffer;
+import com.lz.logging.core.spool.DiskSpool;
+import com.lz.logging.core.util.TimestampEncoder;
+import com.lz.logging.core.util.Utils;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.bulk.BackoffPolicy;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.rest.RestStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 批量发送阶段
+ *
+ * <p>流水线的最后一个阶段：序列化工作线程把 {@link BulkItem} 写入有界队列，
+ * 由单个发送线程组装批次并通过 {@link BulkTransport} 异步发送（bulkTransport 配置为 ndjson 时使用
+ * {@link NdjsonBulkTransport}，否则使用 {@link HighLevelBulkTransport}）。</p>
+ *
+ * <ul>
+ *     <li>条目按目标索引分组成批，每个批次只写一个索引；批次在条数或字节数达到上限、
+ *     或距首条入批超过 bulkInterval 时发送，同时打开的批次数超过上限时先发送最早的一个</li>
+ *     <li>同时在途的请求数受上限限制，达到上限时发送线程等待，队列随之写满，从而把背压传导给上游</li>
+ *     <li>批次条数、字节数和在途请求数上限由 {@link AdaptiveBulkController} 提供，每个批次都重新读取；
+ *     每个批次的 took、往返耗时和拒绝情况都会反馈给它</li>
+ *     <li>整个请求被拒绝（429 / EsRejectedExecutionException）时按指数退避重试，最多 maxRetries 次</li>
+ *     <li>部分条目失败时逐条处理：被限流或遇到临时分片故障（429 / 5xx）的条目带抖动延迟后重新入队，
+ *     每个条目最多重发 maxRetries 次；mapping 等文档错误（400）的条目改为发送只含时间戳、级别、消息和错误原因的
+ *     兜底文档（死信）；其余失败条目丢弃并计数</li>
+ *     <li>配置了 {@link DiskSpool} 时，最终失败的批次和放不进队列的条目写入磁盘暂存，而不是丢弃或等待</li>
+ *     <li>关闭时仍未执行的重试不再发送，其条目写入暂存或计为失败</li>
+ *     <li>配置了 {@link CircuitBreaker} 时，每个批次的结果和耗时都会反馈给熔断器；熔断期间批次不发送，
+ *     写入暂存或直接丢弃并计数；半开状态下探测批次在途时，其余批次暂缓发送，探测有结果后再发送或丢弃</li>
+ * </ul>
+ */
+public class BulkSender {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkSender.class);
+
+    /**
+     * 条目重试的基础延迟与最大延迟（毫秒）
+     */
+    private static final long ITEM_RETRY_BASE_MILLIS = 100;
+    private static final long ITEM_RETRY_MAX_MILLIS = 10_000;
+
+    /**
+     * 兜底文档中消息和错误原因的最大长度
+     */
+    private static final int DEAD_LETTER_MESSAGE_LIMIT = 1024;
+
+    /**
+     * 同时打开（按目标索引分组、尚未发送）的批次数上限
+     */
+    private static final int MAX_OPEN_BATCHES = 8;
+
+    /**
+     * 队列持续有条目时，每取出这么多条检查一次批次是否到期
+     */
+    private static final int DEADLINE_CHECK_ITEMS = 64;
+
+    /**
+     * 队列满时写入方等待空间的休眠时间（纳秒）
+     */
+    private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    /**
+     * 有未发送或暂缓的批次时，发送线程空闲退避的上限（纳秒），实际上限不超过 bulkInterval 的 1/8
+     */
+    private static final long MAX_BATCH_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    /**
+     * 没有任何待处理的批次时，发送线程单次休眠的上限（纳秒）；新条目、flush 和关闭都会立即唤醒它
+     */
+    private static final long MAX_IDLE_PARK_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final BulkTransport transport;
+    private final BulkCompressor compressor;
+    private final RingBuffer<BulkItem> queue;
+    private final long flushIntervalNanos;
+    private final long maxBatchParkNanos;
+    private final AdaptiveBulkController controller;
+    private final ResizableSemaphore inFlight;
+    private final BackoffPolicy backoffPolicy;
+    private final ScheduledExecutorService retryScheduler;
+    private final AtomicLong executionIdGenerator = new AtomicLong();
+    private final Thread senderThread;
+    private final DiskSpool spool;
+    private final CircuitBreaker circuitBreaker;
+    private final int maxItemRetries;
+    private final String deadLetterIndex;
+    private final TimestampEncoder timestampEncoder;
+
+    /**
+     * 熔断期间未发送而被丢弃的条目数
+     */
+    private final LongAdder circuitBreakerDroppedItems = new LongAdder();
+
+    /**
+     * 单条失败后重新入队的条目数
+     */
+    private final LongAdder retriedItems = new LongAdder();
+
+    /**
+     * 因文档错误改发兜底文档的条目数
+     */
+    private final LongAdder deadLetteredItems = new LongAdder();
+
+    /**
+     * 单条失败且最终未能发送（也未写入暂存）的条目数
+     */
+    private final LongAdder failedItems = new LongAdder();
+
+    /**
+     * 收到响应的批次数与条目数
+     */
+    private final LongAdder sentBatches = new LongAdder();
+    private final LongAdder sentItems = new LongAdder();
+
+    /**
+     * 最终失败（重试耗尽或不可重试）的批次数
+     */
+    private final LongAdder failedBatches = new LongAdder();
+
+    /**
+     * 按响应状态统计的单条失败次数，每次发送分别计数
+     */
+    private final Map<RestStatus, LongAdder> itemFailures = new ConcurrentHashMap<>();
+
+    private volatile BulkListener listener;
+
+    /**
+     * 已安排、尚未执行的重试（整批重试和单条重新入队）
+     */
+    private final Set<ScheduledRetry> pendingRetries = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 探测批次在途期间暂缓发送的批次及其条目总数，只由发送线程访问
+     */
+    private final ArrayDeque<List<BulkItem>> heldBatches = new ArrayDeque<>();
+    private int heldItems;
+
+    /**
+     * 在途许可的当前总数，只由发送线程修改
+     */
+    private volatile int inFlightLimit;
+
+    private volatile boolean running;
+    private volatile boolean flushRequested;
+
+    /**
+     * 发送线程是否已休眠或即将休眠；写入方只在为 true 时唤醒它
+     */
+    private volatile boolean parked;
+
+    public BulkSender(RestHighLevelClient client, ElasticsearchLoggingProperties properties) {
+        this(client, properties, null, null);
+    }
+
+    /**
+     * @param spool          磁盘暂存，可为 null
+     * @param circuitBreaker 熔断器，可为 null
+     */
+    public BulkSender(RestHighLevelClient client,
+                      ElasticsearchLoggingProperties properties,
+                      DiskSpool spool,
+                      CircuitBreaker circuitBreaker) {
+        this(client, properties, spool, circuitBreaker, "es-log-bulk");
+    }
+
+    /**
+     * @param name 线程名前缀，发送线程和重试线程分别命名为 name-sender、name-retry
+     */
+    public BulkSender(RestHighLevelClient client,
+                      ElasticsearchLoggingProperties properties,
+                      DiskSpool spool,
+                      CircuitBreaker circuitBreaker,
+                      String name) {
+        this.spool = spool;
+        this.circuitBreaker = circuitBreaker;
+        this.controller = new AdaptiveBulkController(properties);
+        boolean ndjson = "ndjson".equalsIgnoreCase(properties.getBulkTransport());
+        // high-level 传输的压缩由 RestClientBuilder 负责，没有阈值和统计
+        this.compressor = ndjson && properties.isCompressionEnabled()
+                ? new BulkCompressor(properties.getCompressionLevel(), properties.getCompressionThreshold())
+                : null;
+        this.transport = ndjson
+                ? new NdjsonBulkTransport(client.getLowLevelClient(), controller.getMaxBulkBytes() * 2, compressor)
+                : new HighLevelBulkTransport(client);
+        this.queue = new RingBuffer<>(controller.getMaxBulkActions() * 2);
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(properties.getBulkInterval());
+        this.maxBatchParkNanos = Math.max(1000, Math.min(MAX_BATCH_PARK_NANOS, flushIntervalNanos / 8));
+        // 与 BulkProcessor 语义保持一致：0 表示同一时刻只有一个请求在途
+        this.inFlightLimit = controller.getConcurrency();
+        this.inFlight = new ResizableSemaphore(inFlightLimit);
+        this.maxItemRetries = Math.max(0, properties.getMaxRetries());
+        this.deadLetterIndex = properties.getDeadLetterIndex();
+        this.timestampEncoder = new TimestampEncoder(TimestampEncoder.Format.of(properties.getTimestampFormat()),
+                Utils.toZoneId(properties.getZoneId()));
+        this.backoffPolicy = BackoffPolicy.exponentialBackoff(
+                TimeValue.timeValueMillis(100), properties.getMaxRetries());
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, name + "-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.senderThread = new Thread(this::sendLoop, name + "-sender");
+        this.senderThread.setDaemon(true);
+    }
+
+    public void start() {
+        running = true;
+        senderThread.start();
+    }
+
+    /**
+     * 写入一个待发送条目；队列已满时写入磁盘暂存，未配置暂存则等待空间，以此向上游施加背压
+     *
+     * @return 成功写入队列或暂存返回 true，发送器已关闭返回 false
+     */
+    public boolean add(BulkItem item) {
+        while (running) {
+            if (queue.offer(item)) {
+                wakeSender();
+                return true;
+            }
+            if (spool != null) {
+                return spool.append(item) > 0;
+            }
+            LockSupport.parkNanos(this, PARK_NANOS);
+        }
+        return false;
+    }
+
+    /**
+     * 停止接收新条目，发送剩余批次并等待所有在途请求完成
+     *
+     * @return 在超时前全部完成返回 true
+     */
+    public boolean awaitClose(long timeout, TimeUnit unit) throws InterruptedException {
+        signalClose();
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+        senderThread.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+
+        int permits = inFlightLimit;
+        boolean completed = !senderThread.isAlive()
+                && inFlight.tryAcquire(permits, Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        if (completed) {
+            inFlight.release(permits);
+        }
+        retryScheduler.shutdownNow();
+        int abandoned = abandonPendingRetries();
+        if (abandoned > 0) {
+            logger.warn("Bulk sender closed with {} documents still waiting for retry", abandoned);
+        }
+        transport.close();
+        return completed;
+    }
+
+    /**
+     * 通知发送线程停止接收新条目并发送剩余批次，不等待完成
+     */
+    void signalClose() {
+        running = false;
+        LockSupport.unpark(senderThread);
+    }
+
+    /**
+     * 立即发送当前已入队的条目，不等待 bulkInterval 到期
+     */
+    public void flush() {
+        flushRequested = true;
+        wakeSender();
+    }
+
+    /**
+     * 当前排队等待组装批次的条目数
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * 批次条数、字节数和在途请求数的控制器，可查询当前取值和调整历史
+     */
+    public AdaptiveBulkController getController() {
+        return controller;
+    }
+
+    /**
+     * 请求体压缩器（压缩率与耗时统计），未启用 ndjson 传输的压缩时为 null
+     */
+    public BulkCompressor getCompressor() {
+        return compressor;
+    }
+
+    /**
+     * 熔断期间未发送而被丢弃的条目总数
+     */
+    public long getCircuitBreakerDroppedItems() {
+        return circuitBreakerDroppedItems.sum();
+    }
+
+    /**
+     * 单条失败后重新入队的条目总数
+     */
+    public long getRetriedItems() {
+        return retriedItems.sum();
+    }
+
+    /**
+     * 因文档错误改发兜底文档的条目总数
+     */
+    public long getDeadLetteredItems() {
+        return deadLetteredItems.sum();
+    }
+
+    /**
+     * 单条失败且最终未能发送的条目总数
+     */
+    public long getFailedItems() {
+        return failedItems.sum();
+    }
+
+    /**
+     * 收到响应的批次总数
+     */
+    public long getSentBatches() {
+        return sentBatches.sum();
+    }
+
+    /**
+     * 收到响应的批次中的条目总数（含单条失败的条目）
+     */
+    public long getSentItems() {
+        return sentItems.sum();
+    }
+
+    /**
+     * 最终失败的批次总数
+     */
+    public long getFailedBatches() {
+        return failedBatches.sum();
+    }
+
+    /**
+     * 按响应状态统计的单条失败次数快照
+     */
+    public Map<RestStatus, Long> getItemFailures() {
+        Map<RestStatus, Long> snapshot = new EnumMap<>(RestStatus.class);
+        itemFailures.forEach((status, count) -> snapshot.put(status, count.sum()));
+        return snapshot;
+    }
+
+    /**
+     * 设置批次结果的观察者，为 null 时不通知
+     */
+    public void setListener(BulkListener listener) {
+        this.listener = listener;
+    }
+
+    /* ================= 发送线程 ================= */
+
+    private void sendLoop() {
+        List<PendingBatch> open = new ArrayList<>(MAX_OPEN_BATCHES);
+        int sinceDeadlineCheck = 0;
+        long idleParkNanos = 0;
+        while (true) {
+            if (!heldBatches.isEmpty()) {
+                releaseHeldBatches();
+            }
+            BulkItem item = queue.poll();
+            if (item != null) {
+                idleParkNanos = 0;
+                PendingBatch batch = batchFor(open, item.getIndex());
+                batch.add(item);
+                if (batch.items.size() >= controller.getBulkActions() || batch.bytes >= controller.getBulkBytes()) {
+                    open.remove(batch);
+                    execute(batch.items, true);
+                }
+                // 队列一直不空时也要按时发送写入较少的索引的批次，不能只在空闲时检查
+                if (++sinceDeadlineCheck >= DEADLINE_CHECK_ITEMS) {
+                    sinceDeadlineCheck = 0;
+                    sendDueBatches(open, false);
+                }
+                continue;
+            }
+
+            if (!running && queue.isEmpty()) {
+                for (PendingBatch batch : open) {
+                    execute(batch.items, false);
+                }
+                open.clear();
+                // 暂缓的批次等探测结果出来后再发送
+                if (heldBatches.isEmpty()) {
+                    return;
+                }
+                idleParkNanos = nextParkNanos(idleParkNanos, maxBatchParkNanos);
+                LockSupport.parkNanos(this, idleParkNanos);
+                continue;
+            }
+
+            if (!open.isEmpty()) {
+                sinceDeadlineCheck = 0;
+                if (sendDueBatches(open, flushRequested)) {
+                    idleParkNanos = 0;
+                    continue;
+                }
+            } else {
+                // 队列已空且没有未发送的批次，本次 flush 完成
+                flushRequested = false;
+            }
+            // 有批次等待到期或探测结果时按退避上限轮询，否则等待写入方唤醒
+            boolean pending = !open.isEmpty() || !heldBatches.isEmpty();
+            idleParkNanos = nextParkNanos(idleParkNanos, pending ? maxBatchParkNanos : MAX_IDLE_PARK_NANOS);
+            parkIdle(idleParkNanos);
+        }
+    }
+
+    /**
+     * 空闲退避：从 1 微秒开始逐次翻倍，不超过 max
+     */
+    private static long nextParkNanos(long current, long max) {
+        return current == 0 ? Math.min(1000, max) : Math.min(current << 1, max);
+    }
+
+    /**
+     * 先发布 parked 再复查队列和 flush 请求，与写入方"先入队再读 parked"配合，不会错过唤醒
+     */
+    private void parkIdle(long nanos) {
+        parked = true;
+        if (running && !flushRequested && queue.isEmpty()) {
+            LockSupport.parkNanos(this, nanos);
+        }
+        parked = false;
+    }
+
+    /**
+     * 唤醒休眠中的发送线程；发送线程忙碌时不调用 unpark
+     */
+    private void wakeSender() {
+        if (parked) {
+            LockSupport.unpark(senderThread);
+        }
+    }
+
+    /**
+     * 发送已到期的批次，flush 为 true 时发送全部打开的批次
+     *
+     * @return 是否发送了批次
+     */
+    private boolean sendDueBatches(List<PendingBatch> open, boolean flush) {
+        long now = System.nanoTime();
+        boolean sent = false;
+        for (Iterator<PendingBatch> it = open.iterator(); it.hasNext(); ) {
+            PendingBatch batch = it.next();
+            if (flush || now - batch.deadline >= 0) {
+                it.remove();
+                execute(batch.items, false);
+                sent = true;
+            }
+        }
+        return sent;
+    }
+
+    /**
+     * 查找目标索引对应的未发送批次；不存在时新建，打开的批次数达到上限时先发送最早的一个
+     */
+    private PendingBatch batchFor(List<PendingBatch> open, String index) {
+        for (int i = 0; i < open.size(); i++) {
+            PendingBatch batch = open.get(i);
+            // 索引名来自按时间桶缓存的解析结果，通常是同一个实例
+            if (batch.index == index || batch.index.equals(index)) {
+                return batch;
+            }
+        }
+        if (open.size() >= MAX_OPEN_BATCHES) {
+            execute(open.remove(0).items, false);
+        }
+        PendingBatch batch = new PendingBatch(index, controller.getBulkActions(),
+                System.nanoTime() + flushIntervalNanos);
+        open.add(batch);
+        return batch;
+    }
+
+    /**
+     * @param full 批次是否因达到条数或字节上限而发出
+     */
+    private void execute(List<BulkItem> items, boolean full) {
+        CircuitBreaker.Permission permission = CircuitBreaker.Permission.CALL;
+        if (circuitBreaker != null) {
+            permission = circuitBreaker.tryAcquirePermission();
+            if (permission == CircuitBreaker.Permission.DENIED) {
+                if (circuitBreaker.isProbeInFlight() && heldItems + items.size() <= queue.capacity()) {
+                    heldBatches.add(items);
+                    heldItems += items.size();
+                } else if (spool != null) {
+                    spool.append(items);
+                } else {
+                    circuitBreakerDroppedItems.add(items.size());
+                }
+                return;
+            }
+        }
+
+        long executionId = executionIdGenerator.incrementAndGet();
+        long bytes = 0;
+        for (BulkItem item : items) {
+            item.incrementAttempts();
+            bytes += item.sizeInBytes();
+        }
+        resizeInFlight();
+        if (!inFlight.tryAcquire()) {
+            controller.onPermitWait();
+            inFlight.acquireUninterruptibly();
+        }
+        doExecute(executionId, items, bytes, full, permission, backoffPolicy.iterator());
+    }
+
+    /**
+     * 探测有结果后重新处理暂缓的批次：熔断器已关闭则发送，重新熔断则写入暂存或丢弃；
+     * 仍在半开状态时，第一个批次成为新的探测批次，其余继续暂缓
+     */
+    private void releaseHeldBatches() {
+        if (circuitBreaker.isProbeInFlight()) {
+            return;
+        }
+        for (int i = heldBatches.size(); i > 0; i--) {
+            List<BulkItem> items = heldBatches.poll();
+            heldItems -= items.size();
+            execute(items, false);
+        }
+    }
+
+    /**
+     * 按控制器的当前取值调整在途许可总数；缩减时许可可能暂时为负，在途请求完成后自然恢复
+     */
+    private void resizeInFlight() {
+        int target = controller.getConcurrency();
+        int delta = target - inFlightLimit;
+        if (delta > 0) {
+            inFlight.release(delta);
+        } else if (delta < 0) {
+            inFlight.reducePermits(-delta);
+        }
+        inFlightLimit = target;
+    }
+
+    private void doExecute(long executionId, List<BulkItem> items, long bytes, boolean full,
+                           CircuitBreaker.Permission permission, Iterator<TimeValue> backoff) {
+        long startNanos = System.nanoTime();
+        try {
+            transport.send(items, new BulkTransport.Listener() {
+                @Override
+                public void onResponse(BulkResult response) {
+                    // 统计和单条处理完成后再归还许可，awaitClose 返回时计数已是最终值
+                    try {
+                        long elapsedNanos = System.nanoTime() - startNanos;
+                        sentBatches.increment();
+                        sentItems.add(items.size());
+                        recordOutcome(response, elapsedNanos, full, permission);
+                        notifyCompleted(items.size(), bytes, elapsedNanos, response);
+                        afterBulk(executionId, items, response);
+                    } finally {
+                        inFlight.release();
+                    }
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    boolean rejected = isRejection(e);
+                    controller.onBulkFailed(items.size(), System.nanoTime() - startNanos, rejected);
+                    if (rejected && backoff.hasNext() && scheduleRetry(items,
+                            () -> doExecute(executionId, items, bytes, full, permission, backoff),
+                            backoff.next().millis())) {
+                        return;
+                    }
+                    try {
+                        recordFailure(items.size(), bytes, System.nanoTime() - startNanos, full, permission, e);
+                        afterBulk(executionId, items, e);
+                    } finally {
+                        inFlight.release();
+                    }
+                }
+            });
+        } catch (Exception e) {
+            try {
+                recordFailure(items.size(), bytes, System.nanoTime() - startNanos, full, permission, e);
+                afterBulk(executionId, items, e);
+            } finally {
+                inFlight.release();
+            }
+        }
+    }
+
+    /**
+     * 把批次结果反馈给自适应控制器和熔断器；对熔断器而言，请求失败或超过一半条目被拒绝（429）视为失败
+     */
+    private void recordOutcome(BulkResult response, long elapsedNanos, boolean full,
+                               CircuitBreaker.Permission permission) {
+        boolean success = response != null;
+        if (success) {
+            int rejected = 0;
+            for (BulkResult.ItemFailure failure : response.getFailures()) {
+                if (failure.getStatus() == RestStatus.TOO_MANY_REQUESTS) {
+                    rejected++;
+                }
+            }
+            controller.onBulkCompleted(response.getItemCount(), response.getTookMillis(), elapsedNanos, rejected, full);
+            success = rejected * 2 < response.getItemCount();
+        }
+        if (circuitBreaker != null) {
+            circuitBreaker.record(permission, success, elapsedNanos);
+        }
+    }
+
+    private void recordFailure(int items, long bytes, long elapsedNanos, boolean full,
+                               CircuitBreaker.Permission permission, Exception failure) {
+        failedBatches.increment();
+        recordOutcome(null, elapsedNanos, full, permission);
+        BulkListener current = listener;
+        if (current != null) {
+            try {
+                current.onBulkFailed(items, bytes, elapsedNanos, failure);
+            } catch (RuntimeException e) {
+                logger.debug("Bulk listener failed", e);
+            }
+        }
+    }
+
+    private void notifyCompleted(int items, long bytes, long elapsedNanos, BulkResult response) {
+        BulkListener current = listener;
+        if (current != null) {
+            try {
+                current.onBulkCompleted(items, bytes, elapsedNanos, response);
+            } catch (RuntimeException e) {
+                logger.debug("Bulk listener failed", e);
+            }
+        }
+    }
+
+    /**
+     * 逐条处理部分失败的批次：可重试的条目按发送次数分组后延迟重新入队，文档错误改发兜底文档，其余丢弃
+     */
+    private void afterBulk(long executionId, List<BulkItem> items, BulkResult response) {
+        if (!response.hasFailures()) {
+            return;
+        }
+        Map<Integer, List<BulkItem>> retries = new HashMap<>();
+        List<BulkItem> exhausted = new ArrayList<>();
+        List<BulkItem> deadLetters = new ArrayList<>();
+        int dropped = 0;
+        BulkResult.ItemFailure sample = null;
+
+        for (BulkResult.ItemFailure failure : response.getFailures()) {
+            if (failure.getPosition() < 0 || failure.getPosition() >= items.size()) {
+                // 响应中的条目数与请求不一致，无法确定对应的条目
+                logger.debug("Bulk [{}] reported a failure for unknown position {}", executionId, failure.getPosition());
+                continue;
+            }
+            itemFailures.computeIfAbsent(failure.getStatus(), k -> new LongAdder()).increment();
+            BulkItem item = items.get(failure.getPosition());
+            if (isRetryable(failure.getStatus())) {
+                if (item.getAttempts() <= maxItemRetries) {
+                    retries.computeIfAbsent(item.getAttempts(), k -> new ArrayList<>()).add(item);
+                } else {
+                    exhausted.add(item);
+                }
+            } else if (failure.getStatus() == RestStatus.BAD_REQUEST && item.getMessage() != null) {
+                deadLetters.add(toDeadLetter(item, failure));
+            } else {
+                dropped++;
+                sample = failure;
+            }
+        }
+
+        int retried = 0;
+        for (Map.Entry<Integer, List<BulkItem>> entry : retries.entrySet()) {
+            retried += entry.getValue().size();
+            retriedItems.add(entry.getValue().size());
+            scheduleRequeue(entry.getValue(), retryDelayMillis(entry.getKey()));
+        }
+        if (!exhausted.isEmpty()) {
+            dropped += spoolOrCount(exhausted);
+        }
+        if (!deadLetters.isEmpty()) {
+            deadLetteredItems.add(deadLetters.size());
+            scheduleRequeue(deadLetters, 0);
+        }
+        if (dropped > 0) {
+            failedItems.add(dropped);
+            logger.warn("Bulk [{}] dropped {} failed documents, e.g. [{}] {}", executionId, dropped,
+                    sample != null ? sample.getStatus() : RestStatus.TOO_MANY_REQUESTS,
+                    sample != null ? sample.getMessage() : "retries exhausted");
+        }
+        if (retried > 0 || !deadLetters.isEmpty()) {
+            logger.debug("Bulk [{}] re-enqueued {} documents for retry and {} dead-letter documents",
+                    executionId, retried, deadLetters.size());
+        }
+    }
+
+    private void scheduleRequeue(List<BulkItem> items, long delayMillis) {
+        if (!scheduleRetry(items, () -> requeue(items), delayMillis)) {
+            failedItems.add(spoolOrCount(items));
+        }
+    }
+
+    /**
+     * 安排一次重试并登记，关闭时由 {@link #abandonPendingRetries()} 处理未执行的部分
+     *
+     * @return 重试线程已关闭时返回 false
+     */
+    private boolean scheduleRetry(List<BulkItem> items, Runnable action, long delayMillis) {
+        ScheduledRetry retry = new ScheduledRetry(items, action);
+        pendingRetries.add(retry);
+        try {
+            retryScheduler.schedule(retry, delayMillis, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (RejectedExecutionException e) {
+            pendingRetries.remove(retry);
+            return false;
+        }
+    }
+
+    /**
+     * 重试线程关闭后，把仍未执行的重试中的条目写入暂存或计为失败
+     *
+     * @return 未能执行重试的条目数
+     */
+    private int abandonPendingRetries() {
+        int abandoned = 0;
+        for (ScheduledRetry retry : pendingRetries) {
+            if (pendingRetries.remove(retry)) {
+                abandoned += retry.items.size();
+                failedItems.add(spoolOrCount(retry.items));
+            }
+        }
+        return abandoned;
+    }
+
+    /**
+     * 把重试条目放回队列；队列已满或发送器已关闭时写入暂存，未配置暂存则丢弃并计数
+     */
+    private void requeue(List<BulkItem> items) {
+        List<BulkItem> overflow = null;
+        for (BulkItem item : items) {
+            if (!running || !queue.offer(item)) {
+                if (overflow == null) {
+                    overflow = new ArrayList<>();
+                }
+                overflow.add(item);
+            }
+        }
+        if (overflow != null) {
+            failedItems.add(spoolOrCount(overflow));
+        }
+        wakeSender();
+    }
+
+    /**
+     * @return 未能写入暂存的条目数
+     */
+    private int spoolOrCount(List<BulkItem> items) {
+        int spooled = spool != null ? spool.append(items) : 0;
+        return items.size() - spooled;
+    }
+
+    /**
+     * 第 attempts 次发送失败后的重试延迟：指数增长并带 50% 的随机抖动，避免重试同时到达
+     */
+    private static long retryDelayMillis(int attempts) {
+        long base = Math.min(ITEM_RETRY_MAX_MILLIS, ITEM_RETRY_BASE_MILLIS << Math.min(attempts - 1, 16));
+        return base / 2 + ThreadLocalRandom.current().nextLong(base / 2 + 1);
+    }
+
+    /**
+     * 生成兜底文档：只保留时间戳、级别、消息（截断）和错误原因，避开引发 mapping 错误的字段
+     */
+    private BulkItem toDeadLetter(BulkItem item, BulkResult.ItemFailure failure) {
+        StringBuilder json = new StringBuilder(256);
+        json.append('{');
+        if (item.getTimestamp() != 0) {
+            json.append("\"timestamp\":");
+            timestampEncoder.appendJsonValue(item.getTimestamp(), json);
+            json.append(',');
+        }
+        if (item.getLevel() != null) {
+            json.append("\"level\":\"").append(Utils.escapeJson(item.getLevel())).append("\",");
+        }
+        json.append("\"message\":\"").append(Utils.escapeJson(truncate(item.getMessage()))).append("\",")
+                .append("\"ingestError\":\"").append(Utils.escapeJson(truncate(failure.getMessage()))).append("\"}");
+        String index = Utils.isBlank(deadLetterIndex) ? item.getIndex() : deadLetterIndex;
+        // 不携带时间戳、级别和消息，兜底文档再次失败时不会继续生成兜底文档
+        return new BulkItem(index, item.getId(), json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String truncate(String value) {
+        if (value == null || value.length() <= DEAD_LETTER_MESSAGE_LIMIT) {
+            return value;
+        }
+        return value.substring(0, DEAD_LETTER_MESSAGE_LIMIT);
+    }
+
+    /**
+     * 限流和服务端临时故障（分片不可用、超时等）可以重试
+     */
+    private static boolean isRetryable(RestStatus status) {
+        return status == RestStatus.TOO_MANY_REQUESTS || status.getStatus() >= 500;
+    }
+
+    private void afterBulk(long executionId, List<BulkItem> items, Throwable failure) {
+        if (spool != null) {
+            int spooled = spool.append(items);
+            logger.warn("Failed to execute bulk [{}], spooled {}/{} documents to disk: {}",
+                    executionId, spooled, items.size(), failure.toString());
+            return;
+        }
+        logger.error("Failed to execute bulk", failure);
+    }
+
+    /**
+     * 已安排的重试；执行和关闭时的清理以从 pendingRetries 中移除为准，只有一方会处理这些条目
+     */
+    private final class ScheduledRetry implements Runnable {
+        final List<BulkItem> items;
+        final Runnable action;
+
+        ScheduledRetry(List<BulkItem> items, Runnable action) {
+            this.items = items;
+            this.action = action;
+        }
+
+        @Override
+        public void run() {
+            if (pendingRetries.remove(this)) {
+                action.run();
+            }
+        }
+    }
+
+    /**
+     * 同一目标索引的未发送批次
+     */
+    private static final class PendingBatch {
+        final String index;
+        final List<BulkItem> items;
+        final long deadline;
+        long bytes;
+
+        PendingBatch(String index, int capacity, long deadline) {
+            this.index = index;
+            this.items = new ArrayList<>(capacity);
+            this.deadline = deadline;
+        }
+
+        void add(BulkItem item) {
+            items.add(item);
+            bytes += item.sizeInBytes();
+        }
+    }
+
+    /**
+     * 支持缩减许可的信号量
+     */
+    private static final class ResizableSemaphore extends Semaphore {
+
+        private static final long serialVersionUID = 1L;
+
+        ResizableSemaphore(int permits) {
+            super(permits);
+        }
+
+        @Override
+        protected void reducePermits(int reduction) {
+            super.reducePermits(reduction);
+        }
+    }
+
+    private static boolean isRejection(Exception e) {
+        if (e instanceof ResponseException) {
+            return ((ResponseException) e).getResponse().getStatusLine().getStatusCode()
+                    == RestStatus.TOO_MANY_REQUESTS.getStatus();
+        }
+        return ExceptionsHelper.unwrap(e, EsRejectedExecutionException.class) != null
+                || ExceptionsHelper.status(e) == RestStatus.TOO_MANY_REQUESTS;
+    }
+}
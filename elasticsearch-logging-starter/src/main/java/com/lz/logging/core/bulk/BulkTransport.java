@@ -0,0 +1,32 @@
+package com.lz.logging.core.bulk;
+
+import java.util.List;
+
+/**
+ * 批量请求的传输方式
+ *
+ * <ul>
+ *     <li>{@link HighLevelBulkTransport}：通过 RestHighLevelClient 的 {@code bulkAsync} 发送</li>
+ *     <li>{@link NdjsonBulkTransport}：把条目直接写入复用的 NDJSON 缓冲区，通过低级 RestClient 发送</li>
+ * </ul>
+ */
+public interface BulkTransport {
+
+    /**
+     * 异步发送一个批次，结果通过 listener 回调；同一批次可能因整体被拒绝而被再次发送
+     */
+    void send(List<BulkItem> items, Listener listener);
+
+    /**
+     * 释放传输持有的资源，在发送器关闭后调用
+     */
+    default void close() {
+    }
+
+    interface Listener {
+
+        void onResponse(BulkResult result);
+
+        void onFailure(Exception e);
+    }
+}
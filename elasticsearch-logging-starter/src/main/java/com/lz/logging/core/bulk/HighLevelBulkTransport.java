@@ -0,0 +1,56 @@
+package com.lz.logging.core.bulk;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 通过 RestHighLevelClient 发送批量请求：每个条目构造一个 IndexRequest，组装成 BulkRequest
+ */
+public class HighLevelBulkTransport implements BulkTransport {
+
+    private final RestHighLevelClient client;
+
+    public HighLevelBulkTransport(RestHighLevelClient client) {
+        this.client = client;
+    }
+
+    @Override
+    public void send(List<BulkItem> items, Listener listener) {
+        BulkRequest request = new BulkRequest();
+        for (BulkItem item : items) {
+            request.add(item.toIndexRequest());
+        }
+        client.bulkAsync(request, RequestOptions.DEFAULT, new ActionListener<BulkResponse>() {
+            @Override
+            public void onResponse(BulkResponse response) {
+                listener.onResponse(toResult(response));
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                listener.onFailure(e);
+            }
+        });
+    }
+
+    private static BulkResult toResult(BulkResponse response) {
+        List<BulkResult.ItemFailure> failures = null;
+        if (response.hasFailures()) {
+            failures = new ArrayList<>();
+            for (BulkItemResponse item : response.getItems()) {
+                if (item.isFailed()) {
+                    BulkItemResponse.Failure failure = item.getFailure();
+                    failures.add(new BulkResult.ItemFailure(item.getItemId(), failure.getStatus(), failure.getMessage()));
+                }
+            }
+        }
+        return new BulkResult(response.getTook().millis(), response.getItems().length, failures);
+    }
+}
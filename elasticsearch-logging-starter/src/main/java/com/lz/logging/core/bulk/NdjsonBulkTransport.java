@@ -0,0 +1,242 @@
+package com.lz.logging.core.bulk;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseListener;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.rest.RestStatus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 基于低级 RestClient 的 NDJSON 批量传输
+ *
+ * <p>与 {@link HighLevelBulkTransport} 相比省去了每个条目的 IndexRequest 对象和 BulkRequest 的整体再编码：</p>
+ * <ul>
+ *     <li>动作行由 JsonGenerator 直接写入缓冲区，文档字节原样追加，整个批次只复制一次</li>
+ *     <li>缓冲区在请求完成后归还到池中复用，超过保留上限的缓冲区直接丢弃</li>
+ *     <li>请求带 {@code filter_path}，响应只包含 took、errors 和每个条目的状态与错误，
+ *     并用流式解析器读取；errors 为 false 时跳过条目列表</li>
+ *     <li>配置了 {@link BulkCompressor} 时，达到阈值的请求体压缩为 gzip 后发送</li>
+ * </ul>
+ */
+public class NdjsonBulkTransport implements BulkTransport {
+
+    private static final ContentType NDJSON = ContentType.create("application/x-ndjson");
+
+    private static final String FILTER_PATH = "took,errors,items.*.status,items.*.error.type,items.*.error.reason";
+
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    private final RestClient client;
+    private final long maxRetainedBytes;
+    private final BulkCompressor compressor;
+    private final JsonFactory jsonFactory = new JsonFactory()
+            // 动作行之间夹着直接写入的文档字节，不需要生成器插入根值分隔符
+            .setRootValueSeparator(null)
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    private final ConcurrentLinkedQueue<Buffer> pool = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @param maxRetainedBytes 归还到池中的缓冲区容量上限，超过的缓冲区不再复用
+     */
+    public NdjsonBulkTransport(RestClient client, long maxRetainedBytes) {
+        this(client, maxRetainedBytes, null);
+    }
+
+    /**
+     * @param compressor 请求体压缩器，可为 null
+     */
+    public NdjsonBulkTransport(RestClient client, long maxRetainedBytes, BulkCompressor compressor) {
+        this.client = client;
+        this.maxRetainedBytes = maxRetainedBytes;
+        this.compressor = compressor;
+    }
+
+    @Override
+    public void send(List<BulkItem> items, Listener listener) {
+        Buffer buffer = acquire();
+        boolean gzip = false;
+        try {
+            encode(items, buffer);
+            if (compressor != null && compressor.shouldCompress(buffer.size())) {
+                Buffer compressed = acquire();
+                try {
+                    compressor.compress(buffer.array(), buffer.size(), compressed);
+                } finally {
+                    release(buffer);
+                    buffer = compressed;
+                }
+                gzip = true;
+            }
+        } catch (IOException e) {
+            release(buffer);
+            listener.onFailure(e);
+            return;
+        }
+
+        ByteArrayEntity entity = new ByteArrayEntity(buffer.array(), 0, buffer.size(), NDJSON);
+        if (gzip) {
+            entity.setContentEncoding("gzip");
+        }
+        Request request = new Request("POST", "/_bulk");
+        request.addParameter("filter_path", FILTER_PATH);
+        request.setEntity(entity);
+        Buffer body = buffer;
+        client.performRequestAsync(request, new ResponseListener() {
+            @Override
+            public void onSuccess(Response response) {
+                release(body);
+                BulkResult result;
+                try {
+                    result = parse(response, items.size());
+                } catch (Exception e) {
+                    listener.onFailure(e);
+                    return;
+                }
+                listener.onResponse(result);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                release(body);
+                listener.onFailure(e);
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        if (compressor != null) {
+            compressor.close();
+        }
+    }
+
+    private void encode(List<BulkItem> items, Buffer buffer) throws IOException {
+        try (JsonGenerator generator = jsonFactory.createGenerator(buffer)) {
+            for (BulkItem item : items) {
+                generator.writeStartObject();
+                generator.writeObjectFieldStart("index");
+                generator.writeStringField("_index", item.getIndex());
+                if (item.getId() != null) {
+                    generator.writeStringField("_id", item.getId());
+                }
+                generator.writeEndObject();
+                generator.writeEndObject();
+                generator.flush();
+                buffer.write('\n');
+                buffer.write(item.getSource(), 0, item.getSource().length);
+                buffer.write('\n');
+            }
+        }
+    }
+
+    private BulkResult parse(Response response, int itemCount) throws IOException {
+        long took = 0;
+        boolean errors = false;
+        List<BulkResult.ItemFailure> failures = null;
+        try (InputStream in = response.getEntity().getContent();
+             JsonParser parser = jsonFactory.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Unexpected bulk response");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if ("took".equals(field)) {
+                    took = parser.getLongValue();
+                } else if ("errors".equals(field)) {
+                    errors = parser.getBooleanValue();
+                } else if ("items".equals(field) && errors) {
+                    failures = parseFailures(parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return new BulkResult(took, itemCount, failures);
+    }
+
+    /**
+     * 解析条目列表：[{"index":{"status":201}}, {"index":{"status":400,"error":{"type":..,"reason":..}}}]
+     */
+    private static List<BulkResult.ItemFailure> parseFailures(JsonParser parser) throws IOException {
+        List<BulkResult.ItemFailure> failures = new ArrayList<>();
+        int position = 0;
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            int status = 0;
+            String type = null;
+            String reason = null;
+            // 操作类型（index）包裹的对象
+            parser.nextToken();
+            parser.nextToken();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if ("status".equals(field)) {
+                    status = parser.getIntValue();
+                } else if ("error".equals(field) && parser.currentToken() == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String errorField = parser.getCurrentName();
+                        parser.nextToken();
+                        if ("type".equals(errorField)) {
+                            type = parser.getText();
+                        } else if ("reason".equals(errorField)) {
+                            reason = parser.getText();
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            parser.nextToken();
+            if (status >= 300 || type != null) {
+                RestStatus restStatus = RestStatus.fromCode(status);
+                failures.add(new BulkResult.ItemFailure(position,
+                        restStatus != null ? restStatus : RestStatus.INTERNAL_SERVER_ERROR,
+                        "type=" + type + ", reason=" + reason));
+            }
+            position++;
+        }
+        return failures;
+    }
+
+    private Buffer acquire() {
+        Buffer buffer = pool.poll();
+        return buffer != null ? buffer : new Buffer();
+    }
+
+    private void release(Buffer buffer) {
+        if (buffer.array().length <= maxRetainedBytes) {
+            buffer.reset();
+            pool.offer(buffer);
+        }
+    }
+
+    /**
+     * 暴露内部数组的字节缓冲区，作为请求体时无需再复制
+     */
+    private static final class Buffer extends ByteArrayOutputStream {
+
+        Buffer() {
+            super(INITIAL_BUFFER_SIZE);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+}
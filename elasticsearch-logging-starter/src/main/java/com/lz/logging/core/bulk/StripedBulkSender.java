@@ -0,0 +1,225 @@
+package com.lz.logging.core.bulk;
+
+import com.lz.logging.config.ElasticsearchLoggingProperties;
+import com.lz.logging.core.client.CircuitBreaker;
+import com.lz.logging.core.spool.DiskSpool;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.rest.RestStatus;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 多通道批量发送器
+ *
+ * <p>由若干个相互独立的 {@link BulkSender} 通道组成，每个通道有自己的队列、发送线程、在途许可和自适应控制器，
+ * 各自组装批次、各自按 bulkInterval 发送，避免单个发送线程成为多核机器上的瓶颈。</p>
+ *
+ * <ul>
+ *     <li>通道数由 bulkLanes 指定，0 表示按 CPU 核数自动选择（每 8 核一个通道，最多 8 个，且不超过序列化线程数）</li>
+ *     <li>生产线程首次写入时按轮询分配一个通道，此后固定写入该通道（线程亲和），通道之间没有共享的竞争点</li>
+ *     <li>flush 和关闭同时作用于所有通道：先通知全部通道，再在同一截止时间内等待它们完成</li>
+ *     <li>磁盘暂存和熔断器在通道之间共享；批次条数、字节数和在途请求数的上限按通道计算</li>
+ * </ul>
+ */
+public class StripedBulkSender {
+
+    /**
+     * 自动选择通道数时，每个通道对应的 CPU 核数
+     */
+    private static final int CORES_PER_LANE = 8;
+
+    private static final int MAX_AUTO_LANES = 8;
+
+    private final BulkSender[] lanes;
+    private final AtomicInteger nextLane = new AtomicInteger();
+    private final ThreadLocal<BulkSender> laneOfThread;
+
+    public StripedBulkSender(RestHighLevelClient client,
+                             ElasticsearchLoggingProperties properties,
+                             DiskSpool spool,
+                             CircuitBreaker circuitBreaker) {
+        int laneCount = resolveLaneCount(properties);
+        this.lanes = new BulkSender[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            String name = laneCount == 1 ? "es-log-bulk" : "es-log-bulk-" + i;
+            lanes[i] = new BulkSender(client, properties, spool, circuitBreaker, name);
+        }
+        this.laneOfThread = ThreadLocal.withInitial(
+                () -> lanes[Math.floorMod(nextLane.getAndIncrement(), lanes.length)]);
+    }
+
+    /**
+     * 实际通道数：配置值大于 0 时直接使用，否则按 CPU 核数和序列化线程数推算
+     */
+    static int resolveLaneCount(ElasticsearchLoggingProperties properties) {
+        if (properties.getBulkLanes() > 0) {
+            return properties.getBulkLanes();
+        }
+        int byCores = Math.min(MAX_AUTO_LANES, Runtime.getRuntime().availableProcessors() / CORES_PER_LANE);
+        return Math.max(1, Math.min(byCores, properties.getSerializerThreads()));
+    }
+
+    public void start() {
+        for (BulkSender lane : lanes) {
+            lane.start();
+        }
+    }
+
+    /**
+     * 写入当前线程所属的通道
+     *
+     * @see BulkSender#add(BulkItem)
+     */
+    public boolean add(BulkItem item) {
+        return laneOfThread.get().add(item);
+    }
+
+    /**
+     * 所有通道立即发送已入队的条目
+     */
+    public void flush() {
+        for (BulkSender lane : lanes) {
+            lane.flush();
+        }
+    }
+
+    /**
+     * 关闭所有通道：先同时通知，再在同一截止时间内逐个等待
+     *
+     * @return 所有通道都在超时前完成返回 true
+     */
+    public boolean awaitClose(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (BulkSender lane : lanes) {
+            lane.signalClose();
+        }
+        boolean completed = true;
+        for (BulkSender lane : lanes) {
+            completed &= lane.awaitClose(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        }
+        return completed;
+    }
+
+    public int getLaneCount() {
+        return lanes.length;
+    }
+
+    /**
+     * 单个通道，可查询其队列深度、发送量、控制器和压缩统计，用于观察通道间的负载倾斜
+     */
+    public BulkSender getLane(int index) {
+        return lanes[index];
+    }
+
+    /**
+     * 各通道当前的队列深度
+     */
+    public int[] getQueueDepths() {
+        int[] depths = new int[lanes.length];
+        for (int i = 0; i < lanes.length; i++) {
+            depths[i] = lanes[i].getQueueDepth();
+        }
+        return depths;
+    }
+
+    /**
+     * 各通道收到响应的条目数
+     */
+    public long[] getSentItemsPerLane() {
+        long[] sent = new long[lanes.length];
+        for (int i = 0; i < lanes.length; i++) {
+            sent[i] = lanes[i].getSentItems();
+        }
+        return sent;
+    }
+
+    /**
+     * 所有通道排队中的条目总数
+     */
+    public int getQueueDepth() {
+        int depth = 0;
+        for (BulkSender lane : lanes) {
+            depth += lane.getQueueDepth();
+        }
+        return depth;
+    }
+
+    public long getSentItems() {
+        long total = 0;
+        for (BulkSender lane : lanes) {
+            total += lane.getSentItems();
+        }
+        return total;
+    }
+
+    public long getRetriedItems() {
+        long total = 0;
+        for (BulkSender lane : lanes) {
+            total += lane.getRetriedItems();
+        }
+        return total;
+    }
+
+    public long getDeadLetteredItems() {
+        long total = 0;
+        for (BulkSender lane : lanes) {
+            total += lane.getDeadLetteredItems();
+        }
+        return total;
+    }
+
+    public long getFailedItems() {
+        long total = 0;
+        for (BulkSender lane : lanes) {
+            total += lane.getFailedItems();
+        }
+        return total;
+    }
+
+    public long getSentBatches() {
+        long total = 0;
+        for (BulkSender lane : lanes) {
+            total += lane.getSentBatches();
+        }
+        return total;
+    }
+
+    public long getFailedBatches() {
+        long total = 0;
+        for (BulkSender lane : lanes) {
+            total += lane.getFailedBatches();
+        }
+        return total;
+    }
+
+    /**
+     * 所有通道按响应状态合计的单条失败次数
+     */
+    public Map<RestStatus, Long> getItemFailures() {
+        Map<RestStatus, Long> total = new EnumMap<>(RestStatus.class);
+        for (BulkSender lane : lanes) {
+            lane.getItemFailures().forEach((status, count) -> total.merge(status, count, Long::sum));
+        }
+        return total;
+    }
+
+    /**
+     * 为所有通道设置批次结果的观察者
+     */
+    public void setListener(BulkListener listener) {
+        for (BulkSender lane : lanes) {
+            lane.setListener(listener);
+        }
+    }
+
+    public long getCircuitBreakerDroppedItems() {
+        long total = 0;
+        for (BulkSender lane : lanes) {
+            total += lane.getCircuitBreakerDroppedItems();
+        }
+        return total;
+    }
+}
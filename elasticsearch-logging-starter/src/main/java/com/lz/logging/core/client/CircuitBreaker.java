@@ -0,0 +1,244 @@
+package com.lz.logging.core.client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 发送熔断器
+ *
+ * <p>被动地根据批量请求的结果（失败、429 拒绝、超过慢调用阈值的延迟）和健康检查 ping 驱动状态切换：</p>
+ * <ul>
+ *     <li>CLOSED：正常发送，最近 windowSize 次结果中的失败比例达到阈值时转为 OPEN；ping 失败计为窗口中的一次失败，
+ *     单次 ping 失败不会直接熔断</li>
+ *     <li>OPEN：不做序列化和 HTTP 请求，事件直接丢弃并计数；开启时长到期或 ping 成功后转为 HALF_OPEN</li>
+ *     <li>HALF_OPEN：同一时刻只放行一个探测批次，成功则 CLOSED，失败则重新 OPEN 且开启时长翻倍（不超过上限）；
+ *     探测批次在途期间不接收新事件</li>
+ * </ul>
+ *
+ * <p>每个批次发送前申请 {@link Permission}，结果连同许可一起记录：只有持有 PROBE 许可的批次能结束半开状态，
+ * 熔断前发出的 CALL 批次的结果不会被当作探测结果。</p>
+ *
+ * <p>状态以 volatile 字段发布，读路径无锁；结果记录频率与批次数相同，由实例锁串行化。</p>
+ */
+public class CircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    /**
+     * 计算失败比例所需的最少结果数
+     */
+    private static final int MIN_CALLS = 5;
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * 发送许可：DENIED 不得发送，CALL 为 CLOSED 状态下的普通批次，PROBE 为半开状态下的探测批次
+     */
+    public enum Permission {
+        DENIED, CALL, PROBE
+    }
+
+    private final double failureRatioThreshold;
+    private final long slowCallThresholdNanos;
+    private final long baseOpenNanos;
+    private final long maxOpenNanos;
+
+    /**
+     * 最近的结果，true 表示失败
+     */
+    private final boolean[] window;
+    private int windowPosition;
+    private int windowCount;
+    private int windowFailures;
+
+    private volatile State state = State.CLOSED;
+    private volatile long openUntilNanos;
+    private long currentOpenNanos;
+    private volatile boolean probeInFlight;
+    private long openedCount;
+
+    /**
+     * @param windowSize            统计失败比例的滑动窗口大小（批次数）
+     * @param failureRatioThreshold 触发熔断的失败比例
+     * @param slowCallThresholdMillis 超过该耗时的批次视为失败（毫秒）
+     * @param openDurationMillis    首次熔断的开启时长（毫秒）
+     * @param maxOpenDurationMillis 开启时长上限（毫秒）
+     */
+    public CircuitBreaker(int windowSize,
+                          double failureRatioThreshold,
+                          long slowCallThresholdMillis,
+                          long openDurationMillis,
+                          long maxOpenDurationMillis) {
+        this.window = new boolean[Math.max(MIN_CALLS, windowSize)];
+        this.failureRatioThreshold = failureRatioThreshold;
+        this.slowCallThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowCallThresholdMillis);
+        this.baseOpenNanos = TimeUnit.MILLISECONDS.toNanos(openDurationMillis);
+        this.maxOpenNanos = Math.max(baseOpenNanos, TimeUnit.MILLISECONDS.toNanos(maxOpenDurationMillis));
+        this.currentOpenNanos = baseOpenNanos;
+    }
+
+    /**
+     * 当前状态；OPEN 状态到期时转为 HALF_OPEN
+     */
+    public State getState() {
+        State current = state;
+        if (current == State.OPEN && System.nanoTime() - openUntilNanos >= 0) {
+            synchronized (this) {
+                if (state == State.OPEN && System.nanoTime() - openUntilNanos >= 0) {
+                    transition(State.HALF_OPEN);
+                }
+                return state;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 是否允许事件进入流水线：CLOSED，或 HALF_OPEN 且还没有探测批次在途（需要事件组成探测批次）
+     */
+    public boolean allowsTraffic() {
+        State current = getState();
+        return current == State.CLOSED || current == State.HALF_OPEN && !probeInFlight;
+    }
+
+    /**
+     * 半开状态下是否有探测批次在途；在途期间申请许可的批次应暂缓发送，等待探测结果
+     */
+    public boolean isProbeInFlight() {
+        return probeInFlight;
+    }
+
+    /**
+     * 发送一个批次前申请许可；HALF_OPEN 状态下同一时刻只有一个探测批次获得 PROBE 许可
+     */
+    public Permission tryAcquirePermission() {
+        State current = getState();
+        if (current == State.CLOSED) {
+            return Permission.CALL;
+        }
+        if (current == State.OPEN) {
+            return Permission.DENIED;
+        }
+        synchronized (this) {
+            if (state == State.CLOSED) {
+                return Permission.CALL;
+            }
+            if (state != State.HALF_OPEN || probeInFlight) {
+                return Permission.DENIED;
+            }
+            probeInFlight = true;
+            return Permission.PROBE;
+        }
+    }
+
+    /**
+     * 记录一个批次的结果
+     *
+     * @param permission   发送该批次时取得的许可
+     * @param success      请求是否成功（且被拒绝的条目不超过一半）
+     * @param elapsedNanos 请求往返耗时
+     */
+    public synchronized void record(Permission permission, boolean success, long elapsedNanos) {
+        boolean failed = !success || elapsedNanos > slowCallThresholdNanos;
+
+        if (permission == Permission.PROBE) {
+            if (state != State.HALF_OPEN || !probeInFlight) {
+                // 探测许可已被重新熔断作废
+                return;
+            }
+            probeInFlight = false;
+            if (failed) {
+                currentOpenNanos = Math.min(currentOpenNanos << 1, maxOpenNanos);
+                open();
+            } else {
+                currentOpenNanos = baseOpenNanos;
+                resetWindow();
+                transition(State.CLOSED);
+            }
+            return;
+        }
+        if (permission != Permission.CALL || state != State.CLOSED) {
+            // 熔断前已发出的请求，结果不再影响状态
+            return;
+        }
+        recordInWindow(failed);
+    }
+
+    /**
+     * 记录健康检查结果：CLOSED 状态下 ping 失败计为窗口中的一次失败（仍受最少结果数和失败比例约束），
+     * 熔断期间 ping 成功则提前进入 HALF_OPEN；半开状态下由探测批次决定结果
+     */
+    public synchronized void recordPing(boolean healthy) {
+        if (!healthy) {
+            if (state == State.CLOSED) {
+                recordInWindow(true);
+            }
+        } else if (state == State.OPEN) {
+            transition(State.HALF_OPEN);
+        }
+    }
+
+    private void recordInWindow(boolean failed) {
+        if (windowCount == window.length) {
+            if (window[windowPosition]) {
+                windowFailures--;
+            }
+        } else {
+            windowCount++;
+        }
+        window[windowPosition] = failed;
+        if (failed) {
+            windowFailures++;
+        }
+        windowPosition = (windowPosition + 1) % window.length;
+
+        if (windowCount >= MIN_CALLS && windowFailures >= failureRatioThreshold * windowCount) {
+            open();
+        }
+    }
+
+    /**
+     * 累计熔断次数
+     */
+    public synchronized long getOpenedCount() {
+        return openedCount;
+    }
+
+    /**
+     * 当前开启时长（毫秒），随连续的探测失败翻倍
+     */
+    public synchronized long getCurrentOpenDurationMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(currentOpenNanos);
+    }
+
+    private void open() {
+        probeInFlight = false;
+        openUntilNanos = System.nanoTime() + currentOpenNanos;
+        openedCount++;
+        resetWindow();
+        transition(State.OPEN);
+    }
+
+    private void resetWindow() {
+        windowPosition = 0;
+        windowCount = 0;
+        windowFailures = 0;
+    }
+
+    private void transition(State next) {
+        State previous = state;
+        state = next;
+        if (previous != next) {
+            if (next == State.OPEN) {
+                logger.warn("Elasticsearch logging circuit breaker {} -> OPEN for {}ms",
+                        previous, TimeUnit.NANOSECONDS.toMillis(currentOpenNanos));
+            } else {
+                logger.info("Elasticsearch logging circuit breaker {} -> {}", previous, next);
+            }
+        }
+    }
+}
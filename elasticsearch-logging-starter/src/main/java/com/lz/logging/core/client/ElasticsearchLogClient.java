@@ -2,18 +2,24 @@ package com.lz.logging.core.client;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.lz.logging.config.ElasticsearchLoggingProperties;
+import com.lz.logging.core.bulk.BulkItem;
+import com.lz.logging.core.bulk.BulkListener;
+import com.lz.logging.core.bulk.StripedBulkSender;
 import com.lz.logging.core.model.EsLogDocument;
+import com.lz.logging.core.model.EsLogDocumentModule;
+import com.lz.logging.core.serializer.DirectLogDocumentSerializer;
+import com.lz.logging.core.serializer.JacksonLogDocumentSerializer;
+import com.lz.logging.core.serializer.LogDocumentSerializer;
+import com.lz.logging.core.spool.DiskSpool;
+import com.lz.logging.core.spool.SpoolReplayer;
+import com.lz.logging.core.util.DocumentIdGenerator;
+import com.lz.logging.core.util.CompiledIndexPattern;
 import com.lz.logging.core.util.IndexPatternResolver;
-import org.elasticsearch.action.bulk.BackoffPolicy;
-import org.elasticsearch.action.bulk.BulkProcessor;
-import org.elasticsearch.action.bulk.BulkRequest;
-import org.elasticsearch.action.bulk.BulkResponse;
+import com.lz.logging.core.util.TimestampEncoder;
+import com.lz.logging.core.util.Utils;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.client.RestHighLevelClient;
-import org.elasticsearch.common.unit.ByteSizeUnit;
-import org.elasticsearch.common.unit.ByteSizeValue;
-import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.xcontent.XContentType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,15 +27,19 @@ import org.slf4j.LoggerFactory;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.ZoneId;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Elasticsearch 日志客户端（ES 7.17.x）
  * <p>
- * 优化：使用官方 BulkProcessor 实现高性能异步批量发送
+ * 优化：异步模式下文档在调用 {@link #sendAsync(EsLogDocument)} 的线程（序列化工作线程）上完成序列化，
+ * 再交给 {@link StripedBulkSender} 的某个通道组装批次并发送
  */
 public class ElasticsearchLogClient {
 
@@ -37,12 +47,25 @@ public class ElasticsearchLogClient {
 
     private final RestHighLevelClient client;
     private final ElasticsearchLoggingProperties properties;
-    private final IndexPatternResolver indexResolver;
-    private final ObjectMapper objectMapper;
-
-    private BulkProcessor bulkProcessor;
+    private final CompiledIndexPattern indexPattern;
+    private final CompiledIndexPattern lateEventPattern;
+    private final LongAdder lateEvents = new LongAdder();
+    private final LogDocumentSerializer serializer;
+    private final CircuitBreaker circuitBreaker;
+
+    private StripedBulkSender bulkSender;
+    private DiskSpool spool;
+    private SpoolReplayer spoolReplayer;
+    private DocumentIdGenerator idGenerator;
+    private volatile BulkListener bulkListener;
     private final ScheduledExecutorService healthScheduler;
 
+    /**
+     * 最近一次健康检查的结果和时间，尚未检查时时间为 0
+     */
+    private volatile boolean healthy = true;
+    private volatile long lastHealthCheckMillis;
+
     private final AtomicBoolean running = new AtomicBoolean(true);
 
     public ElasticsearchLogClient(ElasticsearchLoggingProperties properties) {
@@ -51,12 +74,33 @@ public class ElasticsearchLogClient {
 
     public ElasticsearchLogClient(ElasticsearchLoggingProperties properties,
                                   ObjectMapper objectMapper) {
+        this(properties, objectMapper, null);
+    }
+
+    /**
+     * @param objectMapper 基础 ObjectMapper，jackson 序列化方式下复制后使用，可为 null
+     * @param serializer   自定义的文档序列化方式，为 null 时按 documentSerializer 配置创建
+     */
+    public ElasticsearchLogClient(ElasticsearchLoggingProperties properties,
+                                  ObjectMapper objectMapper,
+                                  LogDocumentSerializer serializer) {
 
         this.properties = properties;
-        this.indexResolver = new IndexPatternResolver();
-        this.objectMapper = objectMapper != null ? objectMapper : new ObjectMapper();
+        ZoneId zone = Utils.toZoneId(properties.getZoneId());
+        IndexPatternResolver indexResolver = new IndexPatternResolver(zone);
+        this.indexPattern = indexResolver.compile(properties.getIndex());
+        this.lateEventPattern = Utils.isBlank(properties.getLateEventIndex())
+                ? null : indexResolver.compile(properties.getLateEventIndex());
+        this.serializer = serializer != null ? serializer : createSerializer(properties, objectMapper, zone);
 
         this.client = RestClientFactory.createElasticsearchClient(properties);
+        this.circuitBreaker = properties.isCircuitBreakerEnabled()
+                ? new CircuitBreaker(properties.getCircuitBreakerWindowSize(),
+                        properties.getCircuitBreakerFailureRatio(),
+                        properties.getCircuitBreakerSlowCallThreshold(),
+                        properties.getCircuitBreakerOpenDuration(),
+                        properties.getCircuitBreakerMaxOpenDuration())
+                : null;
 
         this.healthScheduler = Executors.newSingleThreadScheduledExecutor(r ->
                 new Thread(r, "es-log-health-check"));
@@ -67,63 +111,58 @@ public class ElasticsearchLogClient {
     @PostConstruct
     public void start() {
         if (properties.isBulkEnabled()) {
-            initBulkProcessor();
+            initBulkSender();
         }
         startHealthCheck();
     }
 
-    private void initBulkProcessor() {
-        BulkProcessor.Listener listener = new BulkProcessor.Listener() {
-            @Override
-            public void beforeBulk(long executionId, BulkRequest request) {
-                // 可选：记录 debug 日志
-            }
-
-            @Override
-            public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
-                if (response.hasFailures()) {
-                    logger.warn("Bulk execution completed with failures: {}", response.buildFailureMessage());
-                }
-            }
-
-            @Override
-            public void afterBulk(long executionId, BulkRequest request, Throwable failure) {
-                logger.error("Failed to execute bulk", failure);
-            }
-        };
-
-        BulkProcessor.Builder builder = BulkProcessor.builder(
-                (request, bulkListener) -> client.bulkAsync(request, RequestOptions.DEFAULT, bulkListener),
-                listener);
-
-        // 设置刷新条件
-        builder.setBulkActions(properties.getBulkSize());
-        // 默认 5MB
-        builder.setBulkSize(new ByteSizeValue(5, ByteSizeUnit.MB));
-        builder.setFlushInterval(TimeValue.timeValueMillis(properties.getBulkInterval()));
-        builder.setConcurrentRequests(properties.getConcurrentRequests());
-        // 指数退避重试
-        builder.setBackoffPolicy(BackoffPolicy.exponentialBackoff(TimeValue.timeValueMillis(100), properties.getMaxRetries()));
+    private void initBulkSender() {
+        if (properties.isSpoolEnabled()) {
+            initSpool();
+        }
+        this.bulkSender = new StripedBulkSender(client, properties, spool, circuitBreaker);
+        this.bulkSender.setListener(bulkListener);
+        this.bulkSender.start();
+    }
 
-        this.bulkProcessor = builder.build();
+    private void initSpool() {
+        try {
+            this.spool = new DiskSpool(Paths.get(properties.getSpoolDirectory()),
+                    properties.getSpoolSegmentSize(), properties.getSpoolMaxSize());
+        } catch (IOException e) {
+            logger.error("Failed to open spool directory {}, spooling disabled", properties.getSpoolDirectory(), e);
+            return;
+        }
+        // 暂存的文档可能被重复发送，分配确定的 ID 保证写入幂等
+        this.idGenerator = new DocumentIdGenerator();
+        this.spoolReplayer = new SpoolReplayer(spool, client, properties.getBulkSize(), properties.getSpoolReplayInterval());
+        this.spoolReplayer.start();
+        logger.info("Spooling enabled, directory={}", properties.getSpoolDirectory());
     }
 
     @PreDestroy
     public void shutdown() {
         running.set(false);
 
-        if (bulkProcessor != null) {
+        if (bulkSender != null) {
             try {
                 // 等待所有任务完成，缩短等待时间以避免阻塞应用关闭
-                boolean terminated = bulkProcessor.awaitClose(3, TimeUnit.SECONDS);
+                boolean terminated = bulkSender.awaitClose(3, TimeUnit.SECONDS);
                 if (!terminated) {
-                    logger.warn("BulkProcessor did not terminate in 3s");
+                    logger.warn("BulkSender did not terminate in 3s");
                 }
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
             }
         }
 
+        if (spoolReplayer != null) {
+            spoolReplayer.shutdown();
+        }
+        if (spool != null) {
+            spool.close();
+        }
+
         healthScheduler.shutdownNow(); // 直接停止健康检查，无需等待
         try {
             if (!healthScheduler.awaitTermination(1, TimeUnit.SECONDS)) {
@@ -144,48 +183,183 @@ public class ElasticsearchLogClient {
 
     /* ================= 对外 API ================= */
 
+    /**
+     * 是否接收新事件：未启用暂存时，熔断器处于 OPEN 状态或半开状态下探测批次在途时返回 false，
+     * 调用方应直接丢弃事件，不做转换和序列化
+     */
+    public boolean isAcceptingEvents() {
+        return circuitBreaker == null || spool != null || circuitBreaker.allowsTraffic();
+    }
+
+    /**
+     * 熔断器，未启用时为 null
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * 批量发送器（各通道的队列深度、发送量、自适应控制器与压缩统计），未启用批量发送时为 null
+     */
+    public StripedBulkSender getBulkSender() {
+        return bulkSender;
+    }
+
+    /**
+     * 设置批次结果的观察者；批量发送器已创建时立即生效
+     */
+    public void setBulkListener(BulkListener bulkListener) {
+        this.bulkListener = bulkListener;
+        if (bulkSender != null) {
+            bulkSender.setListener(bulkListener);
+        }
+    }
+
+    /**
+     * 最近一次健康检查是否成功，尚未检查时为 true
+     */
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    /**
+     * 最近一次健康检查的时间（毫秒），尚未检查时为 0
+     */
+    public long getLastHealthCheckMillis() {
+        return lastHealthCheckMillis;
+    }
+
+    /**
+     * 立即发送所有通道中已入队的日志
+     */
+    public void flush() {
+        if (bulkSender != null) {
+            bulkSender.flush();
+        }
+    }
+
+    /**
+     * 当前使用的文档序列化方式
+     */
+    public LogDocumentSerializer getSerializer() {
+        return serializer;
+    }
+
+    /**
+     * 迟到事件数（写入兜底索引的事件）
+     */
+    public long getLateEvents() {
+        return lateEvents.sum();
+    }
+
+    /**
+     * 以当前时间作为事件时间异步发送
+     */
     public void sendAsync(EsLogDocument document) {
-        if (!properties.isAsync() || bulkProcessor == null) {
-            sendSync(document);
+        sendAsync(document, System.currentTimeMillis());
+    }
+
+    /**
+     * 异步发送：在当前线程上完成序列化，然后交给批量发送阶段
+     *
+     * 批量发送队列已满时会等待空间，因此应由序列化工作线程而不是业务线程调用
+     *
+     * 文档在返回前已序列化完毕，之后不再被引用，调用方可以立即清空并复用
+     *
+     * @param eventTimeMillis 事件时间，用于计算目标索引
+     */
+    public void sendAsync(EsLogDocument document, long eventTimeMillis) {
+        if (!properties.isAsync() || bulkSender == null) {
+            sendSync(document, eventTimeMillis);
             return;
         }
 
         try {
-            String index = resolveIndex();
-            IndexRequest request = new IndexRequest(index)
-                    .source(objectMapper.writeValueAsBytes(document), XContentType.JSON);
-            bulkProcessor.add(request);
+            String index = resolveIndex(eventTimeMillis);
+            String id = idGenerator != null ? idGenerator.next() : null;
+            bulkSender.add(new BulkItem(index, id, serializer.serialize(document),
+                    eventTimeMillis, document.getLevel(), document.getMessage()));
         } catch (Exception e) {
-            logger.error("Failed to add log to bulk processor", e);
+            logger.error("Failed to add log to bulk sender", e);
         }
     }
 
     public void sendSync(EsLogDocument document) {
+        sendSync(document, System.currentTimeMillis());
+    }
+
+    /**
+     * @param eventTimeMillis 事件时间，用于计算目标索引
+     */
+    public void sendSync(EsLogDocument document, long eventTimeMillis) {
+        CircuitBreaker.Permission permission = circuitBreaker != null
+                ? circuitBreaker.tryAcquirePermission() : CircuitBreaker.Permission.CALL;
+        if (permission == CircuitBreaker.Permission.DENIED) {
+            logger.debug("Circuit breaker is open, dropping log event");
+            return;
+        }
+        long startNanos = System.nanoTime();
         try {
-            IndexRequest request = new IndexRequest(resolveIndex())
-                    .source(objectMapper.writeValueAsBytes(document), XContentType.JSON);
+            IndexRequest request = new IndexRequest(resolveIndex(eventTimeMillis))
+                    .source(serializer.serialize(document), XContentType.JSON);
             client.index(request, RequestOptions.DEFAULT);
+            if (circuitBreaker != null) {
+                circuitBreaker.record(permission, true, System.nanoTime() - startNanos);
+            }
         } catch (Exception e) {
+            if (circuitBreaker != null) {
+                circuitBreaker.record(permission, false, System.nanoTime() - startNanos);
+            }
             logger.error("Failed to send log to Elasticsearch", e);
         }
     }
 
     /* ================= 内部逻辑 ================= */
 
+    private static LogDocumentSerializer createSerializer(ElasticsearchLoggingProperties properties,
+                                                          ObjectMapper objectMapper, ZoneId zone) {
+        TimestampEncoder timestampEncoder = new TimestampEncoder(
+                TimestampEncoder.Format.of(properties.getTimestampFormat()), zone);
+        if ("direct".equalsIgnoreCase(properties.getDocumentSerializer())) {
+            return new DirectLogDocumentSerializer(timestampEncoder, properties.getEncodedNameCacheSize());
+        }
+        // 复制传入的 ObjectMapper，注册的模块不影响应用自身的序列化
+        return new JacksonLogDocumentSerializer((objectMapper != null ? objectMapper.copy() : new ObjectMapper())
+                .registerModule(new EsLogDocumentModule(timestampEncoder, properties.getEncodedNameCacheSize())));
+    }
+
     private void startHealthCheck() {
         healthScheduler.scheduleWithFixedDelay(() -> {
             try {
-                boolean healthy = client.ping(RequestOptions.DEFAULT);
-                if (!healthy) {
+                boolean reachable = client.ping(RequestOptions.DEFAULT);
+                if (!reachable) {
                     logger.warn("Elasticsearch connection unhealthy");
                 }
+                recordHealth(reachable);
             } catch (Exception e) {
                 logger.warn("Elasticsearch health check failed", e);
+                recordHealth(false);
             }
         }, 60, 60, TimeUnit.SECONDS);
     }
 
-    private String resolveIndex() {
-        return indexResolver.resolve(properties.getIndex());
+    private void recordHealth(boolean reachable) {
+        healthy = reachable;
+        lastHealthCheckMillis = System.currentTimeMillis();
+        if (circuitBreaker != null) {
+            circuitBreaker.recordPing(reachable);
+        }
+    }
+
+    /**
+     * 按事件时间计算目标索引；配置了迟到索引且事件时间早于当前时间超过阈值时，写入迟到索引
+     */
+    private String resolveIndex(long eventTimeMillis) {
+        if (lateEventPattern != null
+                && System.currentTimeMillis() - eventTimeMillis > properties.getLateEventThreshold()) {
+            lateEvents.increment();
+            return lateEventPattern.resolve();
+        }
+        return indexPattern.resolve(eventTimeMillis);
     }
 }
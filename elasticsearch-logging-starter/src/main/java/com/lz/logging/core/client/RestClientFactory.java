@@ -96,6 +96,11 @@ public class RestClientFactory {
             return httpClientBuilder;
         });
 
+        // ndjson 传输自行压缩请求体（带阈值和统计），此处只为 high-level 传输开启压缩
+        if (properties.isCompressionEnabled() && !"ndjson".equalsIgnoreCase(properties.getBulkTransport())) {
+            builder.setCompressionEnabled(true);
+        }
+
         // 请求超时配置
         builder.setRequestConfigCallback(requestConfigBuilder ->
                 requestConfigBuilder
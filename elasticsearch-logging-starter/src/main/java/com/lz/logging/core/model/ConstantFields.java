@@ -0,0 +1,106 @@
+package com.lz.logging.core.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 每个 Appender 固定不变的字段：application、environment、host、pid
+ *
+ * <p>这些字段在创建时一次性转义并拼接为 JSON 片段，序列化时由 {@link EsLogDocumentModule} 作为整体写入每条文档，
+ * 不再逐条事件重复转义和编码。值为空的字段不输出。</p>
+ */
+public final class ConstantFields {
+
+    private final String application;
+    private final String environment;
+    private final String host;
+    private final String pid;
+
+    /**
+     * 第一个字段的名称，以及从其值开始到块末尾的原始 JSON；没有任何字段时均为 null
+     */
+    private final SerializedString firstName;
+    private final SerializedString rawTail;
+
+    /**
+     * 完整字段块的 UTF-8 字节（不含首尾的分隔符），没有任何字段时为空数组
+     */
+    private final byte[] encodedFields;
+
+    public ConstantFields(String application, String environment, String host, String pid) {
+        this.application = application;
+        this.environment = environment;
+        this.host = host;
+        this.pid = pid;
+
+        String[] names = {"application", "environment", "host", "pid"};
+        String[] values = {application, environment, host, pid};
+        String first = null;
+        StringBuilder tail = new StringBuilder();
+        for (int i = 0; i < names.length; i++) {
+            if (values[i] == null) {
+                continue;
+            }
+            if (first == null) {
+                first = names[i];
+            } else {
+                tail.append(",\"").append(names[i]).append("\":");
+            }
+            tail.append('"').append(JsonStringEncoder.getInstance().quoteAsString(values[i])).append('"');
+        }
+        this.firstName = first != null ? new SerializedString(first) : null;
+        this.rawTail = first != null ? new SerializedString(tail.toString()) : null;
+        this.encodedFields = first != null
+                ? ("\"" + first + "\":" + tail).getBytes(StandardCharsets.UTF_8)
+                : new byte[0];
+    }
+
+    /**
+     * 把字段块写入当前对象：第一个字段名照常写出，其余部分作为一个原始值整体复制
+     */
+    public void writeTo(JsonGenerator generator) throws IOException {
+        if (firstName == null) {
+            return;
+        }
+        generator.writeFieldName(firstName);
+        generator.writeRawValue(rawTail);
+    }
+
+    /**
+     * 把字段值写入文档对应的属性，供不经过 {@link EsLogDocumentModule} 的序列化方式使用
+     */
+    public void applyTo(EsLogDocument document) {
+        document.setApplication(application);
+        document.setEnvironment(environment);
+        document.setHost(host);
+        document.setPid(pid);
+        document.setConstantFields(this);
+    }
+
+    /**
+     * 预编码的完整字段块，供直接写出字节的序列化方式使用；调用方不得修改
+     */
+    public byte[] getEncodedFields() {
+        return encodedFields;
+    }
+
+    public String getApplication() {
+        return application;
+    }
+
+    public String getEnvironment() {
+        return environment;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public String getPid() {
+        return pid;
+    }
+}
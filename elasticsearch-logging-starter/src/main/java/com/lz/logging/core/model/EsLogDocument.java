@@ -1,6 +1,7 @@
 package com.lz.logging.core.model;
 
 import com.alibaba.fastjson.annotation.JSONField;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import java.io.Serializable;
 import org.slf4j.MDC;
@@ -15,6 +16,12 @@ public class EsLogDocument implements Serializable {
     @JSONField(name = "@timestamp")
     private String timestamp;
 
+    /**
+     * 事件时间（毫秒）；timestamp 为空时由 {@link EsLogDocumentModule} 在序列化时按配置的格式直接写出
+     */
+    @JsonIgnore
+    private long timestampMillis;
+
     /**
      * 日志级别
      */
@@ -35,6 +42,11 @@ public class EsLogDocument implements Serializable {
      */
     private String message;
 
+    /**
+     * 格式化前的消息模板，同一条日志语句的模板相同，可用于聚合
+     */
+    private String messageTemplate;
+
     /**
      * 跟踪ID（用于分布式追踪）
      */
@@ -45,6 +57,11 @@ public class EsLogDocument implements Serializable {
      */
     private String spanId;
 
+    /**
+     * 采样率，只在事件按小于 1 的采样率保留时出现，统计时按 1/sampleRate 还原总量
+     */
+    private Double sampleRate;
+
     /**
      * 应用名称
      */
@@ -55,6 +72,22 @@ public class EsLogDocument implements Serializable {
      */
     private String environment;
 
+    /**
+     * 主机名
+     */
+    private String host;
+
+    /**
+     * 进程 ID
+     */
+    private String pid;
+
+    /**
+     * 预编码的固定字段块，存在时 application、environment、host、pid 由其整体写出
+     */
+    @JsonIgnore
+    private ConstantFields constantFields;
+
     /**
      * 异常信息
      */
@@ -65,11 +98,45 @@ public class EsLogDocument implements Serializable {
      */
     private String stackTrace;
 
+    /**
+     * 异常结构指纹（不含异常消息），相同位置抛出的同类异常指纹相同
+     */
+    private String stackFingerprint;
+
+    /**
+     * 折叠的事件条数，只出现在错误风暴的汇总文档中
+     */
+    private Integer count;
+
+    /**
+     * 被折叠的第一条事件的时间（毫秒），序列化时按 timestamp 的格式写出
+     */
+    private Long firstTimestamp;
+
+    /**
+     * 被折叠的最后一条事件的时间（毫秒），序列化时按 timestamp 的格式写出
+     */
+    private Long lastTimestamp;
+
+    /**
+     * 被折叠事件的 MDC 样本
+     */
+    private java.util.List<java.util.Map<String, String>> sampleMdc;
+
     /**
      * MDC 上下文信息
      */
     private java.util.Map<String, String> mdc;
 
+    /**
+     * 按 MDC 白名单捕获的值，按 mdcLayout 的槽位排列；mdc 为空时由 {@link EsLogDocumentModule} 写成 mdc 对象
+     */
+    @JsonIgnore
+    private String[] mdcValues;
+
+    @JsonIgnore
+    private MdcLayout mdcLayout;
+
     /**
      * 日志参数
      */
@@ -110,6 +177,14 @@ public class EsLogDocument implements Serializable {
         this.timestamp = timestamp;
     }
 
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public void setTimestampMillis(long timestampMillis) {
+        this.timestampMillis = timestampMillis;
+    }
+
     public String getLevel() {
         return level;
     }
@@ -142,6 +217,14 @@ public class EsLogDocument implements Serializable {
         this.message = message;
     }
 
+    public String getMessageTemplate() {
+        return messageTemplate;
+    }
+
+    public void setMessageTemplate(String messageTemplate) {
+        this.messageTemplate = messageTemplate;
+    }
+
     public String getTraceId() {
         return traceId;
     }
@@ -158,6 +241,14 @@ public class EsLogDocument implements Serializable {
         this.spanId = spanId;
     }
 
+    public Double getSampleRate() {
+        return sampleRate;
+    }
+
+    public void setSampleRate(Double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
     public String getApplication() {
         return application;
     }
@@ -174,6 +265,30 @@ public class EsLogDocument implements Serializable {
         this.environment = environment;
     }
 
+    public String getHost() {
+        return host;
+    }
+
+    public void setHost(String host) {
+        this.host = host;
+    }
+
+    public String getPid() {
+        return pid;
+    }
+
+    public void setPid(String pid) {
+        this.pid = pid;
+    }
+
+    public ConstantFields getConstantFields() {
+        return constantFields;
+    }
+
+    public void setConstantFields(ConstantFields constantFields) {
+        this.constantFields = constantFields;
+    }
+
     public String getException() {
         return exception;
     }
@@ -190,6 +305,46 @@ public class EsLogDocument implements Serializable {
         this.stackTrace = stackTrace;
     }
 
+    public String getStackFingerprint() {
+        return stackFingerprint;
+    }
+
+    public void setStackFingerprint(String stackFingerprint) {
+        this.stackFingerprint = stackFingerprint;
+    }
+
+    public Integer getCount() {
+        return count;
+    }
+
+    public void setCount(Integer count) {
+        this.count = count;
+    }
+
+    public Long getFirstTimestamp() {
+        return firstTimestamp;
+    }
+
+    public void setFirstTimestamp(Long firstTimestamp) {
+        this.firstTimestamp = firstTimestamp;
+    }
+
+    public Long getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    public void setLastTimestamp(Long lastTimestamp) {
+        this.lastTimestamp = lastTimestamp;
+    }
+
+    public java.util.List<java.util.Map<String, String>> getSampleMdc() {
+        return sampleMdc;
+    }
+
+    public void setSampleMdc(java.util.List<java.util.Map<String, String>> sampleMdc) {
+        this.sampleMdc = sampleMdc;
+    }
+
     public java.util.Map<String, String> getMdc() {
         return mdc;
     }
@@ -198,6 +353,19 @@ public class EsLogDocument implements Serializable {
         this.mdc = mdc;
     }
 
+    public String[] getMdcValues() {
+        return mdcValues;
+    }
+
+    public MdcLayout getMdcLayout() {
+        return mdcLayout;
+    }
+
+    public void setMdcValues(MdcLayout mdcLayout, String[] mdcValues) {
+        this.mdcLayout = mdcLayout;
+        this.mdcValues = mdcValues;
+    }
+
     public String[] getArguments() {
         return arguments;
     }
@@ -245,4 +413,45 @@ public class EsLogDocument implements Serializable {
     public void setExtra(java.util.Map<String, Object> extra) {
         this.extra = extra;
     }
+
+    /**
+     * 清空所有字段，使文档可作为载体重复使用
+     *
+     * <p>按白名单捕获 MDC 的槽位数组只清空不释放，下次转换时由同一个 {@link MdcLayout} 继续使用。
+     * 调用方必须保证文档已序列化完毕且不再被其他线程引用。</p>
+     */
+    public void reset() {
+        timestamp = null;
+        timestampMillis = 0;
+        level = null;
+        thread = null;
+        logger = null;
+        message = null;
+        messageTemplate = null;
+        traceId = null;
+        spanId = null;
+        sampleRate = null;
+        application = null;
+        environment = null;
+        host = null;
+        pid = null;
+        constantFields = null;
+        exception = null;
+        stackTrace = null;
+        stackFingerprint = null;
+        count = null;
+        firstTimestamp = null;
+        lastTimestamp = null;
+        sampleMdc = null;
+        mdc = null;
+        if (mdcValues != null) {
+            java.util.Arrays.fill(mdcValues, null);
+        }
+        arguments = null;
+        clientIp = null;
+        userId = null;
+        requestPath = null;
+        requestMethod = null;
+        extra = null;
+    }
 }
@@ -0,0 +1,210 @@
+package com.lz.logging.core.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import com.lz.logging.core.util.EncodedNameCache;
+import com.lz.logging.core.util.TimestampEncoder;
+
+import java.util.List;
+
+/**
+ * {@link EsLogDocument} 的 Jackson 序列化扩展
+ *
+ * <p>替换部分属性的写出方式，转换阶段不再为每条事件格式化时间字符串或构建中间 Map：</p>
+ * <ul>
+ *     <li>timestamp：文档上已有字符串时间戳时原样写出；否则用 {@link TimestampEncoder} 把 timestampMillis
+ *     直接编码到输出中</li>
+ *     <li>firstTimestamp / lastTimestamp（折叠汇总）：毫秒值按同一格式编码</li>
+ *     <li>mdc：文档只携带按白名单捕获的槽位值时，由 {@link MdcLayout} 直接写成对象</li>
+ *     <li>application / environment / host / pid：文档携带 {@link ConstantFields} 时作为预编码的整块写出</li>
+ *     <li>logger / thread / level：取自有界的 {@link EncodedNameCache}，重复的名称不再逐条转义和编码</li>
+ * </ul>
+ */
+public class EsLogDocumentModule extends SimpleModule {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 名称缓存的默认容量
+     */
+    public static final int DEFAULT_NAME_CACHE_SIZE = 1024;
+
+    public EsLogDocumentModule(TimestampEncoder timestampEncoder) {
+        this(timestampEncoder, DEFAULT_NAME_CACHE_SIZE);
+    }
+
+    /**
+     * @param nameCacheSize Logger 名称和线程名称各自缓存的预编码条数上限
+     */
+    public EsLogDocumentModule(TimestampEncoder timestampEncoder, int nameCacheSize) {
+        super("EsLogDocumentModule");
+        EncodedNameCache loggerNames = new EncodedNameCache(nameCacheSize);
+        EncodedNameCache threadNames = new EncodedNameCache(nameCacheSize);
+        EncodedNameCache levelNames = new EncodedNameCache(16);
+        setSerializerModifier(new BeanSerializerModifier() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public List<BeanPropertyWriter> changeProperties(SerializationConfig config,
+                                                             BeanDescription description,
+                                                             List<BeanPropertyWriter> properties) {
+                if (!EsLogDocument.class.isAssignableFrom(description.getBeanClass())) {
+                    return properties;
+                }
+                for (int i = 0; i < properties.size(); i++) {
+                    String name = properties.get(i).getName();
+                    if ("timestamp".equals(name)) {
+                        properties.set(i, new TimestampWriter(properties.get(i), timestampEncoder));
+                    } else if ("firstTimestamp".equals(name) || "lastTimestamp".equals(name)) {
+                        properties.set(i, new EpochMillisWriter(properties.get(i), timestampEncoder));
+                    } else if ("mdc".equals(name)) {
+                        properties.set(i, new MdcWriter(properties.get(i)));
+                    } else if ("application".equals(name)) {
+                        properties.set(i, new ConstantFieldsWriter(properties.get(i), true));
+                    } else if ("environment".equals(name) || "host".equals(name) || "pid".equals(name)) {
+                        properties.set(i, new ConstantFieldsWriter(properties.get(i), false));
+                    } else if ("logger".equals(name)) {
+                        properties.set(i, new EncodedNameWriter(properties.get(i), loggerNames));
+                    } else if ("thread".equals(name)) {
+                        properties.set(i, new EncodedNameWriter(properties.get(i), threadNames));
+                    } else if ("level".equals(name)) {
+                        properties.set(i, new EncodedNameWriter(properties.get(i), levelNames));
+                    }
+                }
+                return properties;
+            }
+        });
+    }
+
+    private static final class TimestampWriter extends BeanPropertyWriter {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient TimestampEncoder encoder;
+
+        TimestampWriter(BeanPropertyWriter base, TimestampEncoder encoder) {
+            super(base);
+            this.encoder = encoder;
+        }
+
+        @Override
+        public void serializeAsField(Object bean, JsonGenerator generator, SerializerProvider provider) throws Exception {
+            EsLogDocument document = (EsLogDocument) bean;
+            if (document.getTimestamp() != null || document.getTimestampMillis() == 0) {
+                super.serializeAsField(bean, generator, provider);
+                return;
+            }
+            generator.writeFieldName(_name);
+            encoder.writeTo(document.getTimestampMillis(), generator);
+        }
+    }
+
+    private static final class MdcWriter extends BeanPropertyWriter {
+
+        private static final long serialVersionUID = 1L;
+
+        MdcWriter(BeanPropertyWriter base) {
+            super(base);
+        }
+
+        @Override
+        public void serializeAsField(Object bean, JsonGenerator generator, SerializerProvider provider) throws Exception {
+            EsLogDocument document = (EsLogDocument) bean;
+            // 重复使用的文档可能保留已清空的槽位数组，此时与没有槽位值的文档一样按默认方式写出
+            if (document.getMdc() != null || !MdcLayout.hasValues(document.getMdcValues())) {
+                super.serializeAsField(bean, generator, provider);
+                return;
+            }
+            generator.writeFieldName(_name);
+            document.getMdcLayout().writeTo(document.getMdcValues(), generator);
+        }
+    }
+
+    /**
+     * 文档携带固定字段块时，由 application 属性整块写出，其余固定字段属性跳过
+     */
+    private static final class ConstantFieldsWriter extends BeanPropertyWriter {
+
+        private static final long serialVersionUID = 1L;
+
+        private final boolean writesBlock;
+
+        ConstantFieldsWriter(BeanPropertyWriter base, boolean writesBlock) {
+            super(base);
+            this.writesBlock = writesBlock;
+        }
+
+        @Override
+        public void serializeAsField(Object bean, JsonGenerator generator, SerializerProvider provider) throws Exception {
+            ConstantFields constantFields = ((EsLogDocument) bean).getConstantFields();
+            if (constantFields == null) {
+                super.serializeAsField(bean, generator, provider);
+            } else if (writesBlock) {
+                constantFields.writeTo(generator);
+            }
+        }
+    }
+
+    /**
+     * 字符串值取自预编码缓存，缓存已满时按普通字符串写出
+     */
+    private static final class EncodedNameWriter extends BeanPropertyWriter {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient EncodedNameCache cache;
+
+        EncodedNameWriter(BeanPropertyWriter base, EncodedNameCache cache) {
+            super(base);
+            this.cache = cache;
+        }
+
+        @Override
+        public void serializeAsField(Object bean, JsonGenerator generator, SerializerProvider provider) throws Exception {
+            Object value = get(bean);
+            if (!(value instanceof String)) {
+                super.serializeAsField(bean, generator, provider);
+                return;
+            }
+            SerializableString encoded = cache.get((String) value);
+            generator.writeFieldName(_name);
+            if (encoded != null) {
+                generator.writeString(encoded);
+            } else {
+                generator.writeString((String) value);
+            }
+        }
+    }
+
+    /**
+     * 把 Long 类型的毫秒值按配置的时间戳格式写出
+     */
+    private static final class EpochMillisWriter extends BeanPropertyWriter {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient TimestampEncoder encoder;
+
+        EpochMillisWriter(BeanPropertyWriter base, TimestampEncoder encoder) {
+            super(base);
+            this.encoder = encoder;
+        }
+
+        @Override
+        public void serializeAsField(Object bean, JsonGenerator generator, SerializerProvider provider) throws Exception {
+            Object value = get(bean);
+            if (value == null) {
+                super.serializeAsField(bean, generator, provider);
+                return;
+            }
+            generator.writeFieldName(_name);
+            encoder.writeTo((Long) value, generator);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.lz.logging.core.model;
+
+import org.slf4j.event.Level;
+import org.slf4j.helpers.MessageFormatter;
+
+import java.util.Map;
+
+/**
+ * 日志事件快照
+ *
+ * <p>在业务线程上从日志框架事件中一次性捕获的数据，只持有引用，不做任何转换或序列化。
+ * 除格式化后的消息外，所有字段都是 final 的，快照创建后即可安全地交给流水线中的其他线程处理。</p>
+ *
+ * <p>以延迟格式化方式捕获时，快照只持有消息模板和参数数组，格式化后的消息在第一次读取时才生成并缓存到
+ * 非 volatile 的 message 字段，与 {@link String#hashCode()} 的缓存方式相同：这是良性的数据竞争，
+ * 其他线程可能看不到缓存而重新格式化一次，但结果相同，且 String 本身不可变，不会读到不完整的值。
+ * 因此快照在逻辑上不可变，但不是严格意义上的不可变对象。</p>
+ */
+public final class LogEventSnapshot {
+
+    private final long timeStamp;
+    private final Level level;
+    private final String loggerName;
+    private final String threadName;
+    private final String messageTemplate;
+    private final Object[] arguments;
+    /**
+     * 格式化后的消息，延迟格式化时由第一次读取的线程写入（见类注释）
+     */
+    private String message;
+    private final Map<String, String> mdc;
+    private final Throwable throwable;
+
+    public LogEventSnapshot(long timeStamp,
+                            Level level,
+                            String loggerName,
+                            String threadName,
+                            String message,
+                            Map<String, String> mdc,
+                            Throwable throwable) {
+        this(timeStamp, level, loggerName, threadName, message, message, mdc, throwable);
+    }
+
+    /**
+     * @param messageTemplate 格式化前的消息模板（如 "user {} not found"），用于识别同一处日志语句
+     */
+    public LogEventSnapshot(long timeStamp,
+                            Level level,
+                            String loggerName,
+                            String threadName,
+                            String message,
+                            String messageTemplate,
+                            Map<String, String> mdc,
+                            Throwable throwable) {
+        this(timeStamp, level, loggerName, threadName, message, messageTemplate, null, mdc, throwable);
+    }
+
+    /**
+     * @param message         格式化后的消息；为 null 时在第一次读取时由模板和参数格式化
+     * @param messageTemplate 格式化前的消息模板
+     * @param arguments       消息参数，只持有引用
+     */
+    public LogEventSnapshot(long timeStamp,
+                            Level level,
+                            String loggerName,
+                            String threadName,
+                            String message,
+                            String messageTemplate,
+                            Object[] arguments,
+                            Map<String, String> mdc,
+                            Throwable throwable) {
+        this.timeStamp = timeStamp;
+        this.level = level;
+        this.loggerName = loggerName;
+        this.threadName = threadName;
+        this.message = message;
+        this.messageTemplate = messageTemplate;
+        this.arguments = arguments;
+        this.mdc = mdc;
+        this.throwable = throwable;
+    }
+
+    public long getTimeStamp() {
+        return timeStamp;
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    public String getLoggerName() {
+        return loggerName;
+    }
+
+    public String getThreadName() {
+        return threadName;
+    }
+
+    /**
+     * 格式化后的消息；延迟格式化的快照在第一次调用时格式化
+     */
+    public String getMessage() {
+        String formatted = message;
+        if (formatted == null && messageTemplate != null) {
+            formatted = arguments == null || arguments.length == 0
+                    ? messageTemplate
+                    : MessageFormatter.arrayFormat(messageTemplate, arguments).getMessage();
+            message = formatted;
+        }
+        return formatted;
+    }
+
+    public String getMessageTemplate() {
+        return messageTemplate;
+    }
+
+    /**
+     * 消息参数，可能为 null；调用方不得修改
+     */
+    public Object[] getArguments() {
+        return arguments;
+    }
+
+    /**
+     * MDC 上下文；Logback 的 MDC 映射为写时复制，这里直接持有其引用，调用方不得修改
+     */
+    public Map<String, String> getMdc() {
+        return mdc;
+    }
+
+    public Throwable getThrowable() {
+        return throwable;
+    }
+}
@@ -0,0 +1,211 @@
+package com.lz.logging.core.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 预编译的 MDC 白名单
+ *
+ * <p>白名单条目形如 {@code key} 或 {@code key:field}，后者把 MDC 中的 key 以 field 为名输出；多个 key 可以指向
+ * 同一个 field（如 {@code trace_id:traceId} 和 {@code traceId}），按配置顺序取第一个非空值。
+ * 编译后每个 field 对应一个固定槽位：</p>
+ * <ul>
+ *     <li>field 为文档已有的顶层字段（traceId、spanId、userId、clientIp、requestPath、requestMethod）时，
+ *     值直接写入该字段</li>
+ *     <li>其余 field 的值写入槽位数组，序列化时由 {@link EsLogDocumentModule} 按槽位顺序写成 mdc 对象，
+ *     字段名预先编码</li>
+ * </ul>
+ *
+ * <p>转换时只按白名单逐个查找 MDC，开销与 MDC 的条目数无关，也不创建中间 Map。编译结果不可变，可被多线程共享。</p>
+ */
+public final class MdcLayout {
+
+    private static final String[] TOP_LEVEL_FIELDS = {
+            "traceId", "spanId", "userId", "clientIp", "requestPath", "requestMethod"
+    };
+
+    /**
+     * 按配置顺序排列的 MDC key 及其槽位
+     */
+    private final String[] keys;
+    private final int[] slotOfKey;
+
+    /**
+     * 每个槽位的顶层字段编号，-1 表示写入 mdc 对象
+     */
+    private final int[] topLevelOfSlot;
+    private final SerializedString[] names;
+
+    private MdcLayout(String[] keys, int[] slotOfKey, int[] topLevelOfSlot, SerializedString[] names) {
+        this.keys = keys;
+        this.slotOfKey = slotOfKey;
+        this.topLevelOfSlot = topLevelOfSlot;
+        this.names = names;
+    }
+
+    /**
+     * 编译白名单；为空时返回 null，表示按原样输出整个 MDC
+     */
+    public static MdcLayout compile(List<String> entries) {
+        if (entries == null || entries.isEmpty()) {
+            return null;
+        }
+        Map<String, Integer> slotOfField = new LinkedHashMap<>();
+        List<String> keys = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        for (String entry : entries) {
+            if (entry == null || entry.trim().isEmpty()) {
+                continue;
+            }
+            int separator = entry.indexOf(':');
+            String key = (separator < 0 ? entry : entry.substring(0, separator)).trim();
+            String field = (separator < 0 ? key : entry.substring(separator + 1)).trim();
+            if (key.isEmpty() || field.isEmpty() || keys.contains(key)) {
+                continue;
+            }
+            Integer slot = slotOfField.get(field);
+            if (slot == null) {
+                slot = slotOfField.size();
+                slotOfField.put(field, slot);
+            }
+            keys.add(key);
+            slots.add(slot);
+        }
+        if (keys.isEmpty()) {
+            return null;
+        }
+
+        int[] topLevelOfSlot = new int[slotOfField.size()];
+        SerializedString[] names = new SerializedString[slotOfField.size()];
+        for (Map.Entry<String, Integer> entry : slotOfField.entrySet()) {
+            int slot = entry.getValue();
+            topLevelOfSlot[slot] = topLevelIndex(entry.getKey());
+            names[slot] = new SerializedString(entry.getKey());
+        }
+        int[] slotOfKey = new int[keys.size()];
+        for (int i = 0; i < slotOfKey.length; i++) {
+            slotOfKey[i] = slots.get(i);
+        }
+        return new MdcLayout(keys.toArray(new String[0]), slotOfKey, topLevelOfSlot, names);
+    }
+
+    /**
+     * 从 MDC 中读取白名单内的值：顶层字段直接写入文档，其余值按槽位写入文档的 mdcValues
+     */
+    public void apply(Map<String, String> mdc, EsLogDocument document) {
+        if (mdc == null || mdc.isEmpty()) {
+            return;
+        }
+        // 重复使用的文档保留上次清空的槽位数组
+        String[] values = document.getMdcLayout() == this ? document.getMdcValues() : null;
+        boolean captured = false;
+        for (int i = 0; i < keys.length; i++) {
+            String value = mdc.get(keys[i]);
+            if (value == null) {
+                continue;
+            }
+            int slot = slotOfKey[i];
+            int topLevel = topLevelOfSlot[slot];
+            if (topLevel >= 0) {
+                setTopLevelIfAbsent(document, topLevel, value);
+            } else {
+                if (values == null) {
+                    values = new String[names.length];
+                }
+                if (values[slot] == null) {
+                    values[slot] = value;
+                    captured = true;
+                }
+            }
+        }
+        if (captured) {
+            document.setMdcValues(this, values);
+        }
+    }
+
+    /**
+     * 槽位对应的输出字段名（已预先编码）
+     */
+    public SerializableString getName(int slot) {
+        return names[slot];
+    }
+
+    /**
+     * 槽位数组中是否有值
+     */
+    public static boolean hasValues(String[] values) {
+        if (values != null) {
+            for (String value : values) {
+                if (value != null) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 把槽位值写成 JSON 对象（字段名已预先编码，跳过空槽位）
+     */
+    public void writeTo(String[] values, JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        for (int slot = 0; slot < values.length; slot++) {
+            if (values[slot] != null) {
+                generator.writeFieldName(names[slot]);
+                generator.writeString(values[slot]);
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    private static int topLevelIndex(String field) {
+        for (int i = 0; i < TOP_LEVEL_FIELDS.length; i++) {
+            if (TOP_LEVEL_FIELDS[i].equals(field)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void setTopLevelIfAbsent(EsLogDocument document, int field, String value) {
+        switch (field) {
+            case 0:
+                if (document.getTraceId() == null) {
+                    document.setTraceId(value);
+                }
+                break;
+            case 1:
+                if (document.getSpanId() == null) {
+                    document.setSpanId(value);
+                }
+                break;
+            case 2:
+                if (document.getUserId() == null) {
+                    document.setUserId(value);
+                }
+                break;
+            case 3:
+                if (document.getClientIp() == null) {
+                    document.setClientIp(value);
+                }
+                break;
+            case 4:
+                if (document.getRequestPath() == null) {
+                    document.setRequestPath(value);
+                }
+                break;
+            default:
+                if (document.getRequestMethod() == null) {
+                    document.setRequestMethod(value);
+                }
+                break;
+        }
+    }
+}
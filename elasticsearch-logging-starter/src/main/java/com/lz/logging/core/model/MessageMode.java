@@ -0,0 +1,25 @@
+package com.lz.logging.core.model;
+
+/**
+ * 日志消息的采集和输出方式
+ *
+ * <p>决定消息在哪个线程上格式化，以及文档中是否携带消息模板和参数。</p>
+ */
+public enum MessageMode {
+
+    /**
+     * 在调用线程上格式化消息，文档只携带格式化后的 message（默认）
+     */
+    FORMATTED,
+
+    /**
+     * 调用线程只捕获消息模板和参数引用，由序列化线程格式化；文档同时携带 message、messageTemplate 和 arguments。
+     * 参数对象在事件发出后不应再被修改
+     */
+    LAZY,
+
+    /**
+     * 不格式化消息，文档的 message 为消息模板，同时携带 messageTemplate 和 arguments
+     */
+    TEMPLATE
+}
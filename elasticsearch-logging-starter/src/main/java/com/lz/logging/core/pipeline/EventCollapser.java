@@ -0,0 +1,317 @@
+package com.lz.logging.core.pipeline;
+
+import com.lz.logging.core.model.LogEventSnapshot;
+import org.slf4j.event.Level;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * 错误风暴折叠
+ *
+ * <p>按（Logger、消息模板、异常指纹）识别相同的事件。某个键在一个窗口内第一次出现的事件照常处理，
+ * 窗口内后续相同的事件不再转换和序列化，只累加到该键的聚合中；窗口结束后把聚合作为一条汇总交给
+ * {@link SummaryHandler}，汇总携带折叠的条数、首末时间戳和少量 MDC 样本。</p>
+ *
+ * <ul>
+ *     <li>只折叠不低于 minLevel 的事件，其余事件直接放行</li>
+ *     <li>同时跟踪的键最多 maxKeys 个，每个聚合最多保留 maxSamples 份 MDC 样本，内存严格有界；
+ *     键数达到上限时新键的事件直接放行并计数</li>
+ *     <li>由单个后台线程按半个窗口的周期清扫到期的聚合；停止时立即输出所有未完成的聚合</li>
+ * </ul>
+ */
+public class EventCollapser {
+
+    /**
+     * 折叠汇总的处理器，由清扫线程或 {@link #stop()} 的调用线程调用
+     */
+    @FunctionalInterface
+    public interface SummaryHandler {
+
+        void onSummary(CollapsedEvents summary);
+    }
+
+    private final long windowNanos;
+    private final int maxKeys;
+    private final int maxSamples;
+    private final Level minLevel;
+    private final ToLongFunction<Throwable> fingerprinter;
+    private final SummaryHandler handler;
+
+    private final ConcurrentHashMap<Key, Aggregate> aggregates = new ConcurrentHashMap<>();
+    private final AtomicInteger trackedKeys = new AtomicInteger();
+    private ScheduledExecutorService sweeper;
+
+    private final LongAdder collapsedEvents = new LongAdder();
+    private final LongAdder summaries = new LongAdder();
+    private final LongAdder untrackedEvents = new LongAdder();
+
+    /**
+     * @param windowMillis  折叠窗口（毫秒）
+     * @param maxKeys       同时跟踪的键数上限
+     * @param maxSamples    每个聚合保留的 MDC 样本数
+     * @param minLevel      参与折叠的最低级别
+     * @param fingerprinter 异常指纹函数
+     * @param handler       汇总处理器
+     */
+    public EventCollapser(long windowMillis,
+                          int maxKeys,
+                          int maxSamples,
+                          Level minLevel,
+                          ToLongFunction<Throwable> fingerprinter,
+                          SummaryHandler handler) {
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, windowMillis));
+        this.maxKeys = Math.max(1, maxKeys);
+        this.maxSamples = Math.max(0, maxSamples);
+        this.minLevel = minLevel;
+        this.fingerprinter = fingerprinter;
+        this.handler = handler;
+    }
+
+    public synchronized void start() {
+        if (sweeper != null) {
+            return;
+        }
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "es-log-collapser");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long periodNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(10), windowNanos / 2);
+        sweeper.scheduleWithFixedDelay(() -> sweep(false), periodNanos, periodNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 停止清扫线程并输出所有未完成的聚合
+     */
+    public synchronized void stop() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+            sweeper = null;
+        }
+        sweep(true);
+    }
+
+    /**
+     * 提交一个事件
+     *
+     * @return 事件需要照常处理时返回 true；已并入聚合时返回 false
+     */
+    public boolean offer(LogEventSnapshot event) {
+        if (event.getLevel().toInt() < minLevel.toInt()) {
+            return true;
+        }
+        Key key = new Key(event.getLoggerName(), event.getMessageTemplate(),
+                event.getThrowable() != null ? fingerprinter.applyAsLong(event.getThrowable()) : 0L);
+        while (true) {
+            Aggregate aggregate = aggregates.get(key);
+            if (aggregate == null) {
+                if (trackedKeys.incrementAndGet() > maxKeys) {
+                    trackedKeys.decrementAndGet();
+                    untrackedEvents.increment();
+                    return true;
+                }
+                if (aggregates.putIfAbsent(key, new Aggregate(System.nanoTime() + windowNanos)) != null) {
+                    trackedKeys.decrementAndGet();
+                    continue;
+                }
+                // 窗口内第一次出现的事件照常处理
+                return true;
+            }
+            if (aggregate.add(event, maxSamples)) {
+                collapsedEvents.increment();
+                return false;
+            }
+            // 聚合刚被清扫线程关闭，重新查找
+        }
+    }
+
+    private void sweep(boolean all) {
+        long now = System.nanoTime();
+        for (Iterator<Map.Entry<Key, Aggregate>> it = aggregates.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Key, Aggregate> entry = it.next();
+            Aggregate aggregate = entry.getValue();
+            if (!all && now - aggregate.deadline < 0) {
+                continue;
+            }
+            CollapsedEvents summary = aggregate.close();
+            if (aggregates.remove(entry.getKey(), aggregate)) {
+                trackedKeys.decrementAndGet();
+            }
+            if (summary != null) {
+                summaries.increment();
+                try {
+                    handler.onSummary(summary);
+                } catch (Throwable ignored) {
+                    // 单条汇总失败不能终止清扫线程
+                }
+            }
+        }
+    }
+
+    /**
+     * 并入聚合而未单独处理的事件数
+     */
+    public long getCollapsedEvents() {
+        return collapsedEvents.sum();
+    }
+
+    /**
+     * 已输出的汇总数
+     */
+    public long getSummaries() {
+        return summaries.sum();
+    }
+
+    /**
+     * 因键数达到上限而未参与折叠的事件数
+     */
+    public long getUntrackedEvents() {
+        return untrackedEvents.sum();
+    }
+
+    /**
+     * 当前跟踪的键数
+     */
+    public int getTrackedKeys() {
+        return trackedKeys.get();
+    }
+
+    /**
+     * 一个窗口内被折叠的相同事件
+     */
+    public static final class CollapsedEvents {
+
+        private final LogEventSnapshot event;
+        private final int count;
+        private final long firstTimeStamp;
+        private final long lastTimeStamp;
+        private final List<Map<String, String>> sampleMdc;
+
+        CollapsedEvents(LogEventSnapshot event, int count, long firstTimeStamp, long lastTimeStamp,
+                        List<Map<String, String>> sampleMdc) {
+            this.event = event;
+            this.count = count;
+            this.firstTimeStamp = firstTimeStamp;
+            this.lastTimeStamp = lastTimeStamp;
+            this.sampleMdc = sampleMdc;
+        }
+
+        /**
+         * 第一条被折叠的事件，作为汇总的代表
+         */
+        public LogEventSnapshot getEvent() {
+            return event;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public long getFirstTimeStamp() {
+            return firstTimeStamp;
+        }
+
+        public long getLastTimeStamp() {
+            return lastTimeStamp;
+        }
+
+        public List<Map<String, String>> getSampleMdc() {
+            return sampleMdc;
+        }
+    }
+
+    private static final class Aggregate {
+
+        final long deadline;
+        private LogEventSnapshot first;
+        private int count;
+        private long firstTimeStamp = Long.MAX_VALUE;
+        private long lastTimeStamp = Long.MIN_VALUE;
+        private List<Map<String, String>> samples;
+        private boolean closed;
+
+        Aggregate(long deadline) {
+            this.deadline = deadline;
+        }
+
+        synchronized boolean add(LogEventSnapshot event, int maxSamples) {
+            if (closed) {
+                return false;
+            }
+            if (first == null) {
+                first = event;
+            }
+            count++;
+            firstTimeStamp = Math.min(firstTimeStamp, event.getTimeStamp());
+            lastTimeStamp = Math.max(lastTimeStamp, event.getTimeStamp());
+            Map<String, String> mdc = event.getMdc();
+            if (mdc != null && !mdc.isEmpty() && maxSamples > 0) {
+                if (samples == null) {
+                    samples = new ArrayList<>(maxSamples);
+                }
+                if (samples.size() < maxSamples && !samples.contains(mdc)) {
+                    samples.add(mdc);
+                }
+            }
+            return true;
+        }
+
+        /**
+         * 关闭聚合，之后的 add 返回 false；没有折叠任何事件时返回 null
+         */
+        synchronized CollapsedEvents close() {
+            closed = true;
+            if (count == 0) {
+                return null;
+            }
+            return new CollapsedEvents(first, count, firstTimeStamp, lastTimeStamp,
+                    samples != null ? samples : Collections.emptyList());
+        }
+    }
+
+    private static final class Key {
+
+        private final String logger;
+        private final String template;
+        private final long fingerprint;
+        private final int hash;
+
+        Key(String logger, String template, long fingerprint) {
+            this.logger = logger;
+            this.template = template;
+            this.fingerprint = fingerprint;
+            this.hash = 31 * (31 * Objects.hashCode(logger) + Objects.hashCode(template)) + Long.hashCode(fingerprint);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return fingerprint == other.fingerprint
+                    && Objects.equals(logger, other.logger)
+                    && Objects.equals(template, other.template);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
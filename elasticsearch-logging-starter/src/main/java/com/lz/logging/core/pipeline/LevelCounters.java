@@ -0,0 +1,52 @@
+package com.lz.logging.core.pipeline;
+
+import org.slf4j.event.Level;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按日志级别划分的计数器
+ *
+ * <p>每个级别一个 {@link LongAdder}，多线程并发递增时无竞争；在计数停止变化后读取的值是精确的。</p>
+ */
+public class LevelCounters {
+
+    private static final Level[] LEVELS = Level.values();
+
+    private final LongAdder[] counters = new LongAdder[LEVELS.length];
+
+    public LevelCounters() {
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new LongAdder();
+        }
+    }
+
+    public void increment(Level level) {
+        counters[level.ordinal()].increment();
+    }
+
+    public long get(Level level) {
+        return counters[level.ordinal()].sum();
+    }
+
+    public long total() {
+        long total = 0;
+        for (LongAdder counter : counters) {
+            total += counter.sum();
+        }
+        return total;
+    }
+
+    /**
+     * 各级别计数快照，按 ERROR → TRACE 排列
+     */
+    public Map<String, Long> asMap() {
+        Map<String, Long> map = new LinkedHashMap<>();
+        for (Level level : LEVELS) {
+            map.put(level.toString(), get(level));
+        }
+        return map;
+    }
+}
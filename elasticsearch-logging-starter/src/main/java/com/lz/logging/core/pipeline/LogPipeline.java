@@ -0,0 +1,271 @@
+package com.lz.logging.core.pipeline;
+
+import com.lz.logging.core.model.LogEventSnapshot;
+import org.slf4j.event.Level;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 日志处理流水线
+ *
+ * <p>由一个有界无锁环形队列和若干工作线程组成：</p>
+ * <ol>
+ *     <li>采集阶段：调用线程通过 {@link #offer(LogEventSnapshot)} 写入事件快照，只抢占一个槽位</li>
+ *     <li>处理阶段：工作线程并行取出快照，交给 {@link EventHandler} 完成转换和序列化，
+ *     再交给下游的发送阶段</li>
+ * </ol>
+ *
+ * <p>工作线程之间不保证事件顺序，吞吐随工作线程数（CPU 核数）扩展。
+ * 队列写满时按 {@link OverflowPolicy} 处理，所有被丢弃的事件按级别计入 {@link LevelCounters}。</p>
+ */
+public class LogPipeline {
+
+    /**
+     * 工作线程空闲时的最长休眠时间（纳秒）
+     */
+    private static final long MAX_IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * 阻塞等待队列空间时的最长单次休眠时间（纳秒）
+     */
+    private static final long MAX_BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    /**
+     * DROP_OLDEST 策略下腾出空间的最大尝试次数，超过后退化为丢弃新事件
+     */
+    private static final int DROP_OLDEST_ATTEMPTS = 8;
+
+    /**
+     * 事件处理器，由工作线程调用
+     */
+    @FunctionalInterface
+    public interface EventHandler {
+
+        /**
+         * 处理一个事件；实现需自行处理异常，抛出的异常会被忽略
+         *
+         * @param event 事件
+         */
+        void onEvent(LogEventSnapshot event);
+
+        /**
+         * 由编号为 worker 的工作线程处理一个事件；同一编号始终只由一个工作线程调用，
+         * 实现可以据此为每个工作线程预分配独占的资源
+         *
+         * @param worker 工作线程编号，范围 [0, workerCount)
+         * @param event  事件
+         */
+        default void onEvent(int worker, LogEventSnapshot event) {
+            onEvent(event);
+        }
+    }
+
+    private final String name;
+    private final RingBuffer<LogEventSnapshot> ringBuffer;
+    private final EventHandler handler;
+    private final Thread[] workers;
+
+    private final OverflowPolicy overflowPolicy;
+    private final long blockTimeoutNanos;
+    private final Level discardThreshold;
+    private final LevelCounters droppedEvents;
+
+    private volatile boolean running;
+
+    /**
+     * 使用 {@link OverflowPolicy#DROP_NEWEST} 策略创建流水线
+     *
+     * @param name        流水线名称，用作工作线程名前缀
+     * @param capacity    环形队列容量
+     * @param workerCount 工作线程数
+     * @param handler     事件处理器
+     */
+    public LogPipeline(String name, int capacity, int workerCount, EventHandler handler) {
+        this(name, capacity, workerCount, handler,
+                OverflowPolicy.DROP_NEWEST, 0, Level.WARN, new LevelCounters());
+    }
+
+    /**
+     * @param name               流水线名称，用作工作线程名前缀
+     * @param capacity           环形队列容量
+     * @param workerCount        工作线程数
+     * @param handler            事件处理器
+     * @param overflowPolicy     队列溢出策略
+     * @param blockTimeoutMillis BLOCK / DISCARD_BELOW_LEVEL 策略下的最长等待时间（毫秒）
+     * @param discardThreshold   DISCARD_BELOW_LEVEL 策略下不会被直接丢弃的最低级别
+     * @param droppedEvents      丢弃事件计数器
+     */
+    public LogPipeline(String name,
+                       int capacity,
+                       int workerCount,
+                       EventHandler handler,
+                       OverflowPolicy overflowPolicy,
+                       long blockTimeoutMillis,
+                       Level discardThreshold,
+                       LevelCounters droppedEvents) {
+        this.name = name;
+        this.ringBuffer = new RingBuffer<>(capacity);
+        this.handler = handler;
+        this.workers = new Thread[Math.max(1, workerCount)];
+        this.overflowPolicy = overflowPolicy;
+        this.blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, blockTimeoutMillis));
+        this.discardThreshold = discardThreshold;
+        this.droppedEvents = droppedEvents;
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        for (int i = 0; i < workers.length; i++) {
+            int index = i;
+            Thread worker = new Thread(() -> workLoop(index), name + "-" + i);
+            worker.setDaemon(true);
+            workers[i] = worker;
+            worker.start();
+        }
+    }
+
+    /**
+     * 写入一个事件；队列已满时按溢出策略处理
+     *
+     * @return 事件进入队列返回 true，被丢弃返回 false
+     */
+    public boolean offer(LogEventSnapshot event) {
+        if (ringBuffer.offer(event)) {
+            return true;
+        }
+
+        boolean accepted;
+        switch (overflowPolicy) {
+            case BLOCK:
+                accepted = offerBlocking(event);
+                break;
+            case DROP_OLDEST:
+                accepted = offerDroppingOldest(event);
+                break;
+            case DISCARD_BELOW_LEVEL:
+                accepted = event.getLevel().toInt() >= discardThreshold.toInt() && offerBlocking(event);
+                break;
+            case DROP_NEWEST:
+            default:
+                accepted = false;
+                break;
+        }
+        if (!accepted) {
+            droppedEvents.increment(event.getLevel());
+        }
+        return accepted;
+    }
+
+    private boolean offerBlocking(LogEventSnapshot event) {
+        long deadline = System.nanoTime() + blockTimeoutNanos;
+        long parkNanos = 1000;
+        while (running) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            LockSupport.parkNanos(this, Math.min(parkNanos, remaining));
+            if (ringBuffer.offer(event)) {
+                return true;
+            }
+            parkNanos = Math.min(parkNanos << 1, MAX_BLOCK_PARK_NANOS);
+        }
+        return false;
+    }
+
+    private boolean offerDroppingOldest(LogEventSnapshot event) {
+        for (int i = 0; i < DROP_OLDEST_ATTEMPTS; i++) {
+            LogEventSnapshot evicted = ringBuffer.poll();
+            if (evicted != null) {
+                droppedEvents.increment(evicted.getLevel());
+            }
+            if (ringBuffer.offer(event)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 停止接收新事件，并等待工作线程排空队列
+     *
+     * @param timeoutMillis 最长等待时间（毫秒）
+     * @return 在超时前排空返回 true
+     */
+    public synchronized boolean stop(long timeoutMillis) {
+        if (!running) {
+            return true;
+        }
+        running = false;
+
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        for (Thread worker : workers) {
+            LockSupport.unpark(worker);
+        }
+        try {
+            for (Thread worker : workers) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining > 0) {
+                    worker.join(remaining);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return ringBuffer.isEmpty();
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 当前排队等待处理的事件数
+     */
+    public int size() {
+        return ringBuffer.size();
+    }
+
+    public int capacity() {
+        return ringBuffer.capacity();
+    }
+
+    public int getWorkerCount() {
+        return workers.length;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * 工作线程主循环：持续取出事件处理，空闲时逐步退避休眠；停止后排空剩余事件再退出
+     */
+    private void workLoop(int index) {
+        long idleParkNanos = 0;
+        while (true) {
+            LogEventSnapshot event = ringBuffer.poll();
+            if (event != null) {
+                idleParkNanos = 0;
+                try {
+                    handler.onEvent(index, event);
+                } catch (Throwable ignored) {
+                    // 单个事件失败不能终止工作线程
+                }
+                continue;
+            }
+            if (!running) {
+                if (ringBuffer.isEmpty()) {
+                    return;
+                }
+                continue;
+            }
+            idleParkNanos = idleParkNanos == 0 ? 1000 : Math.min(idleParkNanos << 1, MAX_IDLE_PARK_NANOS);
+            LockSupport.parkNanos(this, idleParkNanos);
+        }
+    }
+}
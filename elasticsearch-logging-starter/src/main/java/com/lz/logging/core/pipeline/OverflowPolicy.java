@@ -0,0 +1,29 @@
+package com.lz.logging.core.pipeline;
+
+/**
+ * 异步队列溢出策略
+ *
+ * <p>决定采集队列写满时如何处理新到达的事件。无论哪种策略，被丢弃的事件都会按级别精确计数。</p>
+ */
+public enum OverflowPolicy {
+
+    /**
+     * 阻塞调用线程等待队列空间，超过等待时间仍无空间则丢弃新事件
+     */
+    BLOCK,
+
+    /**
+     * 直接丢弃新事件，调用线程永不阻塞（默认）
+     */
+    DROP_NEWEST,
+
+    /**
+     * 丢弃队列中最旧的事件，为新事件腾出空间
+     */
+    DROP_OLDEST,
+
+    /**
+     * 按级别分流：低于阈值级别的事件直接丢弃，达到阈值级别（如 WARN/ERROR）的事件按 {@link #BLOCK} 处理
+     */
+    DISCARD_BELOW_LEVEL
+}
@@ -0,0 +1,138 @@
+package com.lz.logging.core.pipeline;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 有界无锁环形队列（多生产者 / 多消费者）
+ *
+ * <p>基于槽位序号的 MPMC 队列实现：每个槽位维护一个序号，生产者通过 CAS 抢占写指针，
+ * 消费者通过 CAS 抢占读指针，写入与读取完成后以 release 语义推进槽位序号。</p>
+ *
+ * <ul>
+ *     <li>容量向上取整为 2 的幂，下标计算只需一次位与</li>
+ *     <li>{@link #offer(Object)} 在队列满时立即返回 false，永不阻塞调用线程</li>
+ *     <li>{@link #poll()} 在队列空时立即返回 null</li>
+ * </ul>
+ *
+ * @param <E> 元素类型
+ */
+public class RingBuffer<E> {
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<E> buffer;
+    private final AtomicLongArray sequences;
+
+    /**
+     * 写指针（下一个可写位置）
+     */
+    private final PaddedAtomicLong tail = new PaddedAtomicLong();
+
+    /**
+     * 读指针（下一个可读位置）
+     */
+    private final PaddedAtomicLong head = new PaddedAtomicLong();
+
+    /**
+     * @param requestedCapacity 期望容量，实际容量为不小于该值的 2 的幂
+     */
+    public RingBuffer(int requestedCapacity) {
+        if (requestedCapacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + requestedCapacity);
+        }
+        this.capacity = roundToPowerOfTwo(requestedCapacity);
+        this.mask = capacity - 1;
+        this.buffer = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * 尝试写入一个元素
+     *
+     * @param element 元素，不能为 null
+     * @return 写入成功返回 true，队列已满返回 false
+     */
+    public boolean offer(E element) {
+        if (element == null) {
+            throw new NullPointerException("element");
+        }
+        while (true) {
+            long pos = tail.get();
+            int index = (int) (pos & mask);
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    buffer.lazySet(index, element);
+                    sequences.lazySet(index, pos + 1);
+                    return true;
+                }
+            } else if (diff < 0) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * 尝试取出一个元素
+     *
+     * @return 队首元素，队列为空时返回 null
+     */
+    public E poll() {
+        while (true) {
+            long pos = head.get();
+            int index = (int) (pos & mask);
+            long diff = sequences.get(index) - (pos + 1);
+            if (diff == 0) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    E element = buffer.get(index);
+                    buffer.lazySet(index, null);
+                    sequences.lazySet(index, pos + capacity);
+                    return element;
+                }
+            } else if (diff < 0) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * 当前元素数量（并发下为近似值）
+     */
+    public int size() {
+        long size = tail.get() - head.get();
+        if (size < 0) {
+            return 0;
+        }
+        return (int) Math.min(size, capacity);
+    }
+
+    public boolean isEmpty() {
+        return tail.get() == head.get();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    private static int roundToPowerOfTwo(int value) {
+        if (value > (1 << 30)) {
+            throw new IllegalArgumentException("Capacity too large: " + value);
+        }
+        int highest = Integer.highestOneBit(value);
+        return highest == value ? value : highest << 1;
+    }
+
+    /**
+     * 读写指针位于同一缓存行会造成生产者与消费者之间的伪共享，这里用填充字段隔开
+     */
+    @SuppressWarnings("unused")
+    private static final class PaddedAtomicLong extends AtomicLong {
+        private static final long serialVersionUID = 1L;
+        long p1, p2, p3, p4, p5, p6, p7;
+    }
+}
@@ -0,0 +1,117 @@
+package com.lz.logging.core.pipeline;
+
+import com.lz.logging.core.util.LoggerNameTrie;
+import org.slf4j.event.Level;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 按 traceId 一致的概率采样
+ *
+ * <p>在捕获快照之前判断事件是否保留。采样率按 Logger 名称前缀（最长前缀匹配，编译为 {@link LoggerNameTrie}）
+ * 或按级别配置，前者优先；WARN 及以上级别始终保留。</p>
+ *
+ * <p>带 traceId 的事件由 traceId 的哈希映射到 [0, 1) 上的固定位置，位置小于采样率时保留：同一条链路的所有事件
+ * 要么一起保留、要么一起丢弃；采样率更低的 Logger 保留的链路也一定被采样率更高的 Logger 保留。
+ * 没有 traceId 的事件按随机数采样。</p>
+ *
+ * <p>采样率可在运行时通过 {@link #reload(Map, Map)} 重新加载。</p>
+ */
+public class TraceSampler {
+
+    private static final class Rates {
+        final double[] levelRates;
+        final LoggerNameTrie<Double> loggerRates;
+
+        Rates(double[] levelRates, LoggerNameTrie<Double> loggerRates) {
+            this.levelRates = levelRates;
+            this.loggerRates = loggerRates;
+        }
+    }
+
+    private volatile Rates rates;
+
+    /**
+     * @param levelRates  级别名称到采样率的映射，可为 null
+     * @param loggerRates Logger 名称前缀到采样率的映射，可为 null
+     */
+    public TraceSampler(Map<String, Double> levelRates, Map<String, Double> loggerRates) {
+        reload(levelRates, loggerRates);
+    }
+
+    /**
+     * 重新加载采样率；无法识别的级别名称被忽略，采样率限制在 [0, 1]
+     */
+    public void reload(Map<String, Double> levelRates, Map<String, Double> loggerRates) {
+        double[] byLevel = new double[Level.values().length];
+        Arrays.fill(byLevel, 1.0);
+        if (levelRates != null) {
+            for (Map.Entry<String, Double> entry : levelRates.entrySet()) {
+                try {
+                    Level level = Level.valueOf(entry.getKey().trim().toUpperCase());
+                    byLevel[level.ordinal()] = clamp(entry.getValue());
+                } catch (IllegalArgumentException ignored) {
+                }
+            }
+        }
+        Map<String, Double> byLogger = new LinkedHashMap<>();
+        if (loggerRates != null) {
+            for (Map.Entry<String, Double> entry : loggerRates.entrySet()) {
+                byLogger.put(entry.getKey(), clamp(entry.getValue()));
+            }
+        }
+        this.rates = new Rates(byLevel, LoggerNameTrie.compile(byLogger, null));
+    }
+
+    /**
+     * 判断事件是否保留
+     *
+     * @param traceId 事件的 traceId，可为 null
+     */
+    public boolean isSampled(String loggerName, Level level, String traceId) {
+        double rate = getRate(loggerName, level);
+        if (rate >= 1.0) {
+            return true;
+        }
+        if (rate <= 0.0) {
+            return false;
+        }
+        double position = traceId != null ? position(traceId) : ThreadLocalRandom.current().nextDouble();
+        return position < rate;
+    }
+
+    /**
+     * 事件实际适用的采样率，保留的文档据此记录 sampleRate 以便按 1/rate 还原总量
+     */
+    public double getRate(String loggerName, Level level) {
+        if (level.toInt() >= Level.WARN.toInt()) {
+            return 1.0;
+        }
+        Rates current = rates;
+        Double loggerRate = current.loggerRates.find(loggerName);
+        return loggerRate != null ? loggerRate : current.levelRates[level.ordinal()];
+    }
+
+    /**
+     * traceId 在 [0, 1) 上的位置：String 哈希经 64 位混合后取高 53 位，不同进程对同一 traceId 的结果一致
+     */
+    static double position(String traceId) {
+        long hash = traceId.hashCode();
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return (hash >>> 11) * 0x1.0p-53;
+    }
+
+    private static double clamp(Double rate) {
+        if (rate == null || rate.isNaN()) {
+            return 1.0;
+        }
+        return Math.max(0.0, Math.min(1.0, rate));
+    }
+}
@@ -0,0 +1,274 @@
+package com.lz.logging.core.serializer;
+
+import com.fasterxml.jackson.core.SerializableString;
+import com.lz.logging.core.model.ConstantFields;
+import com.lz.logging.core.model.EsLogDocument;
+import com.lz.logging.core.model.MdcLayout;
+import com.lz.logging.core.util.EncodedNameCache;
+import com.lz.logging.core.util.TimestampEncoder;
+
+import java.lang.reflect.Array;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 专用于 {@link EsLogDocument} 的序列化
+ *
+ * <p>按固定的字段顺序（与 EsLogDocument 的字段声明顺序一致）直接写出 UTF-8 字节：</p>
+ * <ul>
+ *     <li>字段名预先编码，null、空字符串和空集合字段不输出</li>
+ *     <li>字符串在一次遍历中完成转义和编码，写入按线程复用的缓冲区，最后只复制一次</li>
+ *     <li>时间戳、固定字段块、MDC 白名单和 Logger / 线程 / 级别名称与 {@link com.lz.logging.core.model.EsLogDocumentModule}
+ *     使用相同的预编码方式</li>
+ * </ul>
+ *
+ * <p>输出与开启 {@code JsonInclude.Include.NON_EMPTY} 的 Jackson 序列化结果一致，唯一的区别是 BMP 以外的字符
+ * 直接编码为 4 字节 UTF-8，而不是 Jackson 的代理对转义。</p>
+ */
+public class DirectLogDocumentSerializer implements LogDocumentSerializer {
+
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+
+    /**
+     * 线程复用的缓冲区超过该容量时不再保留，避免个别超大文档长期占用内存
+     */
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
+    private static final byte[] TIMESTAMP = name("timestamp");
+    private static final byte[] LEVEL = name("level");
+    private static final byte[] THREAD = name("thread");
+    private static final byte[] LOGGER = name("logger");
+    private static final byte[] MESSAGE = name("message");
+    private static final byte[] MESSAGE_TEMPLATE = name("messageTemplate");
+    private static final byte[] TRACE_ID = name("traceId");
+    private static final byte[] SPAN_ID = name("spanId");
+    private static final byte[] SAMPLE_RATE = name("sampleRate");
+    private static final byte[] APPLICATION = name("application");
+    private static final byte[] ENVIRONMENT = name("environment");
+    private static final byte[] HOST = name("host");
+    private static final byte[] PID = name("pid");
+    private static final byte[] EXCEPTION = name("exception");
+    private static final byte[] STACK_TRACE = name("stackTrace");
+    private static final byte[] STACK_FINGERPRINT = name("stackFingerprint");
+    private static final byte[] COUNT = name("count");
+    private static final byte[] FIRST_TIMESTAMP = name("firstTimestamp");
+    private static final byte[] LAST_TIMESTAMP = name("lastTimestamp");
+    private static final byte[] SAMPLE_MDC = name("sampleMdc");
+    private static final byte[] MDC = name("mdc");
+    private static final byte[] ARGUMENTS = name("arguments");
+    private static final byte[] CLIENT_IP = name("clientIp");
+    private static final byte[] USER_ID = name("userId");
+    private static final byte[] REQUEST_PATH = name("requestPath");
+    private static final byte[] REQUEST_METHOD = name("requestMethod");
+    private static final byte[] EXTRA = name("extra");
+    private static final byte[] COLON = {':'};
+
+    private final TimestampEncoder timestampEncoder;
+    private final EncodedNameCache loggerNames;
+    private final EncodedNameCache threadNames;
+    private final EncodedNameCache levelNames = new EncodedNameCache(16);
+    private final ThreadLocal<Utf8JsonWriter> writers =
+            ThreadLocal.withInitial(() -> new Utf8JsonWriter(INITIAL_BUFFER_SIZE));
+
+    /**
+     * @param nameCacheSize Logger 名称和线程名称各自缓存的预编码条数上限
+     */
+    public DirectLogDocumentSerializer(TimestampEncoder timestampEncoder, int nameCacheSize) {
+        this.timestampEncoder = timestampEncoder;
+        this.loggerNames = new EncodedNameCache(nameCacheSize);
+        this.threadNames = new EncodedNameCache(nameCacheSize);
+    }
+
+    @Override
+    public byte[] serialize(EsLogDocument document) {
+        Utf8JsonWriter writer = writers.get();
+        writer.reset(MAX_RETAINED_BUFFER_SIZE);
+        write(document, writer);
+        return writer.toByteArray();
+    }
+
+    private void write(EsLogDocument document, Utf8JsonWriter writer) {
+        writer.beginObject();
+
+        if (notEmpty(document.getTimestamp())) {
+            writer.name(TIMESTAMP);
+            writer.writeString(document.getTimestamp());
+        } else if (document.getTimestampMillis() != 0) {
+            writer.name(TIMESTAMP);
+            writeTimestamp(document.getTimestampMillis(), writer);
+        }
+        writeName(LEVEL, document.getLevel(), levelNames, writer);
+        writeName(THREAD, document.getThread(), threadNames, writer);
+        writeName(LOGGER, document.getLogger(), loggerNames, writer);
+        writeString(MESSAGE, document.getMessage(), writer);
+        writeString(MESSAGE_TEMPLATE, document.getMessageTemplate(), writer);
+        writeString(TRACE_ID, document.getTraceId(), writer);
+        writeString(SPAN_ID, document.getSpanId(), writer);
+        if (document.getSampleRate() != null) {
+            writer.name(SAMPLE_RATE);
+            writer.writeDouble(document.getSampleRate());
+        }
+
+        ConstantFields constantFields = document.getConstantFields();
+        if (constantFields != null) {
+            if (constantFields.getEncodedFields().length > 0) {
+                writer.fields(constantFields.getEncodedFields());
+            }
+        } else {
+            writeString(APPLICATION, document.getApplication(), writer);
+            writeString(ENVIRONMENT, document.getEnvironment(), writer);
+            writeString(HOST, document.getHost(), writer);
+            writeString(PID, document.getPid(), writer);
+        }
+
+        writeString(EXCEPTION, document.getException(), writer);
+        writeString(STACK_TRACE, document.getStackTrace(), writer);
+        writeString(STACK_FINGERPRINT, document.getStackFingerprint(), writer);
+        if (document.getCount() != null) {
+            writer.name(COUNT);
+            writer.writeLong(document.getCount());
+        }
+        if (document.getFirstTimestamp() != null) {
+            writer.name(FIRST_TIMESTAMP);
+            writeTimestamp(document.getFirstTimestamp(), writer);
+        }
+        if (document.getLastTimestamp() != null) {
+            writer.name(LAST_TIMESTAMP);
+            writeTimestamp(document.getLastTimestamp(), writer);
+        }
+        List<Map<String, String>> sampleMdc = document.getSampleMdc();
+        if (sampleMdc != null && !sampleMdc.isEmpty()) {
+            writer.name(SAMPLE_MDC);
+            writeValue(sampleMdc, writer);
+        }
+
+        if (document.getMdc() != null) {
+            if (!document.getMdc().isEmpty()) {
+                writer.name(MDC);
+                writeValue(document.getMdc(), writer);
+            }
+        } else if (MdcLayout.hasValues(document.getMdcValues())) {
+            writer.name(MDC);
+            writeMdcSlots(document.getMdcLayout(), document.getMdcValues(), writer);
+        }
+
+        String[] arguments = document.getArguments();
+        if (arguments != null && arguments.length > 0) {
+            writer.name(ARGUMENTS);
+            writeValue(arguments, writer);
+        }
+        writeString(CLIENT_IP, document.getClientIp(), writer);
+        writeString(USER_ID, document.getUserId(), writer);
+        writeString(REQUEST_PATH, document.getRequestPath(), writer);
+        writeString(REQUEST_METHOD, document.getRequestMethod(), writer);
+        Map<String, Object> extra = document.getExtra();
+        if (extra != null && !extra.isEmpty()) {
+            writer.name(EXTRA);
+            writeValue(extra, writer);
+        }
+
+        writer.endObject();
+    }
+
+    private void writeTimestamp(long epochMillis, Utf8JsonWriter writer) {
+        if (timestampEncoder.isNumeric()) {
+            writer.writeLong(epochMillis);
+        } else {
+            writer.writeAsciiString(writer.scratch, timestampEncoder.encodeIso(epochMillis, writer.scratch, 0));
+        }
+    }
+
+    private static void writeString(byte[] name, String value, Utf8JsonWriter writer) {
+        if (notEmpty(value)) {
+            writer.name(name);
+            writer.writeString(value);
+        }
+    }
+
+    private static void writeName(byte[] name, String value, EncodedNameCache cache, Utf8JsonWriter writer) {
+        if (notEmpty(value)) {
+            writer.name(name);
+            SerializableString encoded = cache.get(value);
+            if (encoded != null) {
+                writer.writeString(encoded);
+            } else {
+                writer.writeString(value);
+            }
+        }
+    }
+
+    private static void writeMdcSlots(MdcLayout layout, String[] values, Utf8JsonWriter writer) {
+        writer.beginObject();
+        for (int slot = 0; slot < values.length; slot++) {
+            if (values[slot] != null) {
+                writer.element();
+                writer.writeString(layout.getName(slot));
+                writer.writeRaw(COLON);
+                writer.writeString(values[slot]);
+            }
+        }
+        writer.endObject();
+    }
+
+    /**
+     * 写出 mdc、sampleMdc、arguments 和 extra 中的任意值；Map 中值为 null 的条目不输出，无法识别的类型按 toString() 写成字符串
+     */
+    private static void writeValue(Object value, Utf8JsonWriter writer) {
+        if (value == null) {
+            writer.writeNull();
+        } else if (value instanceof String) {
+            writer.writeString((String) value);
+        } else if (value instanceof Integer || value instanceof Long
+                || value instanceof Short || value instanceof Byte) {
+            writer.writeLong(((Number) value).longValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            double number = ((Number) value).doubleValue();
+            if (Double.isNaN(number) || Double.isInfinite(number)) {
+                writer.writeDouble(number);
+            } else {
+                // Float 按自身的 toString() 输出，与 Jackson 一致
+                writer.writeRaw(value.toString().getBytes(StandardCharsets.US_ASCII));
+            }
+        } else if (value instanceof Number) {
+            writer.writeRaw(value.toString().getBytes(StandardCharsets.US_ASCII));
+        } else if (value instanceof Boolean) {
+            writer.writeBoolean((Boolean) value);
+        } else if (value instanceof Map) {
+            writer.beginObject();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (entry.getValue() == null) {
+                    continue;
+                }
+                writer.name(String.valueOf(entry.getKey()));
+                writeValue(entry.getValue(), writer);
+            }
+            writer.endObject();
+        } else if (value instanceof Collection) {
+            writer.beginArray();
+            for (Object element : (Collection<?>) value) {
+                writer.element();
+                writeValue(element, writer);
+            }
+            writer.endArray();
+        } else if (value.getClass().isArray()) {
+            writer.beginArray();
+            for (int i = 0, length = Array.getLength(value); i < length; i++) {
+                writer.element();
+                writeValue(Array.get(value, i), writer);
+            }
+            writer.endArray();
+        } else {
+            writer.writeString(value.toString());
+        }
+    }
+
+    private static boolean notEmpty(String value) {
+        return value != null && !value.isEmpty();
+    }
+
+    private static byte[] name(String name) {
+        return ('"' + name + "\":").getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,27 @@
+package com.lz.logging.core.serializer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lz.logging.core.model.EsLogDocument;
+
+import java.io.IOException;
+
+/**
+ * 基于 ObjectMapper 的序列化，调用方负责注册 {@link com.lz.logging.core.model.EsLogDocumentModule}
+ */
+public class JacksonLogDocumentSerializer implements LogDocumentSerializer {
+
+    private final ObjectMapper objectMapper;
+
+    public JacksonLogDocumentSerializer(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public byte[] serialize(EsLogDocument document) throws IOException {
+        return objectMapper.writeValueAsBytes(document);
+    }
+
+    public ObjectMapper getObjectMapper() {
+        return objectMapper;
+    }
+}
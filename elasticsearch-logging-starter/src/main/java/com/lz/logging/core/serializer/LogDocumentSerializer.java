@@ -0,0 +1,25 @@
+package com.lz.logging.core.serializer;
+
+import com.lz.logging.core.model.EsLogDocument;
+
+import java.io.IOException;
+
+/**
+ * 文档序列化方式
+ *
+ * <ul>
+ *     <li>{@link JacksonLogDocumentSerializer}：通过 ObjectMapper 和 {@link com.lz.logging.core.model.EsLogDocumentModule}
+ *     序列化，遵循传入 ObjectMapper 的全部配置</li>
+ *     <li>{@link DirectLogDocumentSerializer}：按固定字段顺序直接写出 UTF-8 字节，跳过空值，不经过反射和 Bean 内省</li>
+ * </ul>
+ *
+ * <p>实现必须是线程安全的：多个序列化工作线程会并发调用同一个实例。返回前文档必须已经序列化完毕，
+ * 返回后不再引用文档（文档载体可能被立即清空复用）。</p>
+ */
+public interface LogDocumentSerializer {
+
+    /**
+     * 把文档序列化为一个 JSON 对象的 UTF-8 字节
+     */
+    byte[] serialize(EsLogDocument document) throws IOException;
+}
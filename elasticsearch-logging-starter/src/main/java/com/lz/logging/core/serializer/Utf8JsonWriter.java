@@ -0,0 +1,274 @@
+package com.lz.logging.core.serializer;
+
+import com.fasterxml.jackson.core.SerializableString;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 写入可复用字节缓冲区的 JSON 写出器
+ *
+ * <p>字符串在一次遍历中完成转义和 UTF-8 编码：ASCII 字符查表决定是否转义，其余字符直接编码为多字节序列。
+ * 转义规则与 Jackson 默认输出一致（控制字符中 \b \t \n \f \r 使用短转义，其余为大写十六进制的 \\u00XX），
+ * 两种序列化方式的输出可以逐字节比较。</p>
+ *
+ * <p>逗号分隔由写出器维护：字段名和数组元素写出前自动补齐分隔符。非线程安全。</p>
+ */
+final class Utf8JsonWriter {
+
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * ASCII 字符的转义方式：0 表示原样输出，'u' 表示 \\u00XX，其他值表示反斜杠加该字符
+     */
+    private static final byte[] ESCAPES = new byte[128];
+
+    static {
+        for (int i = 0; i < 0x20; i++) {
+            ESCAPES[i] = 'u';
+        }
+        ESCAPES['\b'] = 'b';
+        ESCAPES['\t'] = 't';
+        ESCAPES['\n'] = 'n';
+        ESCAPES['\f'] = 'f';
+        ESCAPES['\r'] = 'r';
+        ESCAPES['"'] = '"';
+        ESCAPES['\\'] = '\\';
+    }
+
+    private static final byte[] TRUE = {'t', 'r', 'u', 'e'};
+    private static final byte[] FALSE = {'f', 'a', 'l', 's', 'e'};
+    private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+
+    private final int initialCapacity;
+    private byte[] buffer;
+    private int size;
+
+    /**
+     * 当前对象或数组中是否还没有写出任何成员
+     */
+    private boolean first = true;
+
+    /**
+     * 时间戳编码用的字符缓冲区
+     */
+    final char[] scratch = new char[64];
+
+    Utf8JsonWriter(int initialCapacity) {
+        this.initialCapacity = initialCapacity;
+        this.buffer = new byte[initialCapacity];
+    }
+
+    /**
+     * 清空内容；缓冲区超过保留上限时缩回初始容量
+     */
+    void reset(int maxRetainedCapacity) {
+        size = 0;
+        first = true;
+        if (buffer.length > maxRetainedCapacity) {
+            buffer = new byte[initialCapacity];
+        }
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+
+    int size() {
+        return size;
+    }
+
+    void beginObject() {
+        ensure(1);
+        buffer[size++] = '{';
+        first = true;
+    }
+
+    void endObject() {
+        ensure(1);
+        buffer[size++] = '}';
+        first = false;
+    }
+
+    void beginArray() {
+        ensure(1);
+        buffer[size++] = '[';
+        first = true;
+    }
+
+    void endArray() {
+        ensure(1);
+        buffer[size++] = ']';
+        first = false;
+    }
+
+    /**
+     * 数组元素前调用，补齐分隔符
+     */
+    void element() {
+        if (first) {
+            first = false;
+        } else {
+            ensure(1);
+            buffer[size++] = ',';
+        }
+    }
+
+    /**
+     * 写出预编码的字段名，name 为 {@code "name":} 的 UTF-8 字节
+     */
+    void name(byte[] name) {
+        element();
+        writeRaw(name);
+    }
+
+    /**
+     * 写出需要转义的字段名
+     */
+    void name(String name) {
+        element();
+        writeString(name);
+        ensure(1);
+        buffer[size++] = ':';
+    }
+
+    /**
+     * 原样追加一段完整的字段（如预编码的固定字段块），补齐分隔符
+     */
+    void fields(byte[] fields) {
+        element();
+        writeRaw(fields);
+    }
+
+    void writeRaw(byte[] bytes) {
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+
+    /**
+     * 写出预编码的字符串值，{@link SerializableString#asQuotedUTF8()} 已转义且不含引号
+     */
+    void writeString(SerializableString value) {
+        byte[] quoted = value.asQuotedUTF8();
+        ensure(quoted.length + 2);
+        buffer[size++] = '"';
+        System.arraycopy(quoted, 0, buffer, size, quoted.length);
+        size += quoted.length;
+        buffer[size++] = '"';
+    }
+
+    /**
+     * 写出带引号的 ASCII 字符（时间戳等已知不需要转义的内容）
+     */
+    void writeAsciiString(char[] chars, int length) {
+        ensure(length + 2);
+        buffer[size++] = '"';
+        for (int i = 0; i < length; i++) {
+            buffer[size++] = (byte) chars[i];
+        }
+        buffer[size++] = '"';
+    }
+
+    /**
+     * 一次遍历完成转义和 UTF-8 编码
+     */
+    void writeString(String value) {
+        int length = value.length();
+        // 每个字符最多占 6 个字节（\\uXXXX 转义），代理对两个字符共 4 个字节
+        ensure(length * 6 + 2);
+        byte[] out = buffer;
+        int pos = size;
+        out[pos++] = '"';
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                byte escape = ESCAPES[c];
+                if (escape == 0) {
+                    out[pos++] = (byte) c;
+                } else if (escape == 'u') {
+                    out[pos++] = '\\';
+                    out[pos++] = 'u';
+                    out[pos++] = '0';
+                    out[pos++] = '0';
+                    out[pos++] = HEX[c >> 4];
+                    out[pos++] = HEX[c & 0xF];
+                } else {
+                    out[pos++] = '\\';
+                    out[pos++] = escape;
+                }
+            } else if (c < 0x800) {
+                out[pos++] = (byte) (0xC0 | (c >> 6));
+                out[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                out[pos++] = (byte) (0xF0 | (codePoint >> 18));
+                out[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                out[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                out[pos++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // 不成对的代理字符无法编码为合法的 UTF-8，按转义形式写出
+                out[pos++] = '\\';
+                out[pos++] = 'u';
+                out[pos++] = HEX[c >> 12];
+                out[pos++] = HEX[(c >> 8) & 0xF];
+                out[pos++] = HEX[(c >> 4) & 0xF];
+                out[pos++] = HEX[c & 0xF];
+            } else {
+                out[pos++] = (byte) (0xE0 | (c >> 12));
+                out[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                out[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        out[pos++] = '"';
+        size = pos;
+    }
+
+    void writeLong(long value) {
+        ensure(20);
+        if (value == Long.MIN_VALUE) {
+            writeRaw(Long.toString(value).getBytes(StandardCharsets.US_ASCII));
+            return;
+        }
+        if (value < 0) {
+            buffer[size++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest != 0; rest /= 10) {
+            digits++;
+        }
+        int pos = size + digits;
+        size = pos;
+        do {
+            buffer[--pos] = (byte) ('0' + (value % 10));
+            value /= 10;
+        } while (value != 0);
+    }
+
+    /**
+     * 非有限值与 Jackson 默认行为一致，写成字符串
+     */
+    void writeDouble(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            writeString(Double.toString(value));
+        } else {
+            writeRaw(Double.toString(value).getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+
+    void writeBoolean(boolean value) {
+        writeRaw(value ? TRUE : FALSE);
+    }
+
+    void writeNull() {
+        writeRaw(NULL);
+    }
+
+    private void ensure(int extra) {
+        int required = size + extra;
+        if (required > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(required, buffer.length << 1));
+        }
+    }
+}
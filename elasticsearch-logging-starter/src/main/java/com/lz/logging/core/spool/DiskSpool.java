@@ -0,0 +1,354 @@
+package com.lz.logging.core.spool;
+
+import com.lz.logging.core.bulk.BulkItem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * 基于段文件的只追加磁盘暂存（write-ahead spool）
+ *
+ * <p>ES 不可用时，发送失败或放不进发送队列的条目被追加到段文件中，待集群恢复后由 {@link SpoolReplayer} 按顺序重放。</p>
+ *
+ * <ul>
+ *     <li>段文件命名为 {@code spool-<序号>.seg}，按序号即写入顺序排列；记录通过文件通道按位置写入，文件只增长到已写入的大小，
+ *     写满后 force 并封存，不做预分配、截断或内存映射（映射在 GC 前不会释放，Windows 上还会阻止截断和删除）</li>
+ *     <li>记录格式：{@code [int 负载长度][int CRC32][负载]}，负载为
+ *     {@code [short ID 长度][ID][short 索引长度][索引][文档]}；进程崩溃时未写完的记录会因长度越界或 CRC 不符在读取时截止</li>
+ *     <li>所有段文件总大小超过上限时删除最旧的段，并记录丢弃的段数</li>
+ *     <li>启动时已存在的段文件全部视为已封存，会被重放</li>
+ * </ul>
+ *
+ * <p>写入路径只在发送失败时使用，由实例锁串行化。</p>
+ */
+public class DiskSpool {
+
+    private static final Logger logger = LoggerFactory.getLogger(DiskSpool.class);
+
+    private static final String SEGMENT_PREFIX = "spool-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final int RECORD_HEADER_BYTES = 8;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final long maxTotalBytes;
+    private final CRC32 crc = new CRC32();
+
+    /**
+     * 已封存、等待重放的段文件，按写入顺序排列
+     */
+    private final List<Path> sealedSegments = new ArrayList<>();
+
+    private long nextSequence;
+    private Path activePath;
+    private FileChannel activeChannel;
+    /**
+     * 当前段已写入的字节数，即下一条记录的写入位置
+     */
+    private int activeBytes;
+    /**
+     * 记录编码缓冲，按需扩容后复用
+     */
+    private ByteBuffer recordBuffer = ByteBuffer.allocate(4096);
+    private long sealedBytes;
+    private long droppedSegments;
+    private boolean closed;
+
+    /**
+     * @param directory     段文件目录，不存在时自动创建
+     * @param segmentSize   单个段文件大小（字节）
+     * @param maxTotalBytes 所有段文件总大小上限（字节）
+     */
+    public DiskSpool(Path directory, int segmentSize, long maxTotalBytes) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxTotalBytes = Math.max(maxTotalBytes, segmentSize);
+        Files.createDirectories(directory);
+        recover();
+    }
+
+    /**
+     * 追加一批条目
+     *
+     * @return 成功写入的条目数；单条超过段大小或暂存已关闭的条目会被丢弃
+     */
+    public synchronized int append(Collection<BulkItem> items) {
+        if (closed) {
+            return 0;
+        }
+        int written = 0;
+        try {
+            for (BulkItem item : items) {
+                if (appendRecord(item)) {
+                    written++;
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Failed to append to spool {}", activePath, e);
+        }
+        return written;
+    }
+
+    public synchronized int append(BulkItem item) {
+        return append(Collections.singletonList(item));
+    }
+
+    /**
+     * 封存当前正在写入的段（若有数据），使其对重放可见
+     */
+    public synchronized void sealActive() {
+        if (activeChannel != null && activeBytes > 0) {
+            try {
+                seal();
+            } catch (IOException e) {
+                logger.error("Failed to seal spool segment {}", activePath, e);
+            }
+        }
+    }
+
+    /**
+     * 已封存的段文件快照，按写入顺序排列
+     */
+    public synchronized List<Path> sealedSegments() {
+        return new ArrayList<>(sealedSegments);
+    }
+
+    /**
+     * 读取一个已封存段中的全部有效记录
+     */
+    public List<BulkItem> read(Path segment) throws IOException {
+        List<BulkItem> items = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) {
+                return items;
+            }
+            // 读入堆内存而不做映射，重放完成后段文件可以立即删除
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // 读满为止
+            }
+            size = buffer.position();
+            CRC32 checksum = new CRC32();
+            int position = 0;
+            while (position + RECORD_HEADER_BYTES <= size) {
+                int length = buffer.getInt(position);
+                if (length <= 0 || position + RECORD_HEADER_BYTES + length > size) {
+                    break;
+                }
+                int expectedCrc = buffer.getInt(position + 4);
+                byte[] payload = new byte[length];
+                buffer.position(position + RECORD_HEADER_BYTES);
+                buffer.get(payload);
+                checksum.reset();
+                checksum.update(payload, 0, length);
+                if ((int) checksum.getValue() != expectedCrc) {
+                    logger.warn("Corrupted record in spool segment {} at offset {}, skipping rest of segment",
+                            segment, position);
+                    break;
+                }
+                items.add(decode(payload));
+                position += RECORD_HEADER_BYTES + length;
+            }
+        }
+        return items;
+    }
+
+    /**
+     * 删除一个已重放完成的段
+     */
+    public synchronized void delete(Path segment) {
+        if (sealedSegments.remove(segment)) {
+            sealedBytes -= sizeOf(segment);
+            deleteQuietly(segment);
+        }
+    }
+
+    /**
+     * 是否有已封存或正在写入的数据
+     */
+    public synchronized boolean hasData() {
+        return !sealedSegments.isEmpty() || activeBytes > 0;
+    }
+
+    /**
+     * 因超过总大小上限被删除的段数
+     */
+    public synchronized long getDroppedSegments() {
+        return droppedSegments;
+    }
+
+    /**
+     * 已封存段与当前段已写入部分的总字节数
+     */
+    public synchronized long getSizeInBytes() {
+        return sealedBytes + activeBytes;
+    }
+
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (activeChannel != null) {
+                if (activeBytes > 0) {
+                    seal();
+                } else {
+                    activeChannel.close();
+                    activeChannel = null;
+                    deleteQuietly(activePath);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to close spool segment {}", activePath, e);
+        }
+    }
+
+    /* ================= 内部逻辑 ================= */
+
+    private void recover() throws IOException {
+        List<Path> existing = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                existing.add(path);
+            }
+        }
+        existing.sort((a, b) -> Long.compare(sequenceOf(a), sequenceOf(b)));
+        for (Path path : existing) {
+            sealedSegments.add(path);
+            sealedBytes += sizeOf(path);
+            nextSequence = Math.max(nextSequence, sequenceOf(path) + 1);
+        }
+        if (!existing.isEmpty()) {
+            logger.info("Recovered {} spool segments ({} bytes) from {}", existing.size(), sealedBytes, directory);
+        }
+    }
+
+    private boolean appendRecord(BulkItem item) throws IOException {
+        byte[] id = item.getId() != null ? item.getId().getBytes(StandardCharsets.UTF_8) : new byte[0];
+        byte[] index = item.getIndex().getBytes(StandardCharsets.UTF_8);
+        byte[] source = item.getSource();
+        int length = 2 + id.length + 2 + index.length + source.length;
+        int recordBytes = RECORD_HEADER_BYTES + length;
+        if (recordBytes > segmentSize) {
+            logger.warn("Document of {} bytes exceeds spool segment size, discarded", source.length);
+            return false;
+        }
+
+        if (activeChannel == null || segmentSize - activeBytes < recordBytes) {
+            if (activeChannel != null) {
+                seal();
+            }
+            openSegment();
+        }
+
+        if (recordBuffer.capacity() < recordBytes) {
+            recordBuffer = ByteBuffer.allocate(Math.max(recordBytes, recordBuffer.capacity() * 2));
+        }
+        ByteBuffer record = recordBuffer;
+        record.clear();
+        record.position(RECORD_HEADER_BYTES);
+        record.putShort((short) id.length).put(id);
+        record.putShort((short) index.length).put(index);
+        record.put(source);
+
+        crc.reset();
+        crc.update(id.length >>> 8);
+        crc.update(id.length);
+        crc.update(id, 0, id.length);
+        crc.update(index.length >>> 8);
+        crc.update(index.length);
+        crc.update(index, 0, index.length);
+        crc.update(source, 0, source.length);
+        record.putInt(0, length);
+        record.putInt(4, (int) crc.getValue());
+        record.flip();
+
+        // 按位置写入：写入失败时已写的残片会被下一条记录覆盖
+        long position = activeBytes;
+        while (record.hasRemaining()) {
+            position += activeChannel.write(record, position);
+        }
+        activeBytes += recordBytes;
+        return true;
+    }
+
+    private void openSegment() throws IOException {
+        activePath = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, nextSequence++, SEGMENT_SUFFIX));
+        activeChannel = FileChannel.open(activePath,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        activeBytes = 0;
+    }
+
+    private void seal() throws IOException {
+        int written = activeBytes;
+        activeChannel.force(false);
+        activeChannel.close();
+        activeChannel = null;
+        activeBytes = 0;
+
+        sealedSegments.add(activePath);
+        sealedBytes += written;
+        while (sealedBytes > maxTotalBytes && sealedSegments.size() > 1) {
+            Path oldest = sealedSegments.remove(0);
+            sealedBytes -= sizeOf(oldest);
+            deleteQuietly(oldest);
+            droppedSegments++;
+            logger.warn("Spool exceeded {} bytes, dropped oldest segment {}", maxTotalBytes, oldest.getFileName());
+        }
+    }
+
+    private static BulkItem decode(byte[] payload) {
+        int position = 0;
+        int idLength = ((payload[position] & 0xff) << 8) | (payload[position + 1] & 0xff);
+        position += 2;
+        String id = idLength > 0 ? new String(payload, position, idLength, StandardCharsets.UTF_8) : null;
+        position += idLength;
+        int indexLength = ((payload[position] & 0xff) << 8) | (payload[position + 1] & 0xff);
+        position += 2;
+        String index = new String(payload, position, indexLength, StandardCharsets.UTF_8);
+        position += indexLength;
+        byte[] source = new byte[payload.length - position];
+        System.arraycopy(payload, position, source, 0, source.length);
+        return new BulkItem(index, id, source);
+    }
+
+    private static long sequenceOf(Path path) {
+        String name = path.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static long sizeOf(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Failed to delete spool segment {}", path, e);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.lz.logging.core.spool;
+
+import com.lz.logging.core.bulk.BulkItem;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.rest.RestStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 磁盘暂存重放器
+ *
+ * <p>后台线程按固定间隔检查 {@link DiskSpool}：集群 ping 成功后，封存当前段并按写入顺序逐段重放，
+ * 每段以 bulkSize 为单位同步发送，整段发送成功后删除该段。</p>
+ *
+ * <p>任一批次请求失败即停止本轮重放，下一轮从该段开头重新开始；条目携带确定的文档 ID，重复发送是幂等的。
+ * 条目被限流（429）时同样视为本批失败；其他单条失败（如 mapping 错误）不会阻塞重放，只记录告警。</p>
+ */
+public class SpoolReplayer {
+
+    private static final Logger logger = LoggerFactory.getLogger(SpoolReplayer.class);
+
+    private final DiskSpool spool;
+    private final RestHighLevelClient client;
+    private final int batchSize;
+    private final long intervalMillis;
+    private final ScheduledExecutorService scheduler;
+
+    private final LongAdder replayedItems = new LongAdder();
+
+    public SpoolReplayer(DiskSpool spool, RestHighLevelClient client, int batchSize, long intervalMillis) {
+        this.spool = spool;
+        this.client = client;
+        this.batchSize = Math.max(1, batchSize);
+        this.intervalMillis = intervalMillis;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "es-log-spool-replayer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::replayQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+        try {
+            if (!scheduler.awaitTermination(1, TimeUnit.SECONDS)) {
+                logger.warn("Spool replayer did not terminate in 1s");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 已重放的条目总数
+     */
+    public long getReplayedItems() {
+        return replayedItems.sum();
+    }
+
+    private void replayQuietly() {
+        try {
+            replay();
+        } catch (Exception e) {
+            logger.warn("Spool replay failed, will retry in {}ms", intervalMillis, e);
+        }
+    }
+
+    /**
+     * 执行一轮重放
+     *
+     * @return 全部段重放完成返回 true
+     */
+    boolean replay() throws Exception {
+        if (!spool.hasData() || !client.ping(RequestOptions.DEFAULT)) {
+            return false;
+        }
+
+        spool.sealActive();
+        for (Path segment : spool.sealedSegments()) {
+            if (Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+            List<BulkItem> items = spool.read(segment);
+            for (int from = 0; from < items.size(); from += batchSize) {
+                if (!send(items.subList(from, Math.min(items.size(), from + batchSize)))) {
+                    return false;
+                }
+            }
+            spool.delete(segment);
+            logger.info("Replayed {} spooled documents from {}", items.size(), segment.getFileName());
+        }
+        return true;
+    }
+
+    private boolean send(List<BulkItem> items) {
+        BulkRequest request = new BulkRequest();
+        for (BulkItem item : items) {
+            request.add(item.toIndexRequest());
+        }
+        try {
+            BulkResponse response = client.bulk(request, RequestOptions.DEFAULT);
+            if (response.hasFailures()) {
+                for (BulkItemResponse item : response.getItems()) {
+                    if (item.isFailed() && item.getFailure().getStatus() == RestStatus.TOO_MANY_REQUESTS) {
+                        logger.warn("Spool replay rejected by cluster, will retry in {}ms", intervalMillis);
+                        return false;
+                    }
+                }
+                logger.warn("Spool replay completed with failures: {}", response.buildFailureMessage());
+            }
+            replayedItems.add(items.size());
+            return true;
+        } catch (Exception e) {
+            logger.warn("Spool replay batch failed, will retry in {}ms", intervalMillis, e);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.lz.logging.core.util;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.WeekFields;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 预编译的索引模式
+ *
+ * <p>由 {@link IndexPatternResolver#compile(String)} 生成：模式在编译时拆分为字面量段和日期格式段，
+ * 日期格式器只创建一次。解析结果按时间桶缓存：桶的粒度取模式中最细的日期字段（秒、分、时、天、周、月、年），
+ * 时间戳落在当前桶内时直接返回缓存的索引名，稳态开销只有一次 volatile 读和两次比较。</p>
+ *
+ * <p>只有不早于当前桶的时间戳会推进缓存；更早的时间戳（迟到或重放的事件）单独计算，不会使缓存来回抖动。</p>
+ */
+public final class CompiledIndexPattern {
+
+    /**
+     * 与 {@link IndexPatternResolver} 创建格式器所用的 Locale 一致，周桶的起点与 Y、w 的取值边界对齐
+     */
+    private static final WeekFields WEEK_FIELDS = WeekFields.of(Locale.ROOT);
+
+    private final Object[] segments;
+    private final ChronoUnit bucketUnit;
+    private final ZoneId zone;
+    private final String constant;
+
+    private volatile Bucket current = new Bucket(Long.MAX_VALUE, Long.MIN_VALUE, null);
+
+    /**
+     * @param segments   字面量（String）和日期格式（DateTimeFormatter）交替组成的段
+     * @param bucketUnit 最细的日期字段，没有日期段时为 null
+     */
+    CompiledIndexPattern(List<Object> segments, ChronoUnit bucketUnit, ZoneId zone) {
+        this.segments = segments.toArray();
+        this.bucketUnit = bucketUnit;
+        this.zone = zone;
+        this.constant = bucketUnit == null ? format(null) : null;
+    }
+
+    /**
+     * 按当前时间解析索引名
+     */
+    public String resolve() {
+        return resolve(System.currentTimeMillis());
+    }
+
+    /**
+     * 按给定时间戳解析索引名
+     *
+     * @param epochMillis 毫秒时间戳
+     */
+    public String resolve(long epochMillis) {
+        if (constant != null) {
+            return constant;
+        }
+        Bucket bucket = current;
+        if (epochMillis >= bucket.startMillis && epochMillis < bucket.endMillis) {
+            return bucket.name;
+        }
+        Bucket computed = computeBucket(epochMillis);
+        if (computed.startMillis >= bucket.startMillis || bucket.name == null) {
+            current = computed;
+        }
+        return computed.name;
+    }
+
+    /**
+     * 时间戳所在时间桶的起始毫秒；没有日期段时返回 Long.MIN_VALUE
+     */
+    public long bucketStart(long epochMillis) {
+        if (constant != null) {
+            return Long.MIN_VALUE;
+        }
+        Bucket bucket = current;
+        if (epochMillis >= bucket.startMillis && epochMillis < bucket.endMillis) {
+            return bucket.startMillis;
+        }
+        return truncate(Instant.ofEpochMilli(epochMillis).atZone(zone)).toInstant().toEpochMilli();
+    }
+
+    /**
+     * 时间桶粒度，没有日期段时为 null
+     */
+    public ChronoUnit getBucketUnit() {
+        return bucketUnit;
+    }
+
+    private Bucket computeBucket(long epochMillis) {
+        ZonedDateTime start = truncate(Instant.ofEpochMilli(epochMillis).atZone(zone));
+        ZonedDateTime end = start.plus(1, bucketUnit);
+        return new Bucket(start.toInstant().toEpochMilli(), end.toInstant().toEpochMilli(), format(start));
+    }
+
+    private ZonedDateTime truncate(ZonedDateTime time) {
+        switch (bucketUnit) {
+            case YEARS:
+                return time.truncatedTo(ChronoUnit.DAYS).withDayOfYear(1);
+            case MONTHS:
+                return time.truncatedTo(ChronoUnit.DAYS).withDayOfMonth(1);
+            case WEEKS:
+                return time.truncatedTo(ChronoUnit.DAYS).with(WEEK_FIELDS.dayOfWeek(), 1);
+            default:
+                return time.truncatedTo(bucketUnit);
+        }
+    }
+
+    private String format(ZonedDateTime time) {
+        StringBuilder builder = new StringBuilder(32);
+        for (Object segment : segments) {
+            if (segment instanceof DateTimeFormatter) {
+                ((DateTimeFormatter) segment).formatTo(time, builder);
+            } else {
+                builder.append((String) segment);
+            }
+        }
+        return builder.toString();
+    }
+
+    private static final class Bucket {
+        final long startMillis;
+        final long endMillis;
+        final String name;
+
+        Bucket(long startMillis, long endMillis, String name) {
+            this.startMillis = startMillis;
+            this.endMillis = endMillis;
+            this.name = name;
+        }
+    }
+}
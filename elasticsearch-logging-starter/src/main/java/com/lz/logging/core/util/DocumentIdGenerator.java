@@ -0,0 +1,26 @@
+package com.lz.logging.core.util;
+
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 文档 ID 生成器
+ *
+ * <p>ID 由进程级随机前缀和单调递增序号组成，在进程内唯一、跨进程几乎不冲突。
+ * ID 在文档首次发送前分配并随文档一起写入磁盘暂存，因此同一文档的多次发送（重试、重放）使用相同的 ID，
+ * 写入是幂等的。</p>
+ */
+public class DocumentIdGenerator {
+
+    private final String prefix;
+    private final AtomicLong sequence = new AtomicLong();
+
+    public DocumentIdGenerator() {
+        long random = new SecureRandom().nextLong() & Long.MAX_VALUE;
+        this.prefix = Long.toString(random, 36) + '-';
+    }
+
+    public String next() {
+        return prefix + Long.toString(sequence.incrementAndGet(), 36);
+    }
+}
@@ -0,0 +1,57 @@
+package com.lz.logging.core.util;
+
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 有界的预编码字符串缓存
+ *
+ * <p>Logger 名称、线程名称和级别在文档间大量重复。缓存把它们转换为 {@link SerializedString}，转义和 UTF-8 编码
+ * 结果由其内部缓存，之后每次写出只是一次字节复制。</p>
+ *
+ * <p>缓存只增不减：达到容量后新出现的名称不再缓存，由调用方按普通字符串写出，线程名称不断变化的线程池
+ * 也不会让缓存无限增长。</p>
+ */
+public final class EncodedNameCache {
+
+    private final int maxSize;
+    private final ConcurrentMap<String, SerializedString> cache = new ConcurrentHashMap<>();
+
+    private final LongAdder misses = new LongAdder();
+
+    public EncodedNameCache(int maxSize) {
+        this.maxSize = Math.max(0, maxSize);
+    }
+
+    /**
+     * 取预编码的名称；缓存已满且名称未缓存时返回 null
+     */
+    public SerializableString get(String name) {
+        SerializedString encoded = cache.get(name);
+        if (encoded != null) {
+            return encoded;
+        }
+        if (cache.size() >= maxSize) {
+            misses.increment();
+            return null;
+        }
+        encoded = new SerializedString(name);
+        SerializedString existing = cache.putIfAbsent(name, encoded);
+        return existing != null ? existing : encoded;
+    }
+
+    public int getSize() {
+        return cache.size();
+    }
+
+    /**
+     * 缓存已满后未能缓存的查找次数
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+}
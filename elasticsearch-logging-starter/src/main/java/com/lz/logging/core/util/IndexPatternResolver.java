@@ -1,9 +1,13 @@
 package com.lz.logging.core.util;
 
-import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * 索引模式解析器
@@ -40,8 +44,12 @@ import java.util.regex.Pattern;
  *     <li>%{month} - 月份格式，如 2023-12</li>
  *     <li>%{day} - 日期中的天数，如 27</li>
  *     <li>%{hour} - 小时格式，如 14</li>
+ *     <li>%{任意 DateTimeFormatter 模式} - 如 %{yyyy.ww}、%{yyyy-MM-dd-HH}；无法识别的占位符原样保留</li>
  * </ul>
  *
+ * <p>模式通过 {@link #compile(String)} 编译为 {@link CompiledIndexPattern}，解析结果按时间桶缓存；
+ * 高频调用方应持有编译结果，{@link #resolve(String)} 也会缓存每个模式的编译结果。</p>
+ *
  * @author lingma
  * @version 1.0
  * @since 2023
@@ -49,72 +57,198 @@ import java.util.regex.Pattern;
 public class IndexPatternResolver {
 
     /**
-     * 默认日期模式占位符
+     * 模式为空时使用的默认索引名
      */
-    private static final String DATE_PATTERN_PLACEHOLDER = "%{yyyy-MM-dd}";
-    
+    private static final String DEFAULT_INDEX = "app-logs";
+
+    private final ZoneId zone;
+
     /**
-     * 日期格式化器
+     * 已编译的模式
      */
-    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private final ConcurrentMap<String, CompiledIndexPattern> compiled = new ConcurrentHashMap<>();
+
+    public IndexPatternResolver() {
+        this(ZoneId.systemDefault());
+    }
 
     /**
-     * 用于匹配占位符的正则表达式模式
-     * 匹配格式为 %{...} 的占位符
+     * @param zone 计算日期占位符所用的时区
      */
-    private static final Pattern PATTERN_PATTERN = Pattern.compile("%\\{([^}]+)\\}");
+    public IndexPatternResolver(ZoneId zone) {
+        this.zone = zone;
+    }
 
     /**
-     * 解析索引模式字符串，将其中的日期占位符替换为实际的日期值
+     * 解析索引模式字符串，将其中的日期占位符替换为当前日期
      *
      * @param pattern 包含占位符的索引模式字符串，例如 "app-logs-%{yyyy-MM-dd}"
      * @return 解析后的实际索引名称，如果输入为null或空字符串则返回默认值 "app-logs"
      */
     public String resolve(String pattern) {
         if (pattern == null || pattern.trim().isEmpty()) {
-            return "app-logs";
+            return DEFAULT_INDEX;
         }
+        return compiled.computeIfAbsent(pattern, this::compile).resolve();
+    }
 
-        String result = pattern;
-        Matcher matcher = PATTERN_PATTERN.matcher(pattern);
-
-        while (matcher.find()) {
-            String placeholder = matcher.group(0); // 完整的 %{xxx}
-            String key = matcher.group(1);        // xxx
+    /**
+     * 编译索引模式：拆分为字面量段和日期格式段，并确定时间桶粒度
+     *
+     * @param pattern 包含占位符的索引模式字符串，null 或空字符串编译为默认值 "app-logs"
+     */
+    public CompiledIndexPattern compile(String pattern) {
+        List<Object> segments = new ArrayList<>();
+        if (pattern == null || pattern.trim().isEmpty()) {
+            segments.add(DEFAULT_INDEX);
+            return new CompiledIndexPattern(segments, null, zone);
+        }
 
-            String replacement = resolvePlaceholder(key);
-            if (replacement != null) {
-                result = result.replace(placeholder, replacement);
+        ChronoUnit bucketUnit = null;
+        StringBuilder literal = new StringBuilder();
+        int position = 0;
+        while (position < pattern.length()) {
+            int open = pattern.indexOf("%{", position);
+            int close = open < 0 ? -1 : pattern.indexOf('}', open + 2);
+            if (open < 0 || close < 0) {
+                literal.append(pattern, position, pattern.length());
+                break;
+            }
+            literal.append(pattern, position, open);
+            String key = pattern.substring(open + 2, close);
+            String datePattern = toDatePattern(key);
+            DateTimeFormatter formatter = datePattern != null ? ofPattern(datePattern) : null;
+            if (formatter == null) {
+                // 无法识别的占位符原样保留
+                literal.append(pattern, open, close + 1);
+            } else {
+                if (literal.length() > 0) {
+                    segments.add(literal.toString());
+                    literal.setLength(0);
+                }
+                segments.add(formatter);
+                ChronoUnit unit = unitOf(datePattern);
+                bucketUnit = combine(bucketUnit, unit != null ? unit : ChronoUnit.DAYS);
             }
+            position = close + 1;
         }
-
-        return result;
+        if (literal.length() > 0) {
+            segments.add(literal.toString());
+        }
+        return new CompiledIndexPattern(segments, bucketUnit, zone);
     }
 
     /**
-     * 解析特定的占位符并返回对应的日期字符串
+     * 把占位符的键名转换为日期格式模式
      *
      * @param key 占位符的键名（不包含 %{ 和 }），例如 "yyyy-MM-dd"
-     * @return 对应的日期字符串，如果键名不支持则返回null
      */
-    private String resolvePlaceholder(String key) {
-        switch (key.toLowerCase()) {
+    private static String toDatePattern(String key) {
+        switch (key.toLowerCase(Locale.ROOT)) {
             case "yyyy.mm.dd":
-                return LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy.MM.dd"));
+                return "yyyy.MM.dd";
             case "yyyy-mm-dd":
-                return LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd"));
-            case "yyyy_mm_dd":
-                return LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy_MM_dd"));
             case "date":
-                return LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE);
+                return "yyyy-MM-dd";
+            case "yyyy_mm_dd":
+                return "yyyy_MM_dd";
             case "month":
-                return LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM"));
+                return "yyyy-MM";
             case "day":
-                return LocalDateTime.now().format(DateTimeFormatter.ofPattern("dd"));
+                return "dd";
             case "hour":
-                return LocalDateTime.now().format(DateTimeFormatter.ofPattern("HH"));
+                return "HH";
             default:
-                return null;
+                return key;
+        }
+    }
+
+    private static DateTimeFormatter ofPattern(String datePattern) {
+        try {
+            return DateTimeFormatter.ofPattern(datePattern, Locale.ROOT);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 日期格式模式中最细的字段；小于秒的字段按秒处理，与时间无关的字段（时区、纪元）忽略。
+     * 基于周的年份（Y）按周计：12 月末的几天可能属于下一年的第 1 周，不能按日历年分桶
+     */
+    private static ChronoUnit unitOf(String datePattern) {
+        ChronoUnit unit = null;
+        boolean quoted = false;
+        for (int i = 0; i < datePattern.length(); i++) {
+            char c = datePattern.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;
+                continue;
+            }
+            if (quoted) {
+                continue;
+            }
+            switch (c) {
+                case 'y':
+                case 'u':
+                    unit = combine(unit, ChronoUnit.YEARS);
+                    break;
+                case 'Y':
+                    unit = combine(unit, ChronoUnit.WEEKS);
+                    break;
+                case 'M':
+                case 'L':
+                case 'Q':
+                case 'q':
+                    unit = combine(unit, ChronoUnit.MONTHS);
+                    break;
+                case 'w':
+                case 'W':
+                case 'd':
+                case 'D':
+                case 'E':
+                case 'e':
+                case 'c':
+                case 'F':
+                    unit = combine(unit, ChronoUnit.DAYS);
+                    break;
+                case 'a':
+                case 'h':
+                case 'H':
+                case 'k':
+                case 'K':
+                    unit = combine(unit, ChronoUnit.HOURS);
+                    break;
+                case 'm':
+                    unit = combine(unit, ChronoUnit.MINUTES);
+                    break;
+                case 's':
+                case 'S':
+                case 'n':
+                case 'N':
+                case 'A':
+                    unit = combine(unit, ChronoUnit.SECONDS);
+                    break;
+                default:
+                    break;
+            }
+        }
+        return unit;
+    }
+
+    /**
+     * 合并两个桶粒度：取较细者；周与月、年的边界互不对齐，两者同时出现时按天分桶
+     */
+    private static ChronoUnit combine(ChronoUnit a, ChronoUnit b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        if ((a == ChronoUnit.WEEKS && b.compareTo(ChronoUnit.WEEKS) > 0)
+                || (b == ChronoUnit.WEEKS && a.compareTo(ChronoUnit.WEEKS) > 0)) {
+            return ChronoUnit.DAYS;
         }
+        return a.compareTo(b) <= 0 ? a : b;
     }
 }
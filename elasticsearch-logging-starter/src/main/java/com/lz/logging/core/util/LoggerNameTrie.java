@@ -0,0 +1,128 @@
+package com.lz.logging.core.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Logger 名称前缀树
+ *
+ * <p>按 "." 分段预编译一组 Logger 名称前缀，查询时返回最长匹配前缀对应的值。
+ * 例如配置了 {@code com.foo=A} 和 {@code com.foo.cache=B}：</p>
+ * <pre>
+ * com.foo.cache.Loader  -> B
+ * com.foo.Service       -> A
+ * com.foobar.Service    -> 根节点值（按分段匹配，com.foo 不匹配 com.foobar）
+ * </pre>
+ *
+ * <p>树构建后不可变，可被多线程并发读取；查询过程只做字符区间比较，不创建任何对象。</p>
+ *
+ * @param <V> 值类型
+ */
+public final class LoggerNameTrie<V> {
+
+    private final Node<V> root;
+
+    private LoggerNameTrie(Node<V> root) {
+        this.root = root;
+    }
+
+    /**
+     * 编译前缀树
+     *
+     * @param prefixes  Logger 名称前缀到值的映射
+     * @param rootValue 没有任何前缀匹配时返回的值
+     */
+    public static <V> LoggerNameTrie<V> compile(Map<String, V> prefixes, V rootValue) {
+        MutableNode<V> root = new MutableNode<>(null);
+        root.value = rootValue;
+        if (prefixes != null) {
+            for (Map.Entry<String, V> entry : prefixes.entrySet()) {
+                String prefix = entry.getKey() == null ? "" : entry.getKey().trim();
+                MutableNode<V> node = root;
+                if (!prefix.isEmpty()) {
+                    for (String segment : prefix.split("\\.")) {
+                        node = node.children.computeIfAbsent(segment, MutableNode::new);
+                    }
+                }
+                node.value = entry.getValue();
+            }
+        }
+        return new LoggerNameTrie<>(root.freeze());
+    }
+
+    /**
+     * 查找最长匹配前缀的值
+     */
+    public V find(String loggerName) {
+        Node<V> node = root;
+        V result = root.value;
+        if (loggerName == null) {
+            return result;
+        }
+
+        int length = loggerName.length();
+        int start = 0;
+        while (start <= length) {
+            int end = loggerName.indexOf('.', start);
+            if (end < 0) {
+                end = length;
+            }
+            Node<V> child = node.child(loggerName, start, end - start);
+            if (child == null) {
+                break;
+            }
+            node = child;
+            if (node.value != null) {
+                result = node.value;
+            }
+            start = end + 1;
+        }
+        return result;
+    }
+
+    private static final class Node<V> {
+        private final String segment;
+        private final V value;
+        private final Node<V>[] children;
+
+        private Node(String segment, V value, Node<V>[] children) {
+            this.segment = segment;
+            this.value = value;
+            this.children = children;
+        }
+
+        private Node<V> child(String name, int offset, int length) {
+            for (Node<V> child : children) {
+                if (child.segment.length() == length && name.regionMatches(offset, child.segment, 0, length)) {
+                    return child;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final class MutableNode<V> {
+        private final String segment;
+        private final Map<String, MutableNode<V>> children = new LinkedHashMap<>();
+        private V value;
+
+        private MutableNode(String segment) {
+            this.segment = segment;
+        }
+
+        private Node<V> freeze() {
+            List<Node<V>> frozen = new ArrayList<>(children.size());
+            for (MutableNode<V> child : children.values()) {
+                frozen.add(child.freeze());
+            }
+            return new Node<>(segment, value, frozen.toArray(newNodeArray(frozen.size())));
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <V> Node<V>[] newNodeArray(int size) {
+            return (Node<V>[]) new Node<?>[size];
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.lz.logging.core.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 异常堆栈渲染器
+ *
+ * <p>按异常结构（各层异常类名和栈帧，不含异常消息）计算 64 位指纹，栈帧布局按指纹缓存在有界 LRU 中。
+ * 相同位置反复抛出的同类异常只需取一次栈帧、算一次哈希并查一次表，栈帧不再重复拼接字符串。</p>
+ *
+ * <ul>
+ *     <li>输出格式与 {@link Throwable#printStackTrace()} 一致，包括 Caused by 和 Suppressed</li>
+ *     <li>每层最多输出 maxFrames 个栈帧，与外层相同的尾部栈帧折叠为 "... n more"</li>
+ *     <li>Caused by 和 Suppressed 最多嵌套 maxCauses 层，异常链成环时也不会无限循环</li>
+ *     <li>各层异常消息随事件变化，不进入缓存，由 {@link RenderedTrace#getText(Throwable)} 在生成文档时填入</li>
+ * </ul>
+ */
+public final class StackTraceRenderer {
+
+    private final int maxFrames;
+    private final int maxCauses;
+    private final Map<Long, RenderedTrace> cache;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public StackTraceRenderer(int maxFrames, int maxCauses, int cacheSize) {
+        this.maxFrames = Math.max(1, maxFrames);
+        this.maxCauses = Math.max(0, maxCauses);
+        int capacity = Math.max(1, cacheSize);
+        this.cache = new LinkedHashMap<Long, RenderedTrace>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, RenderedTrace> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * 取异常的栈帧布局，相同结构的异常返回同一个缓存实例
+     */
+    public RenderedTrace render(Throwable throwable) {
+        long fingerprint = fingerprint(throwable);
+        RenderedTrace rendered;
+        synchronized (cache) {
+            rendered = cache.get(fingerprint);
+        }
+        if (rendered != null) {
+            hits.increment();
+            return rendered;
+        }
+        misses.increment();
+        List<String> literals = new ArrayList<>();
+        StringBuilder literal = new StringBuilder(1024);
+        layout(throwable, null, "", "", 0, literal, literals);
+        literals.add(literal.toString());
+        rendered = new RenderedTrace(this, toHex(fingerprint), literals.toArray(new String[0]));
+        synchronized (cache) {
+            RenderedTrace existing = cache.putIfAbsent(fingerprint, rendered);
+            return existing != null ? existing : rendered;
+        }
+    }
+
+    /**
+     * 异常结构的指纹：覆盖各层（含 Suppressed）的异常类名和实际输出的栈帧（类、方法、行号）
+     */
+    public long fingerprint(Throwable throwable) {
+        return finish(fingerprint(0xcbf29ce484222325L, throwable, null, 0));
+    }
+
+    private long fingerprint(long hash, Throwable throwable, StackTraceElement[] enclosing, int depth) {
+        hash = mix(hash, throwable.getClass().getName().hashCode());
+        StackTraceElement[] frames = throwable.getStackTrace();
+        hash = mix(hash, frames.length);
+        int rendered = Math.min(frames.length - framesInCommon(frames, enclosing), maxFrames);
+        for (int i = 0; i < rendered; i++) {
+            StackTraceElement frame = frames[i];
+            hash = mix(hash, frame.getClassName().hashCode());
+            hash = mix(hash, frame.getMethodName().hashCode());
+            hash = mix(hash, frame.getLineNumber());
+        }
+        if (depth < maxCauses) {
+            for (Throwable suppressed : throwable.getSuppressed()) {
+                hash = fingerprint(mix(hash, SUPPRESSED), suppressed, frames, depth + 1);
+            }
+            Throwable cause = throwable.getCause();
+            if (cause != null) {
+                hash = fingerprint(mix(hash, CAUSE), cause, frames, depth + 1);
+            }
+        }
+        return hash;
+    }
+
+    public long getCacheHits() {
+        return hits.sum();
+    }
+
+    public long getCacheMisses() {
+        return misses.sum();
+    }
+
+    public int getCacheSize() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * 按与 {@link #fingerprint} 相同的顺序遍历异常树，把每层异常消息之间的固定文本切成片段：
+     * 第 i 个片段之后填入第 i 个异常的 toString()
+     */
+    private void layout(Throwable throwable, StackTraceElement[] enclosing, String indent, String label, int depth,
+                        StringBuilder literal, List<String> literals) {
+        literal.append(indent).append(label);
+        literals.add(literal.toString());
+        literal.setLength(0);
+        literal.append('\n');
+
+        StackTraceElement[] frames = throwable.getStackTrace();
+        int rendered = Math.min(frames.length - framesInCommon(frames, enclosing), maxFrames);
+        for (int i = 0; i < rendered; i++) {
+            literal.append(indent).append("\tat ").append(frames[i]).append('\n');
+        }
+        if (rendered < frames.length) {
+            literal.append(indent).append("\t... ").append(frames.length - rendered).append(" more\n");
+        }
+
+        Throwable[] suppressed = throwable.getSuppressed();
+        Throwable cause = throwable.getCause();
+        if (depth >= maxCauses) {
+            if (suppressed.length > 0 || cause != null) {
+                literal.append(indent).append("... further causes omitted\n");
+            }
+            return;
+        }
+        for (Throwable each : suppressed) {
+            layout(each, frames, indent + "\t", "Suppressed: ", depth + 1, literal, literals);
+        }
+        if (cause != null) {
+            layout(cause, frames, indent, "Caused by: ", depth + 1, literal, literals);
+        }
+    }
+
+    /**
+     * 按 {@link #layout} 的遍历顺序依次写入片段和各层异常的 toString()
+     *
+     * @return 下一个待写入的片段下标
+     */
+    private int fill(Throwable throwable, int depth, String[] literals, int slot, StringBuilder builder) {
+        // 指纹碰撞时结构可能不一致，多出的异常不再输出
+        if (slot >= literals.length - 1) {
+            return slot;
+        }
+        builder.append(literals[slot++]).append(throwable);
+        if (depth < maxCauses) {
+            for (Throwable suppressed : throwable.getSuppressed()) {
+                slot = fill(suppressed, depth + 1, literals, slot, builder);
+            }
+            Throwable cause = throwable.getCause();
+            if (cause != null) {
+                slot = fill(cause, depth + 1, literals, slot, builder);
+            }
+        }
+        return slot;
+    }
+
+    /**
+     * 与外层异常相同的尾部栈帧数
+     */
+    private static int framesInCommon(StackTraceElement[] frames, StackTraceElement[] enclosing) {
+        if (enclosing == null) {
+            return 0;
+        }
+        int i = frames.length - 1;
+        int j = enclosing.length - 1;
+        int common = 0;
+        while (i >= 0 && j >= 0 && frames[i].equals(enclosing[j])) {
+            common++;
+            i--;
+            j--;
+        }
+        return common;
+    }
+
+    private static final int CAUSE = 1;
+    private static final int SUPPRESSED = 2;
+
+    private static long mix(long hash, int value) {
+        return (hash ^ value) * 0x100000001b3L;
+    }
+
+    private static long finish(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static String toHex(long value) {
+        String hex = Long.toHexString(value);
+        return hex.length() == 16 ? hex : "0000000000000000".substring(hex.length()) + hex;
+    }
+
+    /**
+     * 已渲染的堆栈：指纹、栈帧布局，以及最近一次输出完整文本的索引周期
+     */
+    public static final class RenderedTrace {
+
+        private final StackTraceRenderer renderer;
+        private final String fingerprint;
+        private final String[] literals;
+        private final int length;
+        private boolean shipped;
+        private long shippedPeriod;
+
+        RenderedTrace(StackTraceRenderer renderer, String fingerprint, String[] literals) {
+            this.renderer = renderer;
+            this.fingerprint = fingerprint;
+            this.literals = literals;
+            int length = 0;
+            for (String literal : literals) {
+                length += literal.length();
+            }
+            this.length = length;
+        }
+
+        public String getFingerprint() {
+            return fingerprint;
+        }
+
+        /**
+         * 在缓存的栈帧布局中填入各层异常的 toString()，得到完整的堆栈文本
+         *
+         * @param throwable 与本布局指纹相同的异常
+         */
+        public String getText(Throwable throwable) {
+            StringBuilder builder = new StringBuilder(length + 64 * literals.length);
+            int slot = renderer.fill(throwable, 0, literals, 0, builder);
+            return builder.append(literals[slot]).toString();
+        }
+
+        /**
+         * 记录在给定索引周期内输出了完整文本
+         *
+         * @return 该周期内第一次输出时返回 true
+         */
+        public synchronized boolean markShipped(long period) {
+            if (shipped && shippedPeriod == period) {
+                return false;
+            }
+            shipped = true;
+            shippedPeriod = period;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.lz.logging.core.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 时间戳编码器
+ *
+ * <p>ISO 格式输出带时区偏移的 ISO 8601 字符串（如 2024-01-15T10:30:00.123+08:00），Elasticsearch 无需猜测时区。
+ * 同一秒内的前缀（日期、时分秒）和时区偏移只格式化一次并缓存，每条事件只追加三位毫秒，
+ * 直接写入调用方的字符数组、StringBuilder 或 JsonGenerator，不创建中间对象。</p>
+ *
+ * <p>EPOCH_MILLIS 格式直接输出毫秒时间戳数值，适用于 date 和 date_nanos 类型字段的默认格式。</p>
+ */
+public final class TimestampEncoder {
+
+    public enum Format {
+        ISO,
+        EPOCH_MILLIS;
+
+        /**
+         * 解析配置值（忽略大小写，"-" 与 "_" 等价），无法识别时返回 ISO
+         */
+        public static Format of(String name) {
+            if (name != null && "epoch_millis".equalsIgnoreCase(name.trim().replace('-', '_'))) {
+                return EPOCH_MILLIS;
+            }
+            return ISO;
+        }
+    }
+
+    /**
+     * ISO 字符串的最大长度：前缀最长 27 位（6 位年份带符号）、毫秒 3 位、偏移最长 9 位
+     */
+    public static final int MAX_LENGTH = 40;
+
+    private static final DateTimeFormatter PREFIX_FORMATTER = DateTimeFormatter.ofPattern("uuuu-MM-dd'T'HH:mm:ss.");
+
+    private final Format format;
+    private final ZoneId zone;
+    private final ThreadLocal<char[]> buffers = ThreadLocal.withInitial(() -> new char[MAX_LENGTH]);
+
+    private volatile Second current = new Second(Long.MIN_VALUE, new char[0], new char[0]);
+
+    public TimestampEncoder(Format format, ZoneId zone) {
+        this.format = format;
+        this.zone = zone;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    /**
+     * 是否输出数值（而不是字符串）
+     */
+    public boolean isNumeric() {
+        return format != Format.ISO;
+    }
+
+    /**
+     * 把 ISO 字符串写入字符数组，返回写入结束的位置；数组剩余空间至少为 {@link #MAX_LENGTH}
+     */
+    public int encodeIso(long epochMillis, char[] dest, int offset) {
+        long epochSecond = Math.floorDiv(epochMillis, 1000L);
+        Second second = current;
+        if (second.epochSecond != epochSecond) {
+            second = new Second(epochSecond, zone);
+            current = second;
+        }
+        int pos = offset;
+        System.arraycopy(second.prefix, 0, dest, pos, second.prefix.length);
+        pos += second.prefix.length;
+        int millis = (int) Math.floorMod(epochMillis, 1000L);
+        dest[pos++] = (char) ('0' + millis / 100);
+        dest[pos++] = (char) ('0' + millis / 10 % 10);
+        dest[pos++] = (char) ('0' + millis % 10);
+        System.arraycopy(second.offset, 0, dest, pos, second.offset.length);
+        return pos + second.offset.length;
+    }
+
+    /**
+     * 编码为字符串，用于需要独立字符串的场景（兜底文档、调试输出）
+     */
+    public String encode(long epochMillis) {
+        if (isNumeric()) {
+            return Long.toString(epochMillis);
+        }
+        char[] buffer = buffers.get();
+        return new String(buffer, 0, encodeIso(epochMillis, buffer, 0));
+    }
+
+    /**
+     * 以 JSON 值的形式追加：ISO 格式带引号，数值格式不带引号
+     */
+    public void appendJsonValue(long epochMillis, StringBuilder out) {
+        if (isNumeric()) {
+            out.append(epochMillis);
+            return;
+        }
+        char[] buffer = buffers.get();
+        int length = encodeIso(epochMillis, buffer, 0);
+        out.append('"').append(buffer, 0, length).append('"');
+    }
+
+    /**
+     * 以 JSON 值的形式写入生成器
+     */
+    public void writeTo(long epochMillis, JsonGenerator generator) throws IOException {
+        if (isNumeric()) {
+            generator.writeNumber(epochMillis);
+            return;
+        }
+        char[] buffer = buffers.get();
+        generator.writeString(buffer, 0, encodeIso(epochMillis, buffer, 0));
+    }
+
+    /**
+     * 某一秒的缓存：格式化好的前缀和该时刻的时区偏移
+     */
+    private static final class Second {
+        final long epochSecond;
+        final char[] prefix;
+        final char[] offset;
+
+        Second(long epochSecond, char[] prefix, char[] offset) {
+            this.epochSecond = epochSecond;
+            this.prefix = prefix;
+            this.offset = offset;
+        }
+
+        Second(long epochSecond, ZoneId zone) {
+            ZonedDateTime time = Instant.ofEpochSecond(epochSecond).atZone(zone);
+            this.epochSecond = epochSecond;
+            this.prefix = PREFIX_FORMATTER.format(time).toCharArray();
+            this.offset = time.getOffset().getId().toCharArray();
+        }
+    }
+}
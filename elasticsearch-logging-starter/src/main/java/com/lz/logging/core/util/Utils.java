@@ -1,8 +1,14 @@
 package com.lz.logging.core.util;
 
+import org.slf4j.event.Level;
+
 import java.lang.management.ManagementFactory;
+import java.time.ZoneId;
 
 public class Utils {
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
     private Utils() {
         // 工具类，私有构造器
     }
@@ -27,14 +33,81 @@ public class Utils {
         return str == null || str.trim().isEmpty();
     }
 
+    /**
+     * 解析时区 ID，为空或无法识别时返回系统默认时区
+     */
+    public static ZoneId toZoneId(String zoneId) {
+        if (!isBlank(zoneId)) {
+            try {
+                return ZoneId.of(zoneId.trim());
+            } catch (Exception ignored) {
+            }
+        }
+        return ZoneId.systemDefault();
+    }
+
+    /**
+     * 解析日志级别名称（忽略大小写），无法识别时返回默认级别
+     */
+    public static Level toLevel(String name, Level defaultLevel) {
+        if (isBlank(name)) {
+            return defaultLevel;
+        }
+        try {
+            return Level.valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return defaultLevel;
+        }
+    }
+
+    /**
+     * 转义 JSON 字符串内容（不含引号），一次遍历完成；不需要转义时返回原字符串
+     */
     public static String escapeJson(String input) {
         if (input == null) {
             return "";
         }
-        return input.replace("\\", "\\\\")
-                .replace("\"", "\\\"")
-                .replace("\n", "\\n")
-                .replace("\r", "\\r")
-                .replace("\t", "\\t");
+        int length = input.length();
+        int i = 0;
+        while (i < length) {
+            char c = input.charAt(i);
+            if (c < 0x20 || c == '"' || c == '\\') {
+                break;
+            }
+            i++;
+        }
+        if (i == length) {
+            // 大多数字符串不需要转义，直接返回原对象
+            return input;
+        }
+        StringBuilder out = new StringBuilder(length + 16).append(input, 0, i);
+        for (; i < length; i++) {
+            char c = input.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+                    } else {
+                        out.append(c);
+                    }
+                    break;
+            }
+        }
+        return out.toString();
     }
 }
@@ -1,26 +1,54 @@
 package com.lz.logging.logback;
 
 import ch.qos.logback.classic.spi.ILoggingEvent;
-import ch.qos.logback.core.AppenderBase;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
 import com.lz.logging.config.ElasticsearchLoggingProperties;
 import com.lz.logging.core.client.ElasticsearchLogClient;
 import com.lz.logging.core.model.EsLogDocument;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import com.lz.logging.core.model.LogEventSnapshot;
+import com.lz.logging.core.pipeline.EventCollapser;
+import com.lz.logging.core.pipeline.LevelCounters;
+import com.lz.logging.core.pipeline.LogPipeline;
+import com.lz.logging.core.pipeline.OverflowPolicy;
+import com.lz.logging.core.pipeline.TraceSampler;
+import com.lz.logging.core.util.Utils;
+import org.slf4j.event.Level;
+
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Elasticsearch Logback Appender - 将日志发送到 Elasticsearch 的自定义 Appender
  *
- * 此 Appender 继承自 Logback 的 AppenderBase，用于将应用程序日志发送到 Elasticsearch 存储。
- * 支持同步和异步两种发送模式，通过配置可以控制日志发送的方式。
+ * 此 Appender 继承自 Logback 的 UnsynchronizedAppenderBase，append 过程不持有任何全局锁。
+ * 事件首先经过 {@link LevelThresholdFilter} 按 minLevel 和按包阈值过滤，未达到阈值的事件不做任何转换；
+ * 发送熔断期间事件同样在转换前被丢弃并按级别计数。
+ * 启用 samplingEnabled 时，低于 WARN 的事件在捕获快照前按 traceId 一致地采样（{@link TraceSampler}），
+ * 保留的文档记录实际采样率。
+ * 启用 collapseEnabled 时，序列化阶段先经过 {@link EventCollapser}：窗口内重复的相同事件不再转换，
+ * 窗口结束后合并为一条带 count 的汇总文档。
+ * 异步模式下日志按流水线分阶段处理：
+ * <ol>
+ *     <li>采集：业务线程只捕获不可变的 {@link LogEventSnapshot}，并在有界无锁环形队列中抢占一个槽位</li>
+ *     <li>序列化：若干序列化工作线程把快照转换为文档并序列化为字节</li>
+ *     <li>批量发送：由 ElasticsearchLogClient 的发送阶段组装批次并发送</li>
+ * </ol>
+ * 队列已满时按 {@link OverflowPolicy} 阻塞等待或丢弃事件，丢弃数按级别精确计数；
+ * 默认策略下业务线程永不阻塞，其耗时与文档大小和 MDC 条目数无关。
+ * 启用 reuseDocuments 时，每个序列化工作线程独占一个预分配的文档载体：转换写入载体、序列化为字节后立即清空，
+ * 载体从不离开所属的工作线程，稳态下转换阶段不再为每条事件分配文档对象。
+ * 同步模式下，日志会在调用线程上直接发送到 Elasticsearch。
  *
  * @author Administrator
  * @since 1.0.0
  */
 
-public class ElasticsearchLogAppender extends AppenderBase<ILoggingEvent> {
+public class ElasticsearchLogAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
 
-    private static final Logger logger = LoggerFactory.getLogger(ElasticsearchLogAppender.class);
+    /**
+     * 停止时等待序列化工作线程排空队列的最长时间（毫秒）
+     */
+    private static final long STOP_TIMEOUT_MILLIS = 3000;
 
     /**
      * Elasticsearch 日志客户端，用于与 Elasticsearch 服务进行通信
@@ -32,6 +60,11 @@ public class ElasticsearchLogAppender extends AppenderBase<ILoggingEvent> {
      */
     private final LogEventConverter logEventConverter;
 
+    /**
+     * 级别阈值过滤器，在捕获快照之前拒绝未达到阈值的事件
+     */
+    private final LevelThresholdFilter levelThresholdFilter;
+
     /**
      * 是否启用异步发送模式
      * 异步模式下，日志会通过异步方式发送到 Elasticsearch，提高性能
@@ -39,53 +72,161 @@ public class ElasticsearchLogAppender extends AppenderBase<ILoggingEvent> {
      */
     private boolean async = true;
 
+    /**
+     * 异步队列容量，实际容量会向上取整为 2 的幂
+     */
+    private int queueSize = 10000;
+
+    /**
+     * 序列化工作线程数
+     */
+    private int serializerThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+    /**
+     * 是否为每个序列化工作线程复用文档载体
+     */
+    private boolean reuseDocuments = false;
+
+    /**
+     * 按工作线程编号预分配的文档载体，未启用复用时为 null
+     */
+    private volatile EsLogDocument[] carriers;
+
+    /**
+     * 异步队列溢出策略
+     */
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_NEWEST;
+
+    /**
+     * BLOCK / DISCARD_BELOW_LEVEL 策略下等待队列空间的最长时间（毫秒）
+     */
+    private int overflowBlockTimeout = 100;
+
+    /**
+     * DISCARD_BELOW_LEVEL 策略下的保留级别
+     */
+    private Level overflowDiscardLevel = Level.WARN;
+
+    /**
+     * 异步模式下的处理流水线
+     */
+    private LogPipeline pipeline;
+
+    /**
+     * 按 traceId 一致的采样器，未启用时为 null
+     */
+    private TraceSampler sampler;
+
+    /**
+     * 错误风暴折叠阶段，未启用时为 null
+     */
+    private EventCollapser collapser;
+
+    /**
+     * 因队列溢出被丢弃的事件数，按级别统计
+     */
+    private final LevelCounters droppedEvents = new LevelCounters();
+
+    /**
+     * 未达到级别阈值被过滤的事件数
+     */
+    private final LongAdder filteredEvents = new LongAdder();
+
+    /**
+     * 通过级别过滤、熔断检查和采样，进入转换阶段的事件数
+     */
+    private final LongAdder acceptedEvents = new LongAdder();
+
+    /**
+     * 发送熔断期间被丢弃的事件数，按级别统计
+     */
+    private final LevelCounters circuitBreakerDroppedEvents = new LevelCounters();
+
+    /**
+     * 未被采样而丢弃的事件数，按级别统计
+     */
+    private final LevelCounters sampledOutEvents = new LevelCounters();
+
     /**
      * 无参构造函数，初始化日志事件转换器
      * 注意：使用此构造函数时，需要通过 setter 方法设置 ElasticsearchLogClient
      */
     public ElasticsearchLogAppender() {
         this.logEventConverter = new LogEventConverter();
+        this.levelThresholdFilter = new LevelThresholdFilter("INFO", null);
     }
 
     /**
      * 构造函数，使用指定的客户端和配置属性初始化 Appender
      *
      * @param elasticsearchLogClient Elasticsearch日志客户端，用于发送日志数据
-     * @param properties 配置属性对象，用于设置异步模式等参数
-     * @throws IllegalArgumentException 如果参数为 null，则抛出此异常
+     * @param properties 配置属性对象，用于设置异步模式、队列大小等参数
      */
     public ElasticsearchLogAppender(ElasticsearchLogClient elasticsearchLogClient,
                                     ElasticsearchLoggingProperties properties) {
         this.elasticsearchLogClient = elasticsearchLogClient;
         this.logEventConverter = new LogEventConverter(properties);
+        this.levelThresholdFilter = new LevelThresholdFilter(properties.getMinLevel(), properties.getLoggerLevels());
         // 根据配置设置异步模式
         this.async = properties.isAsync();
+        this.queueSize = properties.getQueueSize();
+        this.serializerThreads = properties.getSerializerThreads();
+        this.reuseDocuments = properties.isReuseDocuments();
+        this.overflowPolicy = properties.getOverflowPolicy();
+        this.overflowBlockTimeout = properties.getOverflowBlockTimeout();
+        this.overflowDiscardLevel = Utils.toLevel(properties.getOverflowDiscardLevel(), Level.WARN);
+        if (properties.isSamplingEnabled()) {
+            this.sampler = new TraceSampler(properties.getSampleRates(), properties.getLoggerSampleRates());
+        }
+        if (properties.isCollapseEnabled()) {
+            this.collapser = new EventCollapser(properties.getCollapseWindow(), properties.getCollapseMaxKeys(),
+                    properties.getCollapseSampleSize(), Utils.toLevel(properties.getCollapseMinLevel(), Level.ERROR),
+                    logEventConverter::exceptionFingerprint, this::dispatchSummary);
+        }
     }
 
     /**
      * 追加日志事件到 Elasticsearch
      *
-     * 此方法是 Appender 的核心方法，当有日志事件产生时会被调用。
-     * 将 Logback 的 ILoggingEvent 转换为 Elasticsearch 文档格式，
-     * 然后根据配置的异步/同步模式发送到 Elasticsearch。
+     * 异步模式下只捕获事件快照并写入环形队列，不做任何转换、序列化或 I/O；
+     * 同步模式下在调用线程上完成转换并发送。
      *
      * @param eventObject Logback 日志事件对象，包含日志的所有信息
      */
     @Override
     protected void append(ILoggingEvent eventObject) {
-        try {
-            // 将 Logback 事件转换为 ES 文档
-            EsLogDocument document = logEventConverter.convert(eventObject);
-
-            // 发送日志到 Elasticsearch
-            if (async) {
-                elasticsearchLogClient.sendAsync(document);
-            } else {
-                elasticsearchLogClient.sendSync(document);
+        if (!levelThresholdFilter.isEnabled(eventObject.getLoggerName(), eventObject.getLevel())) {
+            filteredEvents.increment();
+            return;
+        }
+        if (!elasticsearchLogClient.isAcceptingEvents()) {
+            circuitBreakerDroppedEvents.increment(LogEventConverter.toSlf4jLevel(eventObject.getLevel()));
+            return;
+        }
+
+        TraceSampler currentSampler = sampler;
+        if (currentSampler != null) {
+            Level level = LogEventConverter.toSlf4jLevel(eventObject.getLevel());
+            if (!currentSampler.isSampled(eventObject.getLoggerName(), level,
+                    LogEventConverter.traceIdOf(eventObject.getMDCPropertyMap()))) {
+                sampledOutEvents.increment(level);
+                return;
             }
-        } catch (Exception e) {
-            addError("Failed to send log to Elasticsearch", e);
         }
+
+        acceptedEvents.increment();
+        LogEventSnapshot snapshot = logEventConverter.capture(eventObject);
+        if (!async) {
+            dispatch(snapshot, null);
+            return;
+        }
+
+        LogPipeline current = pipeline;
+        if (current == null) {
+            droppedEvents.increment(snapshot.getLevel());
+            return;
+        }
+        current.offer(snapshot);
     }
 
     /**
@@ -93,9 +234,295 @@ public class ElasticsearchLogAppender extends AppenderBase<ILoggingEvent> {
      *
      * 在 Appender 启动时验证必要的依赖是否已正确注入，
      * 如果 ElasticsearchLogClient 为 null，则记录错误并阻止 Appender 启动。
+     * 异步模式下会创建处理流水线并启动序列化工作线程。
      */
     @Override
     public void start() {
+        if (isStarted()) {
+            return;
+        }
+        if (elasticsearchLogClient == null) {
+            addError("ElasticsearchLogClient is not set for appender [" + name + "]");
+            return;
+        }
+
+        if (collapser != null) {
+            collapser.start();
+        }
+        if (async) {
+            pipeline = new LogPipeline("es-log-serializer", queueSize, serializerThreads, new DispatchHandler(),
+                    overflowPolicy, overflowBlockTimeout, overflowDiscardLevel, droppedEvents);
+            if (reuseDocuments) {
+                EsLogDocument[] preallocated = new EsLogDocument[pipeline.getWorkerCount()];
+                for (int i = 0; i < preallocated.length; i++) {
+                    preallocated[i] = new EsLogDocument();
+                }
+                carriers = preallocated;
+            }
+            pipeline.start();
+        }
         super.start();
     }
+
+    /**
+     * 停止 Appender
+     *
+     * 先拒绝新事件，再等待序列化工作线程排空队列（最多 {@value #STOP_TIMEOUT_MILLIS} 毫秒）。
+     */
+    @Override
+    public void stop() {
+        if (!isStarted()) {
+            return;
+        }
+        super.stop();
+
+        if (pipeline != null) {
+            if (!pipeline.stop(STOP_TIMEOUT_MILLIS)) {
+                addWarn("Pipeline did not drain queue in " + STOP_TIMEOUT_MILLIS + "ms, "
+                        + pipeline.size() + " events discarded");
+            }
+            pipeline = null;
+            carriers = null;
+        }
+        if (collapser != null) {
+            // 队列排空后再输出未完成的汇总
+            collapser.stop();
+        }
+    }
+
+    /**
+     * 序列化工作线程的事件处理器：按工作线程编号取其独占的文档载体
+     */
+    private final class DispatchHandler implements LogPipeline.EventHandler {
+
+        @Override
+        public void onEvent(LogEventSnapshot event) {
+            dispatch(event, null);
+        }
+
+        @Override
+        public void onEvent(int worker, LogEventSnapshot event) {
+            EsLogDocument[] current = carriers;
+            dispatch(event, current != null && worker < current.length ? current[worker] : null);
+        }
+    }
+
+    /**
+     * @param carrier 可复用的文档载体，为 null 时新建文档；载体只在本方法内使用，发送阶段在返回前已完成序列化，
+     *                因此返回前即可清空
+     */
+    private void dispatch(LogEventSnapshot event, EsLogDocument carrier) {
+        EventCollapser current = collapser;
+        if (current != null && !current.offer(event)) {
+            // 已并入窗口内的聚合，不再单独转换
+            return;
+        }
+        try {
+            // 将事件快照转换为 ES 文档，目标索引按事件自身的时间计算
+            EsLogDocument document = carrier != null
+                    ? logEventConverter.convert(event, carrier)
+                    : logEventConverter.convert(event);
+            applySampleRate(document, event);
+            send(document, event.getTimeStamp());
+        } catch (Exception e) {
+            addError("Failed to send log to Elasticsearch", e);
+        } finally {
+            if (carrier != null) {
+                carrier.reset();
+            }
+        }
+    }
+
+    private void dispatchSummary(EventCollapser.CollapsedEvents summary) {
+        try {
+            EsLogDocument document = logEventConverter.convert(summary);
+            applySampleRate(document, summary.getEvent());
+            send(document, summary.getFirstTimeStamp());
+        } catch (Exception e) {
+            addError("Failed to send collapsed logs to Elasticsearch", e);
+        }
+    }
+
+    /**
+     * 按小于 1 的采样率保留的事件在文档上记录采样率
+     */
+    private void applySampleRate(EsLogDocument document, LogEventSnapshot event) {
+        TraceSampler currentSampler = sampler;
+        if (currentSampler != null) {
+            double rate = currentSampler.getRate(event.getLoggerName(), event.getLevel());
+            if (rate < 1.0) {
+                document.setSampleRate(rate);
+            }
+        }
+    }
+
+    private void send(EsLogDocument document, long eventTimeMillis) {
+        if (async) {
+            elasticsearchLogClient.sendAsync(document, eventTimeMillis);
+        } else {
+            elasticsearchLogClient.sendSync(document, eventTimeMillis);
+        }
+    }
+
+    /* ================= 配置与状态 ================= */
+
+    public void setElasticsearchLogClient(ElasticsearchLogClient elasticsearchLogClient) {
+        this.elasticsearchLogClient = elasticsearchLogClient;
+    }
+
+    /**
+     * 只替换全局最低级别，已配置的 Logger 级别阈值保持不变
+     *
+     * @param minLevel 全局最低级别，如 INFO
+     */
+    public void setMinLevel(String minLevel) {
+        levelThresholdFilter.setMinLevel(minLevel);
+    }
+
+    /**
+     * 运行时重新加载级别阈值，无需重建 Appender；
+     * 使用 Spring Cloud 时由 {@link com.lz.logging.config.ElasticsearchLoggingRefreshListener} 在配置刷新后调用
+     *
+     * @param minLevel     全局最低级别
+     * @param loggerLevels Logger 名称前缀到级别名称的映射
+     */
+    public void reloadLevelThresholds(String minLevel, Map<String, String> loggerLevels) {
+        levelThresholdFilter.reload(minLevel, loggerLevels);
+    }
+
+    /**
+     * 运行时重新加载采样率；未启用采样时无效。调用时机同 {@link #reloadLevelThresholds(String, Map)}
+     *
+     * @param sampleRates       级别名称到采样率的映射
+     * @param loggerSampleRates Logger 名称前缀到采样率的映射
+     */
+    public void reloadSampleRates(Map<String, Double> sampleRates, Map<String, Double> loggerSampleRates) {
+        TraceSampler currentSampler = sampler;
+        if (currentSampler != null) {
+            currentSampler.reload(sampleRates, loggerSampleRates);
+        }
+    }
+
+    public TraceSampler getSampler() {
+        return sampler;
+    }
+
+    public LevelThresholdFilter getLevelThresholdFilter() {
+        return levelThresholdFilter;
+    }
+
+    public boolean isAsync() {
+        return async;
+    }
+
+    public void setAsync(boolean async) {
+        this.async = async;
+    }
+
+    public boolean isReuseDocuments() {
+        return reuseDocuments;
+    }
+
+    /**
+     * 在 start() 之前设置才生效
+     */
+    public void setReuseDocuments(boolean reuseDocuments) {
+        this.reuseDocuments = reuseDocuments;
+    }
+
+    public int getSerializerThreads() {
+        return serializerThreads;
+    }
+
+    public void setSerializerThreads(int serializerThreads) {
+        this.serializerThreads = serializerThreads;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    public int getOverflowBlockTimeout() {
+        return overflowBlockTimeout;
+    }
+
+    public void setOverflowBlockTimeout(int overflowBlockTimeout) {
+        this.overflowBlockTimeout = overflowBlockTimeout;
+    }
+
+    /**
+     * @param overflowDiscardLevel 级别名称，如 WARN
+     */
+    public void setOverflowDiscardLevel(String overflowDiscardLevel) {
+        this.overflowDiscardLevel = Utils.toLevel(overflowDiscardLevel, Level.WARN);
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    /**
+     * 当前队列中等待发送的事件数
+     */
+    public int getQueueDepth() {
+        LogPipeline current = pipeline;
+        return current != null ? current.size() : 0;
+    }
+
+    /**
+     * 因队列溢出被丢弃的事件总数
+     */
+    public long getDroppedEvents() {
+        return droppedEvents.total();
+    }
+
+    /**
+     * 未达到级别阈值被过滤的事件总数
+     */
+    public long getFilteredEvents() {
+        return filteredEvents.sum();
+    }
+
+    /**
+     * 通过级别过滤、熔断检查和采样的事件总数，其中队列溢出的部分另计入丢弃数
+     */
+    public long getAcceptedEvents() {
+        return acceptedEvents.sum();
+    }
+
+    /**
+     * 因队列溢出被丢弃的事件数，按级别统计
+     */
+    public LevelCounters getDroppedEventCounters() {
+        return droppedEvents;
+    }
+
+    /**
+     * 未被采样而丢弃的事件数，按级别统计
+     */
+    public LevelCounters getSampledOutEventCounters() {
+        return sampledOutEvents;
+    }
+
+    /**
+     * 错误风暴折叠阶段，未启用时为 null；可查询折叠条数、汇总数和当前跟踪的键数
+     */
+    public EventCollapser getCollapser() {
+        return collapser;
+    }
+
+    /**
+     * 发送熔断期间被丢弃的事件数，按级别统计
+     */
+    public LevelCounters getCircuitBreakerDroppedEventCounters() {
+        return circuitBreakerDroppedEvents;
+    }
 }
@@ -0,0 +1,74 @@
+package com.lz.logging.logback;
+
+import ch.qos.logback.classic.Level;
+import com.lz.logging.core.util.LoggerNameTrie;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 日志级别阈值过滤器
+ *
+ * <p>在任何转换工作之前，按全局最低级别（minLevel）和按包配置的阈值（如 {@code com.foo.cache=WARN}）
+ * 判断事件是否需要发送到 Elasticsearch。阈值编译为 {@link LoggerNameTrie}，按最长前缀匹配。</p>
+ *
+ * <p>阈值可在运行时通过 {@link #reload(String, Map)} 重新加载：新的前缀树构建完成后以 volatile 写替换，
+ * 正在进行的判断不受影响，无需重建 Appender；{@link #setMinLevel(String)} 只替换全局最低级别，保留按包配置的阈值。</p>
+ */
+public class LevelThresholdFilter {
+
+    private volatile LoggerNameTrie<Level> thresholds;
+
+    /**
+     * 当前生效的按包阈值，供 {@link #setMinLevel(String)} 重新编译；只在持有实例锁时读写
+     */
+    private Map<String, Level> loggerLevels = Collections.emptyMap();
+
+    public LevelThresholdFilter(String minLevel, Map<String, String> loggerLevels) {
+        reload(minLevel, loggerLevels);
+    }
+
+    /**
+     * 重新加载阈值
+     *
+     * @param minLevel     全局最低级别，无法识别时为 INFO
+     * @param loggerLevels Logger 名称前缀到级别名称的映射，可为 null
+     */
+    public synchronized void reload(String minLevel, Map<String, String> loggerLevels) {
+        Map<String, Level> compiled = new LinkedHashMap<>();
+        if (loggerLevels != null) {
+            for (Map.Entry<String, String> entry : loggerLevels.entrySet()) {
+                Level level = Level.toLevel(entry.getValue(), null);
+                if (level != null) {
+                    compiled.put(entry.getKey(), level);
+                }
+            }
+        }
+        this.loggerLevels = compiled;
+        this.thresholds = LoggerNameTrie.compile(compiled, Level.toLevel(minLevel, Level.INFO));
+    }
+
+    /**
+     * 只替换全局最低级别，按包配置的阈值保持不变
+     *
+     * @param minLevel 全局最低级别，无法识别时为 INFO
+     */
+    public synchronized void setMinLevel(String minLevel) {
+        this.thresholds = LoggerNameTrie.compile(loggerLevels, Level.toLevel(minLevel, Level.INFO));
+    }
+
+    /**
+     * 判断事件是否达到其 Logger 对应的阈值
+     */
+    public boolean isEnabled(String loggerName, Level level) {
+        return level.isGreaterOrEqual(thresholds.find(loggerName));
+    }
+
+    /**
+     * 查询指定 Logger 当前生效的阈值
+     */
+    public Level getThreshold(String loggerName) {
+        return thresholds.find(loggerName);
+    }
+}
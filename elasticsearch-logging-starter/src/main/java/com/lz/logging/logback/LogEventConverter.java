@@ -1,13 +1,22 @@
 package com.lz.logging.logback;
 
+import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
 import ch.qos.logback.classic.spi.ThrowableProxy;
 import com.lz.logging.config.ElasticsearchLoggingProperties;
+import com.lz.logging.core.model.ConstantFields;
 import com.lz.logging.core.model.EsLogDocument;
+import com.lz.logging.core.model.LogEventSnapshot;
+import com.lz.logging.core.model.MdcLayout;
+import com.lz.logging.core.model.MessageMode;
+import com.lz.logging.core.pipeline.EventCollapser;
+import com.lz.logging.core.util.CompiledIndexPattern;
+import com.lz.logging.core.util.IndexPatternResolver;
+import com.lz.logging.core.util.StackTraceRenderer;
+import com.lz.logging.core.util.Utils;
+import org.slf4j.helpers.MessageFormatter;
 
-import java.time.Instant;
-import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
 import java.util.Map;
 
 /**
@@ -15,69 +24,207 @@ import java.util.Map;
  */
 public class LogEventConverter {
 
-    private final DateTimeFormatter timestampFormatter;
-    private final String applicationName;
-    private final String environment;
+    /**
+     * application、environment、host、pid 固定字段块，创建时预编码
+     */
+    private final ConstantFields constantFields;
+    private final MessageMode messageMode;
+    /**
+     * MDC 白名单，未配置时为 null，输出整个 MDC
+     */
+    private final MdcLayout mdcLayout;
+    private final StackTraceRenderer stackTraceRenderer;
+    private final boolean stackTraceFingerprintOnly;
+    /**
+     * 目标索引模式，只用于计算索引周期
+     */
+    private final CompiledIndexPattern indexPattern;
 
     public LogEventConverter(ElasticsearchLoggingProperties properties) {
-        ZoneId zoneId = ZoneId.systemDefault();
-        if (properties != null && properties.getZoneId() != null) {
-            try {
-                zoneId = ZoneId.of(properties.getZoneId());
-            } catch (Exception ignored) {
-            }
-        }
-        this.timestampFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS").withZone(zoneId);
-        this.applicationName = properties != null ? properties.getApplicationName() : null;
-        this.environment = properties != null ? properties.getEnvironment() : null;
+        this.constantFields = new ConstantFields(
+                properties != null ? properties.getApplicationName() : null,
+                properties != null ? properties.getEnvironment() : null,
+                Utils.getHostname(), Utils.getProcessId());
+        ElasticsearchLoggingProperties config = properties != null ? properties : new ElasticsearchLoggingProperties();
+        this.messageMode = config.getMessageMode() != null ? config.getMessageMode() : MessageMode.FORMATTED;
+        this.mdcLayout = MdcLayout.compile(config.getMdcKeys());
+        this.stackTraceRenderer = config.getStackTraceDepth() > 0
+                ? new StackTraceRenderer(config.getStackTraceDepth(), config.getStackTraceCauseDepth(),
+                        config.getStackTraceCacheSize())
+                : null;
+        this.stackTraceFingerprintOnly = config.isStackTraceFingerprintOnly();
+        this.indexPattern = new IndexPatternResolver(Utils.toZoneId(config.getZoneId())).compile(config.getIndex());
     }
 
     public LogEventConverter() {
         this(null);
     }
 
+    /**
+     * 在调用线程上捕获事件快照：只读取字段引用；FORMATTED 模式下同时格式化消息，其他模式只捕获模板和参数
+     */
+    public LogEventSnapshot capture(ILoggingEvent event) {
+        IThrowableProxy throwableProxy = event.getThrowableProxy();
+        Throwable throwable = throwableProxy instanceof ThrowableProxy
+                ? ((ThrowableProxy) throwableProxy).getThrowable()
+                : null;
+        boolean formatted = messageMode == MessageMode.FORMATTED;
+        return new LogEventSnapshot(
+                event.getTimeStamp(),
+                toSlf4jLevel(event.getLevel()),
+                event.getLoggerName(),
+                event.getThreadName(),
+                formatted ? event.getFormattedMessage() : null,
+                event.getMessage(),
+                formatted ? null : event.getArgumentArray(),
+                event.getMDCPropertyMap(),
+                throwable);
+    }
+
     public EsLogDocument convert(ILoggingEvent event) {
-        EsLogDocument document = new EsLogDocument();
+        return convert(capture(event));
+    }
+
+    public EsLogDocument convert(LogEventSnapshot event) {
+        return convert(event, new EsLogDocument());
+    }
+
+    /**
+     * 把快照转换到给定的文档载体中；载体必须是新建的或已经 {@link EsLogDocument#reset()} 过的
+     *
+     * @return 传入的载体
+     */
+    public EsLogDocument convert(LogEventSnapshot event, EsLogDocument document) {
 
-        // 设置基本属性
-        document.setTimestamp(timestampFormatter.format(Instant.ofEpochMilli(event.getTimeStamp())));
+        // 设置基本属性；时间戳在序列化时按配置的格式直接写出
+        document.setTimestampMillis(event.getTimeStamp());
         document.setLevel(event.getLevel().toString());
         document.setLogger(event.getLoggerName());
-        document.setMessage(event.getFormattedMessage());
+        switch (messageMode) {
+            case LAZY:
+                document.setMessage(event.getMessage());
+                document.setMessageTemplate(event.getMessageTemplate());
+                document.setArguments(toStrings(event.getArguments()));
+                break;
+            case TEMPLATE:
+                document.setMessage(event.getMessageTemplate());
+                document.setMessageTemplate(event.getMessageTemplate());
+                document.setArguments(toStrings(event.getArguments()));
+                break;
+            case FORMATTED:
+            default:
+                document.setMessage(event.getMessage());
+                break;
+        }
         document.setThread(event.getThreadName());
 
-        if (applicationName != null) {
-            document.setApplication(applicationName);
-        }
-        if (environment != null) {
-            document.setEnvironment(environment);
-        }
+        constantFields.applyTo(document);
 
-        // 设置异常信息
-        ThrowableProxy throwableProxy = (ThrowableProxy) event.getThrowableProxy();
-        if (throwableProxy != null) {
-            document.setException(throwableProxy.getThrowable().getMessage());
+        // 设置异常信息：类名和消息，以及按指纹缓存的栈帧布局填入各层消息后的堆栈
+        Throwable throwable = event.getThrowable();
+        if (throwable != null) {
+            document.setException(throwable.toString());
+            if (stackTraceRenderer != null) {
+                StackTraceRenderer.RenderedTrace trace = stackTraceRenderer.render(throwable);
+                document.setStackFingerprint(trace.getFingerprint());
+                if (!stackTraceFingerprintOnly
+                        || trace.markShipped(indexPattern.bucketStart(event.getTimeStamp()))) {
+                    document.setStackTrace(trace.getText(throwable));
+                }
+            }
         }
 
         // 设置 MDC 信息
-        Map<String, String> mdcMap = event.getMDCPropertyMap();
-        if (mdcMap != null && !mdcMap.isEmpty()) {
+        Map<String, String> mdcMap = event.getMdc();
+        if (mdcLayout != null) {
+            // 只按白名单查找，不引用整个 MDC
+            mdcLayout.apply(mdcMap, document);
+        } else if (mdcMap != null && !mdcMap.isEmpty()) {
             document.setMdc(mdcMap);
 
             // 提取 TraceId 和 SpanId
-            if (mdcMap.containsKey("traceId")) {
-                document.setTraceId(mdcMap.get("traceId"));
-            } else if (mdcMap.containsKey("trace_id")) {
-                document.setTraceId(mdcMap.get("trace_id"));
-            }
+            document.setTraceId(traceIdOf(mdcMap));
 
-            if (mdcMap.containsKey("spanId")) {
-                document.setSpanId(mdcMap.get("spanId"));
-            } else if (mdcMap.containsKey("span_id")) {
-                document.setSpanId(mdcMap.get("span_id"));
-            }
+            String spanId = mdcMap.get("spanId");
+            document.setSpanId(spanId != null ? spanId : mdcMap.get("span_id"));
         }
 
         return document;
     }
+
+    /**
+     * 把折叠汇总转换为一条文档：以第一条被折叠的事件为代表，附加条数、首末时间戳和 MDC 样本
+     */
+    public EsLogDocument convert(EventCollapser.CollapsedEvents summary) {
+        EsLogDocument document = convert(summary.getEvent());
+        document.setCount(summary.getCount());
+        document.setFirstTimestamp(summary.getFirstTimeStamp());
+        document.setLastTimestamp(summary.getLastTimeStamp());
+        if (!summary.getSampleMdc().isEmpty()) {
+            document.setSampleMdc(summary.getSampleMdc());
+        }
+        return document;
+    }
+
+    /**
+     * 异常结构指纹，用于识别相同的事件；未启用堆栈输出时退化为异常类名的哈希
+     */
+    public long exceptionFingerprint(Throwable throwable) {
+        return stackTraceRenderer != null
+                ? stackTraceRenderer.fingerprint(throwable)
+                : throwable.getClass().getName().hashCode();
+    }
+
+    /**
+     * 堆栈渲染器，未启用堆栈输出时为 null
+     */
+    public StackTraceRenderer getStackTraceRenderer() {
+        return stackTraceRenderer;
+    }
+
+    /**
+     * 从 MDC 中读取 traceId（traceId 或 trace_id），不存在时返回 null
+     */
+    public static String traceIdOf(Map<String, String> mdc) {
+        if (mdc == null || mdc.isEmpty()) {
+            return null;
+        }
+        String traceId = mdc.get("traceId");
+        return traceId != null ? traceId : mdc.get("trace_id");
+    }
+
+    /**
+     * 参数转换为字符串，数组参数按 SLF4J 格式化数组的方式展开
+     */
+    private static String[] toStrings(Object[] arguments) {
+        if (arguments == null || arguments.length == 0) {
+            return null;
+        }
+        String[] strings = new String[arguments.length];
+        for (int i = 0; i < arguments.length; i++) {
+            Object argument = arguments[i];
+            strings[i] = argument != null && argument.getClass().isArray()
+                    ? MessageFormatter.arrayFormat("{}", new Object[]{argument}).getMessage()
+                    : String.valueOf(argument);
+        }
+        return strings;
+    }
+
+    /**
+     * Logback 级别转换为 SLF4J 级别；事件上不会出现 OFF / ALL
+     */
+    static org.slf4j.event.Level toSlf4jLevel(Level level) {
+        switch (level.toInt()) {
+            case Level.ERROR_INT:
+                return org.slf4j.event.Level.ERROR;
+            case Level.WARN_INT:
+                return org.slf4j.event.Level.WARN;
+            case Level.INFO_INT:
+                return org.slf4j.event.Level.INFO;
+            case Level.DEBUG_INT:
+                return org.slf4j.event.Level.DEBUG;
+            default:
+                return org.slf4j.event.Level.TRACE;
+        }
+    }
 }
@@ -0,0 +1,104 @@
+package com.lz.logging.test;
+
+import com.lz.logging.config.ElasticsearchLoggingProperties;
+import com.lz.logging.core.bulk.AdaptiveBulkController;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AdaptiveBulkControllerTest {
+
+    private static ElasticsearchLoggingProperties adaptiveProperties() {
+        ElasticsearchLoggingProperties properties = new ElasticsearchLoggingProperties();
+        properties.setAdaptiveBulkEnabled(true);
+        properties.setBulkSize(1000);
+        properties.setAdaptiveMinBulkSize(100);
+        properties.setAdaptiveMaxBulkSize(2100);
+        properties.setConcurrentRequests(2);
+        properties.setAdaptiveMaxConcurrentRequests(4);
+        properties.setAdaptiveTargetLatency(500);
+        // 每个批次都触发一次调整
+        properties.setAdaptiveAdjustInterval(0);
+        return properties;
+    }
+
+    @Test
+    public void testAdditiveIncreaseAndMultiplicativeDecrease() {
+        AdaptiveBulkController controller = new AdaptiveBulkController(adaptiveProperties());
+        long fast = TimeUnit.MILLISECONDS.toNanos(50);
+
+        controller.onBulkCompleted(1000, 20, fast, 0, true);
+        assertThat(controller.getBulkActions()).isEqualTo(1100);
+
+        controller.onPermitWait();
+        controller.onBulkCompleted(1100, 20, fast, 0, true);
+        assertThat(controller.getBulkActions()).isEqualTo(1200);
+        assertThat(controller.getConcurrency()).isEqualTo(3);
+
+        // 5% 的条目被拒绝，超过 1% 的阈值
+        controller.onBulkCompleted(1200, 20, fast, 60, true);
+        assertThat(controller.getBulkActions()).isEqualTo(600);
+        assertThat(controller.getConcurrency()).isEqualTo(2);
+
+        assertThat(controller.getHistory()).extracting(AdaptiveBulkController.Adjustment::getReason)
+                .containsExactly("healthy", "healthy", "rejected");
+    }
+
+    @Test
+    public void testRejectionRateBelowThresholdHoldsLimits() {
+        AdaptiveBulkController controller = new AdaptiveBulkController(adaptiveProperties());
+        long fast = TimeUnit.MILLISECONDS.toNanos(50);
+
+        // 1000 条中 1 条被拒绝，低于 1% 的阈值：不减半，也不增长
+        controller.onPermitWait();
+        controller.onBulkCompleted(1000, 20, fast, 1, true);
+        assertThat(controller.getBulkActions()).isEqualTo(1000);
+        assertThat(controller.getConcurrency()).isEqualTo(2);
+
+        // 整批被拒绝时所有条目都计为被拒绝
+        controller.onBulkFailed(1000, fast, true);
+        assertThat(controller.getBulkActions()).isEqualTo(500);
+        assertThat(controller.getHistory()).extracting(AdaptiveBulkController.Adjustment::getRejectedItems)
+                .containsExactly(1000L);
+    }
+
+    @Test
+    public void testSlowRoundTripWithHealthyTookKeepsConcurrency() {
+        AdaptiveBulkController controller = new AdaptiveBulkController(adaptiveProperties());
+        for (int i = 0; i < 10; i++) {
+            controller.onPermitWait();
+            controller.onBulkCompleted(1000, 20, TimeUnit.SECONDS.toNanos(2), 0, true);
+        }
+        assertThat(controller.getConcurrency()).isEqualTo(2);
+        assertThat(controller.getBulkActions()).isEqualTo(1000);
+        assertThat(controller.getHistory()).isEmpty();
+    }
+
+    @Test
+    public void testStaysWithinBounds() {
+        AdaptiveBulkController controller = new AdaptiveBulkController(adaptiveProperties());
+        for (int i = 0; i < 20; i++) {
+            controller.onBulkFailed(100, TimeUnit.SECONDS.toNanos(1), true);
+        }
+        assertThat(controller.getBulkActions()).isEqualTo(100);
+        assertThat(controller.getConcurrency()).isEqualTo(1);
+
+        // 批次未装满（按间隔发出）时不增大批次
+        controller.onBulkCompleted(100, 20, TimeUnit.MILLISECONDS.toNanos(50), 0, false);
+        assertThat(controller.getBulkActions()).isEqualTo(100);
+    }
+
+    @Test
+    public void testDisabledKeepsConfiguredValues() {
+        ElasticsearchLoggingProperties properties = adaptiveProperties();
+        properties.setAdaptiveBulkEnabled(false);
+        AdaptiveBulkController controller = new AdaptiveBulkController(properties);
+        controller.onBulkFailed(100, 0, true);
+        assertThat(controller.getBulkActions()).isEqualTo(1000);
+        assertThat(controller.getBulkBytes()).isEqualTo(properties.getBulkMaxBytes());
+        assertThat(controller.getConcurrency()).isEqualTo(2);
+        assertThat(controller.getHistory()).isEmpty();
+    }
+}
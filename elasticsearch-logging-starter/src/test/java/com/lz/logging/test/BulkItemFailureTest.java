@@ -0,0 +1,212 @@
+package com.lz.logging.test;
+
+import com.lz.logging.config.ElasticsearchLoggingProperties;
+import com.lz.logging.core.bulk.BulkItem;
+import com.lz.logging.core.bulk.StripedBulkSender;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.rest.RestStatus;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BulkItemFailureTest {
+
+    private static final String TOO_MANY_REQUESTS = "{\"index\":{\"status\":429,\"error\":"
+            + "{\"type\":\"es_rejected_execution_exception\",\"reason\":\"busy\"}}}";
+    private static final String BAD_REQUEST = "{\"index\":{\"status\":400,\"error\":"
+            + "{\"type\":\"mapper_parsing_exception\",\"reason\":\"failed to parse field [user]\"}}}";
+    private static final String CREATED = "{\"index\":{\"status\":201}}";
+
+    private HttpServer server;
+    private RestHighLevelClient client;
+    private final List<String> requestBodies = new CopyOnWriteArrayList<>();
+
+    /**
+     * 按请求序号（从 0 开始）和文档行返回单条结果
+     */
+    private volatile ItemResponder responder = (request, source) -> CREATED;
+
+    /**
+     * 响应中额外追加的条目，用于模拟条目数与请求不一致的响应
+     */
+    private volatile String extraItem;
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/_bulk", exchange -> {
+            String body;
+            try (InputStream in = exchange.getRequestBody()) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                byte[] chunk = new byte[4096];
+                int read;
+                while ((read = in.read(chunk)) != -1) {
+                    bytes.write(chunk, 0, read);
+                }
+                body = new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+            }
+            int request = requestBodies.size();
+            requestBodies.add(body);
+            String[] lines = body.split("\n");
+            StringBuilder items = new StringBuilder();
+            boolean errors = false;
+            for (int i = 1; i < lines.length; i += 2) {
+                String item = responder.respond(request, lines[i]);
+                errors |= item != CREATED;
+                items.append(items.length() > 0 ? "," : "").append(item);
+            }
+            if (extraItem != null) {
+                errors = true;
+                items.append(',').append(extraItem);
+            }
+            byte[] response = ("{\"took\":1,\"errors\":" + errors + ",\"items\":[" + items + "]}")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        });
+        server.start();
+        client = new RestHighLevelClient(RestClient.builder(
+                new HttpHost("127.0.0.1", server.getAddress().getPort())));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        client.close();
+        server.stop(0);
+    }
+
+    @Test
+    public void testThrottledItemIsRetriedUntilItSucceeds() throws Exception {
+        responder = (request, source) -> request == 0 && source.contains("\"b\"") ? TOO_MANY_REQUESTS : CREATED;
+        StripedBulkSender sender = start(properties(3));
+        add(sender, "a", "b");
+
+        awaitCondition(() -> requestBodies.size() == 2 && sender.getSentItems() == 3);
+        assertThat(sender.awaitClose(3, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(requestBodies.get(1)).contains("\"b\"").doesNotContain("\"a\"");
+        assertThat(sender.getRetriedItems()).isEqualTo(1);
+        assertThat(sender.getFailedItems()).isZero();
+        assertThat(sender.getItemFailures()).containsEntry(RestStatus.TOO_MANY_REQUESTS, 1L);
+    }
+
+    @Test
+    public void testExhaustedRetriesAreCountedAsFailed() throws Exception {
+        responder = (request, source) -> TOO_MANY_REQUESTS;
+        StripedBulkSender sender = start(properties(1));
+        add(sender, "a");
+
+        awaitCondition(() -> sender.getFailedItems() == 1);
+        assertThat(sender.awaitClose(3, TimeUnit.SECONDS)).isTrue();
+
+        // 首次发送加一次重试
+        assertThat(requestBodies).hasSize(2);
+        assertThat(sender.getRetriedItems()).isEqualTo(1);
+        assertThat(sender.getFailedItems()).isEqualTo(1);
+    }
+
+    @Test
+    public void testMappingErrorIsSentToDeadLetterIndex() throws Exception {
+        responder = (request, source) -> source.contains("ingestError") ? CREATED : BAD_REQUEST;
+        ElasticsearchLoggingProperties properties = properties(3);
+        properties.setDeadLetterIndex("logs-dead-letter");
+        StripedBulkSender sender = start(properties);
+        add(sender, "a");
+
+        awaitCondition(() -> requestBodies.size() == 2 && sender.getSentItems() == 2);
+        assertThat(sender.awaitClose(3, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(requestBodies.get(1))
+                .contains("\"_index\":\"logs-dead-letter\"")
+                .contains("\"level\":\"ERROR\"")
+                .contains("\"message\":\"a\"")
+                .contains("failed to parse field [user]")
+                .doesNotContain("\"user\"");
+        assertThat(sender.getDeadLetteredItems()).isEqualTo(1);
+        assertThat(sender.getRetriedItems()).isZero();
+        assertThat(sender.getFailedItems()).isZero();
+    }
+
+    @Test
+    public void testRetriesPendingAtCloseAreCountedAsFailed() throws Exception {
+        responder = (request, source) -> TOO_MANY_REQUESTS;
+        StripedBulkSender sender = start(properties(3));
+        add(sender, "a", "b");
+
+        awaitCondition(() -> sender.getRetriedItems() == 2);
+        assertThat(sender.awaitClose(3, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(requestBodies).hasSize(1);
+        assertThat(sender.getFailedItems()).isEqualTo(2);
+    }
+
+    @Test
+    public void testFailureAtUnknownPositionIsIgnored() throws Exception {
+        // 每个响应都多出一条失败，位置超出请求的条目数
+        extraItem = TOO_MANY_REQUESTS;
+        responder = (request, source) -> request == 0 ? TOO_MANY_REQUESTS : CREATED;
+        StripedBulkSender sender = start(properties(3));
+        add(sender, "a");
+
+        awaitCondition(() -> requestBodies.size() == 2 && sender.getSentItems() == 2);
+        assertThat(sender.awaitClose(3, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(sender.getRetriedItems()).isEqualTo(1);
+        assertThat(sender.getFailedItems()).isZero();
+        assertThat(sender.getItemFailures()).containsOnlyKeys(RestStatus.TOO_MANY_REQUESTS)
+                .containsEntry(RestStatus.TOO_MANY_REQUESTS, 1L);
+    }
+
+    private static ElasticsearchLoggingProperties properties(int maxRetries) {
+        ElasticsearchLoggingProperties properties = new ElasticsearchLoggingProperties();
+        properties.setBulkLanes(1);
+        properties.setBulkTransport("ndjson");
+        properties.setBulkInterval(20);
+        properties.setMaxRetries(maxRetries);
+        return properties;
+    }
+
+    private StripedBulkSender start(ElasticsearchLoggingProperties properties) {
+        StripedBulkSender sender = new StripedBulkSender(client, properties, null, null);
+        sender.start();
+        return sender;
+    }
+
+    private static void add(StripedBulkSender sender, String... messages) {
+        for (String message : messages) {
+            byte[] source = ("{\"level\":\"ERROR\",\"message\":\"" + message + "\",\"user\":{\"id\":1}}")
+                    .getBytes(StandardCharsets.UTF_8);
+            sender.add(new BulkItem("logs", null, source, 1704067200000L, "ERROR", message));
+        }
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+
+    private interface ItemResponder {
+        String respond(int request, String source);
+    }
+}
@@ -0,0 +1,103 @@
+package com.lz.logging.test;
+
+import com.lz.logging.core.client.CircuitBreaker;
+import com.lz.logging.core.client.CircuitBreaker.Permission;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CircuitBreakerTest {
+
+    @Test
+    public void testOpensOnFailureRatioAndRecoversThroughProbe() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker(10, 0.5, 10_000, 50, 1_000);
+        for (int i = 0; i < 5; i++) {
+            assertThat(breaker.tryAcquirePermission()).isEqualTo(Permission.CALL);
+            breaker.record(Permission.CALL, false, 0);
+        }
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.allowsTraffic()).isFalse();
+        assertThat(breaker.tryAcquirePermission()).isEqualTo(Permission.DENIED);
+
+        Thread.sleep(60);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(breaker.allowsTraffic()).isTrue();
+        // 半开状态同一时刻只放行一个探测批次，探测在途期间不接收新事件
+        assertThat(breaker.tryAcquirePermission()).isEqualTo(Permission.PROBE);
+        assertThat(breaker.tryAcquirePermission()).isEqualTo(Permission.DENIED);
+        assertThat(breaker.isProbeInFlight()).isTrue();
+        assertThat(breaker.allowsTraffic()).isFalse();
+
+        breaker.record(Permission.PROBE, true, 0);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.getOpenedCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testFailedProbeDoublesOpenDuration() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker(10, 0.5, 10_000, 50, 1_000);
+        open(breaker);
+
+        breaker.recordPing(true);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(breaker.tryAcquirePermission()).isEqualTo(Permission.PROBE);
+        breaker.record(Permission.PROBE, false, 0);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.getCurrentOpenDurationMillis()).isEqualTo(100);
+    }
+
+    @Test
+    public void testSlowCallsCountAsFailures() {
+        CircuitBreaker breaker = new CircuitBreaker(10, 0.5, 100, 1_000, 1_000);
+        for (int i = 0; i < 5; i++) {
+            breaker.record(Permission.CALL, true, 200_000_000L);
+        }
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    public void testOnlyProbeResultEndsHalfOpen() {
+        CircuitBreaker breaker = new CircuitBreaker(10, 0.5, 10_000, 1_000, 1_000);
+        open(breaker);
+        breaker.recordPing(true);
+        assertThat(breaker.tryAcquirePermission()).isEqualTo(Permission.PROBE);
+
+        // 熔断前发出的普通批次在半开期间返回，不能代替探测结果
+        breaker.record(Permission.CALL, true, 0);
+        breaker.record(Permission.CALL, false, 0);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(breaker.isProbeInFlight()).isTrue();
+
+        breaker.record(Permission.PROBE, true, 0);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.isProbeInFlight()).isFalse();
+        assertThat(breaker.tryAcquirePermission()).isEqualTo(Permission.CALL);
+    }
+
+    @Test
+    public void testPingFailuresCountTowardsFailureRatio() {
+        CircuitBreaker breaker = new CircuitBreaker(10, 0.5, 10_000, 1_000, 1_000);
+        // 单次 ping 失败不熔断
+        breaker.recordPing(false);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.allowsTraffic()).isTrue();
+
+        for (int i = 0; i < 3; i++) {
+            breaker.record(Permission.CALL, true, 0);
+        }
+        breaker.recordPing(false);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        // 窗口内 6 次结果中 3 次失败，达到 0.5 的阈值
+        breaker.recordPing(false);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    static void open(CircuitBreaker breaker) {
+        for (int i = 0; i < 5; i++) {
+            breaker.record(Permission.CALL, false, 0);
+        }
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+}
@@ -0,0 +1,75 @@
+package com.lz.logging.test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lz.logging.core.model.ConstantFields;
+import com.lz.logging.core.model.EsLogDocument;
+import com.lz.logging.core.model.EsLogDocumentModule;
+import com.lz.logging.core.util.EncodedNameCache;
+import com.lz.logging.core.util.TimestampEncoder;
+import org.junit.Test;
+
+import java.time.ZoneId;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConstantFieldsTest {
+
+    private final ObjectMapper mapper = new ObjectMapper().registerModule(new EsLogDocumentModule(
+            new TimestampEncoder(TimestampEncoder.Format.EPOCH_MILLIS, ZoneId.of("UTC")), 2));
+
+    @Test
+    public void testConstantBlockIsSplicedOnce() throws Exception {
+        ConstantFields constantFields = new ConstantFields("order \"svc\"", null, "host-1", "42");
+
+        for (String logger : new String[]{"com.foo.A", "com.foo.B", "com.foo.C"}) {
+            EsLogDocument document = document(logger);
+            constantFields.applyTo(document);
+
+            // 字节和字符两种输出都应得到合法且相同的 JSON
+            String json = new String(mapper.writeValueAsBytes(document), "UTF-8");
+            assertThat(json).isEqualTo(mapper.writeValueAsString(document));
+            assertThat(json.split("\"application\"", -1)).hasSize(2);
+            assertThat(json).doesNotContain("environment");
+
+            JsonNode node = new ObjectMapper().readTree(json);
+            assertThat(node.get("application").asText()).isEqualTo("order \"svc\"");
+            assertThat(node.get("host").asText()).isEqualTo("host-1");
+            assertThat(node.get("pid").asText()).isEqualTo("42");
+            assertThat(node.get("logger").asText()).isEqualTo(logger);
+            assertThat(node.get("level").asText()).isEqualTo("INFO");
+            assertThat(node.get("message").asText()).isEqualTo("hello");
+        }
+    }
+
+    @Test
+    public void testDocumentsWithoutBlockKeepTheirFields() throws Exception {
+        EsLogDocument document = document("com.foo.A");
+        document.setApplication("app");
+        document.setEnvironment("prod");
+
+        assertThat(mapper.writeValueAsString(document))
+                .contains("\"application\":\"app\"")
+                .contains("\"environment\":\"prod\"");
+    }
+
+    @Test
+    public void testNameCacheIsBounded() {
+        EncodedNameCache cache = new EncodedNameCache(2);
+        assertThat(cache.get("a")).isSameAs(cache.get("a"));
+        assertThat(cache.get("b")).isNotNull();
+        assertThat(cache.get("c")).isNull();
+        assertThat(cache.getSize()).isEqualTo(2);
+        assertThat(cache.getMisses()).isEqualTo(1);
+    }
+
+    private static EsLogDocument document(String logger) {
+        EsLogDocument document = new EsLogDocument();
+        document.setTimestampMillis(1000);
+        document.setLevel("INFO");
+        document.setLogger(logger);
+        document.setThread("main");
+        document.setMessage("hello");
+        return document;
+    }
+}
@@ -0,0 +1,103 @@
+package com.lz.logging.test;
+
+import com.lz.logging.core.bulk.BulkItem;
+import com.lz.logging.core.spool.DiskSpool;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DiskSpoolTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testAppendSealAndReadInOrder() throws Exception {
+        DiskSpool spool = new DiskSpool(folder.getRoot().toPath(), 256, 1 << 20);
+        List<BulkItem> items = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            items.add(item(i));
+        }
+        assertThat(spool.append(items)).isEqualTo(10);
+        spool.sealActive();
+
+        List<Path> segments = spool.sealedSegments();
+        // 256 字节的段放不下 10 条记录，写入过程中会自动滚动
+        assertThat(segments.size()).isGreaterThan(1);
+
+        List<BulkItem> replayed = new ArrayList<>();
+        for (Path segment : segments) {
+            replayed.addAll(spool.read(segment));
+            spool.delete(segment);
+        }
+        assertThat(replayed).hasSize(10);
+        for (int i = 0; i < 10; i++) {
+            assertThat(replayed.get(i).getId()).isEqualTo("id-" + i);
+            assertThat(replayed.get(i).getIndex()).isEqualTo("app-logs");
+            assertThat(new String(replayed.get(i).getSource(), StandardCharsets.UTF_8)).isEqualTo("{\"n\":" + i + "}");
+        }
+        assertThat(spool.hasData()).isFalse();
+    }
+
+    @Test
+    public void testRecoverAfterRestart() throws Exception {
+        DiskSpool spool = new DiskSpool(folder.getRoot().toPath(), 4096, 1 << 20);
+        spool.append(item(1));
+        spool.append(item(2));
+        spool.close();
+
+        DiskSpool reopened = new DiskSpool(folder.getRoot().toPath(), 4096, 1 << 20);
+        assertThat(reopened.hasData()).isTrue();
+        List<Path> segments = reopened.sealedSegments();
+        assertThat(segments).hasSize(1);
+        assertThat(reopened.read(segments.get(0))).extracting(BulkItem::getId).containsExactly("id-1", "id-2");
+    }
+
+    @Test
+    public void testOldestSegmentsDroppedOverLimit() throws Exception {
+        DiskSpool spool = new DiskSpool(folder.getRoot().toPath(), 128, 256);
+        for (int i = 0; i < 50; i++) {
+            spool.append(item(i));
+        }
+        spool.sealActive();
+
+        assertThat(spool.getDroppedSegments()).isGreaterThan(0);
+        assertThat(spool.getSizeInBytes()).isLessThanOrEqualTo(256);
+    }
+
+    @Test
+    public void testSegmentFileOnlyGrowsToWrittenBytes() throws Exception {
+        DiskSpool spool = new DiskSpool(folder.getRoot().toPath(), 1 << 20, 1 << 22);
+        byte[] large = new byte[10_000];
+        Arrays.fill(large, (byte) 'x');
+        spool.append(item(1));
+        spool.append(new BulkItem("app-logs", "id-2", large));
+
+        // 未封存的段没有预分配，进程崩溃后重启也能读出已写入的记录
+        DiskSpool recovered = new DiskSpool(folder.getRoot().toPath(), 1 << 20, 1 << 22);
+        List<Path> segments = recovered.sealedSegments();
+        assertThat(segments).hasSize(1);
+        assertThat(Files.size(segments.get(0))).isEqualTo(spool.getSizeInBytes());
+        List<BulkItem> items = recovered.read(segments.get(0));
+        assertThat(items).extracting(BulkItem::getId).containsExactly("id-1", "id-2");
+        assertThat(items.get(1).getSource()).isEqualTo(large);
+
+        spool.close();
+        assertThat(Files.size(segments.get(0))).isEqualTo(spool.getSizeInBytes());
+        recovered.delete(segments.get(0));
+        assertThat(Files.exists(segments.get(0))).isFalse();
+    }
+
+    private static BulkItem item(int n) {
+        return new BulkItem("app-logs", "id-" + n, ("{\"n\":" + n + "}").getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,56 @@
+package com.lz.logging.test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lz.logging.config.ElasticsearchLoggingProperties;
+import com.lz.logging.core.model.EsLogDocument;
+import com.lz.logging.core.model.EsLogDocumentModule;
+import com.lz.logging.core.model.LogEventSnapshot;
+import com.lz.logging.core.util.TimestampEncoder;
+import com.lz.logging.logback.LogEventConverter;
+import org.junit.Test;
+import org.slf4j.event.Level;
+
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DocumentReuseTest {
+
+    private final ObjectMapper mapper = new ObjectMapper().registerModule(new EsLogDocumentModule(
+            new TimestampEncoder(TimestampEncoder.Format.ISO, ZoneId.of("UTC"))));
+
+    @Test
+    public void testResetCarrierSerializesLikeFreshDocument() throws Exception {
+        ElasticsearchLoggingProperties properties = new ElasticsearchLoggingProperties();
+        properties.setApplicationName("app");
+        properties.setMdcKeys(Arrays.asList("traceId", "requestId"));
+        LogEventConverter converter = new LogEventConverter(properties);
+
+        Map<String, String> mdc = new HashMap<>();
+        mdc.put("traceId", "t-1");
+        mdc.put("requestId", "r-1");
+        LogEventSnapshot failed = new LogEventSnapshot(1000, Level.ERROR, "com.foo.Dao", "worker-1", "boom",
+                mdc, new IllegalStateException("db"));
+        LogEventSnapshot plain = new LogEventSnapshot(2000, Level.INFO, "com.foo.Service", "worker-2", "ok",
+                Collections.singletonMap("other", "x"), null);
+
+        EsLogDocument carrier = new EsLogDocument();
+        converter.convert(failed, carrier);
+        String[] slots = carrier.getMdcValues();
+        assertThat(mapper.writeValueAsString(carrier)).isEqualTo(mapper.writeValueAsString(converter.convert(failed)));
+
+        // 清空后转换另一条事件，不能残留上一条事件的任何字段
+        carrier.reset();
+        converter.convert(plain, carrier);
+        assertThat(mapper.writeValueAsString(carrier)).isEqualTo(mapper.writeValueAsString(converter.convert(plain)));
+
+        carrier.reset();
+        converter.convert(failed, carrier);
+        assertThat(carrier.getMdcValues()).isSameAs(slots).containsOnlyOnce("r-1");
+        assertThat(carrier.getTraceId()).isEqualTo("t-1");
+    }
+}
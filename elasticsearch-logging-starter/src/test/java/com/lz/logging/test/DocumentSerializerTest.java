@@ -0,0 +1,102 @@
+package com.lz.logging.test;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lz.logging.config.ElasticsearchLoggingProperties;
+import com.lz.logging.core.model.EsLogDocument;
+import com.lz.logging.core.model.EsLogDocumentModule;
+import com.lz.logging.core.model.LogEventSnapshot;
+import com.lz.logging.core.serializer.DirectLogDocumentSerializer;
+import com.lz.logging.core.serializer.JacksonLogDocumentSerializer;
+import com.lz.logging.core.util.TimestampEncoder;
+import com.lz.logging.core.util.Utils;
+import com.lz.logging.logback.LogEventConverter;
+import org.junit.Test;
+import org.slf4j.event.Level;
+
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DocumentSerializerTest {
+
+    @Test
+    public void testDirectOutputMatchesJacksonWithoutEmptyFields() throws Exception {
+        for (TimestampEncoder.Format format : TimestampEncoder.Format.values()) {
+            TimestampEncoder encoder = new TimestampEncoder(format, ZoneId.of("Asia/Shanghai"));
+            JacksonLogDocumentSerializer jackson = new JacksonLogDocumentSerializer(new ObjectMapper()
+                    .setSerializationInclusion(JsonInclude.Include.NON_EMPTY)
+                    .registerModule(new EsLogDocumentModule(encoder)));
+            DirectLogDocumentSerializer direct = new DirectLogDocumentSerializer(encoder, 16);
+
+            for (EsLogDocument document : documents()) {
+                assertThat(new String(direct.serialize(document), StandardCharsets.UTF_8))
+                        .isEqualTo(new String(jackson.serialize(document), StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    @Test
+    public void testSupplementaryCharactersAreEncodedAsUtf8() throws Exception {
+        DirectLogDocumentSerializer direct = new DirectLogDocumentSerializer(
+                new TimestampEncoder(TimestampEncoder.Format.EPOCH_MILLIS, ZoneId.of("UTC")), 16);
+        EsLogDocument document = new EsLogDocument();
+        document.setMessage("ok \uD83D\uDE00 \uD800");
+
+        byte[] bytes = direct.serialize(document);
+        assertThat(new String(bytes, StandardCharsets.UTF_8)).isEqualTo("{\"message\":\"ok \uD83D\uDE00 \\uD800\"}");
+        assertThat(new ObjectMapper().readTree(bytes).get("message").asText()).isEqualTo("ok \uD83D\uDE00 \uD800");
+    }
+
+    @Test
+    public void testEscapeJsonInSinglePass() {
+        String plain = "no escapes here";
+        assertThat(Utils.escapeJson(plain)).isSameAs(plain);
+        assertThat(Utils.escapeJson("a\"b\\c\nd\re\tf\u0001")).isEqualTo("a\\\"b\\\\c\\nd\\re\\tf\\u0001");
+        assertThat(Utils.escapeJson(null)).isEmpty();
+    }
+
+    private static EsLogDocument[] documents() {
+        ElasticsearchLoggingProperties properties = new ElasticsearchLoggingProperties();
+        properties.setApplicationName("订单服务");
+        properties.setEnvironment("prod");
+        LogEventConverter converter = new LogEventConverter(properties);
+
+        Map<String, String> mdc = new LinkedHashMap<>();
+        mdc.put("traceId", "t-1");
+        mdc.put("note", "quote \" slash \\ tab \t bell \u0007 中文");
+        EsLogDocument failed = converter.convert(new LogEventSnapshot(1700000000123L, Level.ERROR, "com.foo.Dao",
+                "worker-1", "line1\nline2", mdc, new IllegalStateException("db \"down\"")));
+        failed.setSampleRate(0.25);
+        failed.setCount(3);
+        failed.setFirstTimestamp(1700000000001L);
+        failed.setLastTimestamp(1700000000999L);
+        failed.setSampleMdc(Arrays.asList(Collections.singletonMap("a", "1"), Collections.singletonMap("b", "2")));
+        failed.setArguments(new String[]{"x", "y"});
+        Map<String, Object> extra = new LinkedHashMap<>();
+        extra.put("n", 42);
+        extra.put("ratio", 1.5);
+        extra.put("ok", true);
+        extra.put("none", null);
+        extra.put("list", Arrays.asList(1L, "two"));
+        extra.put("nested", Collections.singletonMap("k", "v"));
+        failed.setExtra(extra);
+
+        properties.setMdcKeys(Arrays.asList("trace_id:traceId", "requestId"));
+        EsLogDocument whitelisted = new LogEventConverter(properties).convert(new LogEventSnapshot(1000, Level.INFO,
+                "com.foo.Service", "main", "", Collections.singletonMap("requestId", "r-1"), null));
+
+        EsLogDocument manual = new EsLogDocument();
+        manual.setTimestamp("2024-01-01T00:00:00Z");
+        manual.setApplication("app");
+        manual.setMdc(Collections.emptyMap());
+        manual.setUserId("u-1");
+
+        return new EsLogDocument[]{failed, whitelisted, manual, new EsLogDocument()};
+    }
+}
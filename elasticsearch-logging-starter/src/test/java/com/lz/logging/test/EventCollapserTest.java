@@ -0,0 +1,95 @@
+package com.lz.logging.test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lz.logging.core.model.EsLogDocument;
+import com.lz.logging.core.model.EsLogDocumentModule;
+import com.lz.logging.core.model.LogEventSnapshot;
+import com.lz.logging.core.pipeline.EventCollapser;
+import com.lz.logging.core.util.TimestampEncoder;
+import com.lz.logging.logback.LogEventConverter;
+import org.junit.Test;
+import org.slf4j.event.Level;
+
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EventCollapserTest {
+
+    private final List<EventCollapser.CollapsedEvents> summaries = new CopyOnWriteArrayList<>();
+
+    @Test
+    public void testDuplicatesCollapseIntoOneSummaryPerWindow() throws Exception {
+        EventCollapser collapser = new EventCollapser(100, 16, 3, Level.ERROR, t -> 1L, summaries::add);
+        collapser.start();
+
+        assertThat(collapser.offer(event(Level.ERROR, "db down {}", 1000, "0"))).isTrue();
+        for (int i = 1; i <= 100; i++) {
+            assertThat(collapser.offer(event(Level.ERROR, "db down {}", 1000 + i, String.valueOf(i % 5)))).isFalse();
+        }
+        // 低于折叠级别和不同模板的事件照常处理
+        assertThat(collapser.offer(event(Level.WARN, "db down {}", 2000, "0"))).isTrue();
+        assertThat(collapser.offer(event(Level.ERROR, "cache down", 2000, "0"))).isTrue();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(3);
+        while (summaries.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        collapser.stop();
+
+        assertThat(summaries).hasSize(1);
+        EventCollapser.CollapsedEvents summary = summaries.get(0);
+        assertThat(summary.getCount()).isEqualTo(100);
+        assertThat(summary.getFirstTimeStamp()).isEqualTo(1001);
+        assertThat(summary.getLastTimeStamp()).isEqualTo(1100);
+        assertThat(summary.getSampleMdc()).hasSize(3);
+        assertThat(collapser.getCollapsedEvents()).isEqualTo(100);
+        assertThat(collapser.getTrackedKeys()).isZero();
+
+        // 窗口结束后相同事件开启新窗口
+        assertThat(collapser.offer(event(Level.ERROR, "db down {}", 3000, "0"))).isTrue();
+    }
+
+    @Test
+    public void testTrackedKeysAreBounded() {
+        EventCollapser collapser = new EventCollapser(60_000, 2, 0, Level.ERROR, t -> 1L, summaries::add);
+        for (int key = 0; key < 3; key++) {
+            for (int i = 0; i < 3; i++) {
+                collapser.offer(event(Level.ERROR, "template " + key, i, "0"));
+            }
+        }
+        assertThat(collapser.getTrackedKeys()).isEqualTo(2);
+        assertThat(collapser.getUntrackedEvents()).isEqualTo(3);
+        assertThat(collapser.getCollapsedEvents()).isEqualTo(4);
+
+        collapser.stop();
+        assertThat(summaries).extracting(EventCollapser.CollapsedEvents::getCount).containsExactly(2, 2);
+    }
+
+    @Test
+    public void testSummaryDocumentCarriesCountAndTimestamps() throws Exception {
+        EventCollapser collapser = new EventCollapser(60_000, 16, 3, Level.ERROR, t -> 1L, summaries::add);
+        collapser.offer(event(Level.ERROR, "db down {}", 1000, "0"));
+        collapser.offer(event(Level.ERROR, "db down {}", 1001, "1"));
+        collapser.offer(event(Level.ERROR, "db down {}", 1002, "2"));
+        collapser.stop();
+
+        EsLogDocument document = new LogEventConverter().convert(summaries.get(0));
+        ObjectMapper mapper = new ObjectMapper().registerModule(new EsLogDocumentModule(
+                new TimestampEncoder(TimestampEncoder.Format.ISO, ZoneId.of("UTC"))));
+        assertThat(mapper.writeValueAsString(document))
+                .contains("\"count\":2")
+                .contains("\"firstTimestamp\":\"1970-01-01T00:00:01.001Z\"")
+                .contains("\"lastTimestamp\":\"1970-01-01T00:00:01.002Z\"")
+                .contains("\"sampleMdc\":[{\"requestId\":\"1\"},{\"requestId\":\"2\"}]");
+    }
+
+    private static LogEventSnapshot event(Level level, String template, long time, String requestId) {
+        return new LogEventSnapshot(time, level, "com.foo.Dao", "worker", template.replace("{}", "x"), template,
+                Collections.singletonMap("requestId", requestId), null);
+    }
+}
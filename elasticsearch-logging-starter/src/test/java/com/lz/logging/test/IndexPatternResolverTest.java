@@ -0,0 +1,73 @@
+package com.lz.logging.test;
+
+import com.lz.logging.core.util.CompiledIndexPattern;
+import com.lz.logging.core.util.IndexPatternResolver;
+import org.junit.Test;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IndexPatternResolverTest {
+
+    private static final ZoneId ZONE = ZoneId.of("Asia/Shanghai");
+
+    private final IndexPatternResolver resolver = new IndexPatternResolver(ZONE);
+
+    private static long millis(int year, int month, int day, int hour, int minute) {
+        return ZonedDateTime.of(year, month, day, hour, minute, 0, 0, ZONE).toInstant().toEpochMilli();
+    }
+
+    @Test
+    public void testResolvesAliasesAndArbitraryPatterns() {
+        long time = millis(2023, 12, 27, 14, 30);
+        assertThat(resolver.compile("app-logs-%{yyyy.MM.dd}").resolve(time)).isEqualTo("app-logs-2023.12.27");
+        assertThat(resolver.compile("app-logs-%{date}").resolve(time)).isEqualTo("app-logs-2023-12-27");
+        assertThat(resolver.compile("app-logs-%{month}-%{hour}").resolve(time)).isEqualTo("app-logs-2023-12-14");
+        assertThat(resolver.compile("app-%{yyyy-MM-dd'h'HH}").resolve(time)).isEqualTo("app-2023-12-27h14");
+        assertThat(resolver.compile("app-logs-%{unknown!}").resolve(time)).isEqualTo("app-logs-%{unknown!}");
+        assertThat(resolver.compile("app-logs").resolve(time)).isEqualTo("app-logs");
+        assertThat(resolver.resolve("")).isEqualTo("app-logs");
+    }
+
+    @Test
+    public void testBucketsFollowFinestField() {
+        assertThat(resolver.compile("a-%{yyyy.MM}").getBucketUnit()).isEqualTo(ChronoUnit.MONTHS);
+        assertThat(resolver.compile("a-%{yyyy.MM.dd}").getBucketUnit()).isEqualTo(ChronoUnit.DAYS);
+        assertThat(resolver.compile("a-%{month}-%{hour}").getBucketUnit()).isEqualTo(ChronoUnit.HOURS);
+        assertThat(resolver.compile("a").getBucketUnit()).isNull();
+
+        CompiledIndexPattern daily = resolver.compile("logs-%{yyyy.MM.dd}");
+        assertThat(daily.resolve(millis(2023, 12, 31, 23, 59))).isEqualTo("logs-2023.12.31");
+        assertThat(daily.resolve(millis(2024, 1, 1, 0, 0))).isEqualTo("logs-2024.01.01");
+        // 迟到的事件仍按自身时间解析，且不影响已推进的缓存
+        assertThat(daily.resolve(millis(2023, 12, 31, 23, 59))).isEqualTo("logs-2023.12.31");
+        assertThat(daily.resolve(millis(2024, 1, 1, 12, 0))).isEqualTo("logs-2024.01.01");
+        assertThat(daily.bucketStart(millis(2024, 1, 1, 12, 0))).isEqualTo(millis(2024, 1, 1, 0, 0));
+    }
+
+    @Test
+    public void testWeekBasedYearFollowsWeekBoundary() {
+        assertThat(resolver.compile("a-%{YYYY}").getBucketUnit()).isEqualTo(ChronoUnit.WEEKS);
+        assertThat(resolver.compile("a-%{YYYY.ww}").getBucketUnit()).isEqualTo(ChronoUnit.DAYS);
+        // 周与月的边界不对齐
+        assertThat(resolver.compile("a-%{YYYY.MM}").getBucketUnit()).isEqualTo(ChronoUnit.DAYS);
+
+        // 2024-12-30 与 2025-01-01 同属一周，即基于周的 2025 年第 1 周；断言的日期不依赖一周从周日还是周一开始
+        CompiledIndexPattern yearly = resolver.compile("logs-%{YYYY}");
+        assertThat(yearly.resolve(millis(2024, 12, 15, 12, 0))).isEqualTo("logs-2024");
+        assertThat(yearly.resolve(millis(2024, 12, 28, 23, 59))).isEqualTo("logs-2024");
+        assertThat(yearly.resolve(millis(2024, 12, 30, 0, 0))).isEqualTo("logs-2025");
+        assertThat(yearly.resolve(millis(2025, 1, 1, 12, 0))).isEqualTo("logs-2025");
+        assertThat(yearly.bucketStart(millis(2025, 1, 1, 12, 0)))
+                .isEqualTo(yearly.bucketStart(millis(2024, 12, 30, 12, 0)))
+                .isBetween(millis(2024, 12, 29, 0, 0), millis(2024, 12, 30, 0, 0));
+
+        CompiledIndexPattern weekly = resolver.compile("logs-%{YYYY.ww}");
+        assertThat(weekly.resolve(millis(2024, 12, 28, 12, 0))).isEqualTo("logs-2024.52");
+        assertThat(weekly.resolve(millis(2024, 12, 30, 12, 0))).isEqualTo("logs-2025.01");
+        assertThat(weekly.resolve(millis(2025, 1, 4, 12, 0))).isEqualTo("logs-2025.01");
+    }
+}
@@ -0,0 +1,89 @@
+package com.lz.logging.test;
+
+import ch.qos.logback.classic.Level;
+import com.lz.logging.config.ElasticsearchLoggingProperties;
+import com.lz.logging.config.ElasticsearchLoggingRefreshListener;
+import com.lz.logging.core.client.ElasticsearchLogClient;
+import com.lz.logging.logback.ElasticsearchLogAppender;
+import com.lz.logging.logback.LevelThresholdFilter;
+import org.junit.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LevelThresholdFilterTest {
+
+    @Test
+    public void testLongestPrefixWins() {
+        Map<String, String> levels = new LinkedHashMap<>();
+        levels.put("com.foo", "DEBUG");
+        levels.put("com.foo.cache", "WARN");
+        LevelThresholdFilter filter = new LevelThresholdFilter("INFO", levels);
+
+        assertThat(filter.getThreshold("com.foo.cache.Loader")).isEqualTo(Level.WARN);
+        assertThat(filter.getThreshold("com.foo.cache")).isEqualTo(Level.WARN);
+        assertThat(filter.getThreshold("com.foo.Service")).isEqualTo(Level.DEBUG);
+        // 按分段匹配，com.foo 不匹配 com.foobar
+        assertThat(filter.getThreshold("com.foobar.Service")).isEqualTo(Level.INFO);
+        assertThat(filter.getThreshold("org.other.Service")).isEqualTo(Level.INFO);
+
+        assertThat(filter.isEnabled("com.foo.cache.Loader", Level.INFO)).isFalse();
+        assertThat(filter.isEnabled("com.foo.cache.Loader", Level.ERROR)).isTrue();
+        assertThat(filter.isEnabled("com.foo.Service", Level.DEBUG)).isTrue();
+        assertThat(filter.isEnabled("org.other.Service", Level.DEBUG)).isFalse();
+    }
+
+    @Test
+    public void testReload() {
+        LevelThresholdFilter filter = new LevelThresholdFilter("INFO", null);
+        assertThat(filter.isEnabled("com.foo.Service", Level.INFO)).isTrue();
+
+        Map<String, String> levels = new LinkedHashMap<>();
+        levels.put("com.foo", "ERROR");
+        filter.reload("WARN", levels);
+
+        assertThat(filter.isEnabled("com.foo.Service", Level.WARN)).isFalse();
+        assertThat(filter.isEnabled("org.other.Service", Level.INFO)).isFalse();
+        assertThat(filter.isEnabled("org.other.Service", Level.WARN)).isTrue();
+    }
+
+    @Test
+    public void testSetMinLevelKeepsLoggerLevels() {
+        ElasticsearchLoggingProperties properties = new ElasticsearchLoggingProperties();
+        properties.getLoggerLevels().put("com.foo", "DEBUG");
+        ElasticsearchLogClient client = new ElasticsearchLogClient(properties);
+        try {
+            ElasticsearchLogAppender appender = new ElasticsearchLogAppender(client, properties);
+            appender.setMinLevel("ERROR");
+
+            LevelThresholdFilter filter = appender.getLevelThresholdFilter();
+            assertThat(filter.getThreshold("org.other.Service")).isEqualTo(Level.ERROR);
+            assertThat(filter.getThreshold("com.foo.Service")).isEqualTo(Level.DEBUG);
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    @Test
+    public void testRefreshListenerReloadsFromEnvironment() {
+        ElasticsearchLoggingProperties properties = new ElasticsearchLoggingProperties();
+        ElasticsearchLogClient client = new ElasticsearchLogClient(properties);
+        try {
+            ElasticsearchLogAppender appender = new ElasticsearchLogAppender(client, properties);
+            MockEnvironment environment = new MockEnvironment()
+                    .withProperty("es.logging.min-level", "ERROR")
+                    .withProperty("es.logging.logger-levels.[com.foo]", "DEBUG");
+
+            new ElasticsearchLoggingRefreshListener(environment, appender).refresh();
+
+            LevelThresholdFilter filter = appender.getLevelThresholdFilter();
+            assertThat(filter.isEnabled("org.other.Service", Level.WARN)).isFalse();
+            assertThat(filter.isEnabled("com.foo.Service", Level.DEBUG)).isTrue();
+        } finally {
+            client.shutdown();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.lz.logging.test;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import com.lz.logging.config.ElasticsearchLoggingProperties;
+import com.lz.logging.core.model.EsLogDocument;
+import com.lz.logging.core.model.LogEventSnapshot;
+import com.lz.logging.core.model.MessageMode;
+import com.lz.logging.logback.LogEventConverter;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LogEventConverterTest {
+
+    private final Logger logger = new LoggerContext().getLogger("com.foo.UserService");
+
+    @Test
+    public void testLazyModeFormatsOnConvertAndShipsTemplate() {
+        CountingArgument argument = new CountingArgument("bob");
+        LogEventConverter converter = converter(MessageMode.LAZY);
+
+        LogEventSnapshot snapshot = converter.capture(event(argument));
+        assertThat(argument.calls.get()).isZero();
+
+        EsLogDocument document = converter.convert(snapshot);
+        assertThat(document.getMessage()).isEqualTo("user bob has roles [1, 2]");
+        assertThat(document.getMessageTemplate()).isEqualTo("user {} has roles {}");
+        assertThat(document.getArguments()).containsExactly("bob", "[1, 2]");
+    }
+
+    @Test
+    public void testTemplateModeNeverFormats() {
+        CountingArgument argument = new CountingArgument("bob");
+        LogEventConverter converter = converter(MessageMode.TEMPLATE);
+
+        EsLogDocument document = converter.convert(converter.capture(event(argument)));
+        assertThat(document.getMessage()).isEqualTo("user {} has roles {}");
+        assertThat(document.getArguments()).containsExactly("bob", "[1, 2]");
+        // 只为 arguments 字段转换一次
+        assertThat(argument.calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testFormattedModeKeepsPreviousBehaviour() {
+        CountingArgument argument = new CountingArgument("bob");
+        LogEventConverter converter = converter(MessageMode.FORMATTED);
+
+        LogEventSnapshot snapshot = converter.capture(event(argument));
+        assertThat(argument.calls.get()).isEqualTo(1);
+
+        EsLogDocument document = converter.convert(snapshot);
+        assertThat(document.getMessage()).isEqualTo("user bob has roles [1, 2]");
+        assertThat(document.getMessageTemplate()).isNull();
+        assertThat(document.getArguments()).isNull();
+    }
+
+    private LoggingEvent event(Object argument) {
+        return new LoggingEvent(Logger.class.getName(), logger, Level.INFO, "user {} has roles {}", null,
+                new Object[]{argument, new int[]{1, 2}});
+    }
+
+    private static LogEventConverter converter(MessageMode mode) {
+        ElasticsearchLoggingProperties properties = new ElasticsearchLoggingProperties();
+        properties.setMessageMode(mode);
+        return new LogEventConverter(properties);
+    }
+
+    private static final class CountingArgument {
+        private final String value;
+        private final AtomicInteger calls = new AtomicInteger();
+
+        CountingArgument(String value) {
+            this.value = value;
+        }
+
+        @Override
+        public String toString() {
+            calls.incrementAndGet();
+            return value;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.lz.logging.test;
+
+import com.lz.logging.core.model.LogEventSnapshot;
+import com.lz.logging.core.pipeline.LevelCounters;
+import com.lz.logging.core.pipeline.LogPipeline;
+import com.lz.logging.core.pipeline.OverflowPolicy;
+import org.junit.Test;
+import org.slf4j.event.Level;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LogPipelineOverflowTest {
+
+    @Test
+    public void testDropNewestCountsByLevel() {
+        LevelCounters dropped = new LevelCounters();
+        LogPipeline pipeline = newPipeline(OverflowPolicy.DROP_NEWEST, dropped);
+
+        fill(pipeline);
+        assertThat(pipeline.offer(event(Level.INFO))).isFalse();
+        assertThat(pipeline.offer(event(Level.ERROR))).isFalse();
+
+        assertThat(dropped.get(Level.INFO)).isEqualTo(1);
+        assertThat(dropped.get(Level.ERROR)).isEqualTo(1);
+        assertThat(dropped.total()).isEqualTo(2);
+    }
+
+    @Test
+    public void testDropOldestEvictsQueuedEvent() {
+        LevelCounters dropped = new LevelCounters();
+        LogPipeline pipeline = newPipeline(OverflowPolicy.DROP_OLDEST, dropped);
+
+        fill(pipeline);
+        assertThat(pipeline.offer(event(Level.ERROR))).isTrue();
+
+        // 被挤出的是队首的 DEBUG 事件
+        assertThat(dropped.get(Level.DEBUG)).isEqualTo(1);
+        assertThat(dropped.get(Level.ERROR)).isZero();
+        assertThat(pipeline.size()).isEqualTo(pipeline.capacity());
+    }
+
+    @Test
+    public void testDiscardBelowLevelDropsOnlyLowLevels() {
+        LevelCounters dropped = new LevelCounters();
+        LogPipeline pipeline = newPipeline(OverflowPolicy.DISCARD_BELOW_LEVEL, dropped);
+
+        fill(pipeline);
+        assertThat(pipeline.offer(event(Level.INFO))).isFalse();
+
+        assertThat(dropped.get(Level.INFO)).isEqualTo(1);
+        assertThat(dropped.get(Level.WARN)).isZero();
+    }
+
+    private static LogPipeline newPipeline(OverflowPolicy policy, LevelCounters dropped) {
+        // 不启动工作线程，队列只进不出
+        return new LogPipeline("test", 4, 1, event -> { }, policy, 0, Level.WARN, dropped);
+    }
+
+    private static void fill(LogPipeline pipeline) {
+        for (int i = 0; i < pipeline.capacity(); i++) {
+            assertThat(pipeline.offer(event(Level.DEBUG))).isTrue();
+        }
+    }
+
+    private static LogEventSnapshot event(Level level) {
+        return new LogEventSnapshot(System.currentTimeMillis(), level, "test", "main", "message", null, null);
+    }
+}
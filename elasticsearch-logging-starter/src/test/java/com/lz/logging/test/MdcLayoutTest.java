@@ -0,0 +1,69 @@
+package com.lz.logging.test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lz.logging.config.ElasticsearchLoggingProperties;
+import com.lz.logging.core.model.EsLogDocument;
+import com.lz.logging.core.model.EsLogDocumentModule;
+import com.lz.logging.core.model.LogEventSnapshot;
+import com.lz.logging.core.util.TimestampEncoder;
+import com.lz.logging.logback.LogEventConverter;
+import org.junit.Test;
+import org.slf4j.event.Level;
+
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MdcLayoutTest {
+
+    private final ObjectMapper mapper = new ObjectMapper().registerModule(new EsLogDocumentModule(
+            new TimestampEncoder(TimestampEncoder.Format.EPOCH_MILLIS, ZoneId.of("UTC"))));
+
+    @Test
+    public void testWhitelistedKeysAndTopLevelAliases() throws Exception {
+        ElasticsearchLoggingProperties properties = new ElasticsearchLoggingProperties();
+        properties.setMdcKeys(Arrays.asList("trace_id:traceId", "traceId", "uid:userId", "requestId", "tenant:tenantId"));
+        LogEventConverter converter = new LogEventConverter(properties);
+
+        EsLogDocument document = converter.convert(event(mdc()));
+        assertThat(document.getTraceId()).isEqualTo("t-1");
+        assertThat(document.getUserId()).isEqualTo("u-1");
+        assertThat(document.getSpanId()).isNull();
+        assertThat(document.getMdc()).isNull();
+
+        String json = mapper.writeValueAsString(document);
+        assertThat(json)
+                .contains("\"mdc\":{\"requestId\":\"r-1\"}")
+                .contains("\"traceId\":\"t-1\"")
+                .doesNotContain("secret")
+                .doesNotContain("tenantId");
+    }
+
+    @Test
+    public void testNoWhitelistKeepsWholeMdc() throws Exception {
+        LogEventConverter converter = new LogEventConverter(new ElasticsearchLoggingProperties());
+
+        EsLogDocument document = converter.convert(event(mdc()));
+        assertThat(document.getTraceId()).isEqualTo("t-1");
+        assertThat(document.getSpanId()).isEqualTo("s-1");
+        assertThat(document.getMdc()).containsEntry("password", "secret").hasSize(5);
+        assertThat(mapper.writeValueAsString(document)).contains("\"password\":\"secret\"");
+    }
+
+    private static Map<String, String> mdc() {
+        Map<String, String> mdc = new HashMap<>();
+        mdc.put("trace_id", "t-1");
+        mdc.put("span_id", "s-1");
+        mdc.put("uid", "u-1");
+        mdc.put("requestId", "r-1");
+        mdc.put("password", "secret");
+        return mdc;
+    }
+
+    private static LogEventSnapshot event(Map<String, String> mdc) {
+        return new LogEventSnapshot(1000, Level.INFO, "com.foo.Service", "main", "hello", mdc, null);
+    }
+}
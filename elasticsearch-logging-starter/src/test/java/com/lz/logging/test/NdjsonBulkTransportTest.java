@@ -0,0 +1,131 @@
+package com.lz.logging.test;
+
+import com.lz.logging.core.bulk.BulkCompressor;
+import com.lz.logging.core.bulk.BulkItem;
+import com.lz.logging.core.bulk.BulkResult;
+import com.lz.logging.core.bulk.BulkTransport;
+import com.lz.logging.core.bulk.NdjsonBulkTransport;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.rest.RestStatus;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NdjsonBulkTransportTest {
+
+    private static final String RESPONSE = "{\"took\":7,\"errors\":true,\"items\":["
+            + "{\"index\":{\"status\":201}},"
+            + "{\"index\":{\"status\":429,\"error\":{\"type\":\"es_rejected_execution_exception\",\"reason\":\"full\"}}},"
+            + "{\"index\":{\"status\":400,\"error\":{\"type\":\"mapper_parsing_exception\",\"reason\":\"bad\"}}}]}";
+
+    private HttpServer server;
+    private RestClient client;
+    private final AtomicReference<String> requestBody = new AtomicReference<>();
+    private final AtomicReference<String> requestQuery = new AtomicReference<>();
+    private final AtomicReference<String> requestEncoding = new AtomicReference<>();
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/_bulk", exchange -> {
+            String encoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+            requestEncoding.set(encoding);
+            InputStream raw = "gzip".equals(encoding)
+                    ? new GZIPInputStream(exchange.getRequestBody()) : exchange.getRequestBody();
+            try (InputStream in = raw) {
+                ByteArrayOutputStream body = new ByteArrayOutputStream();
+                byte[] chunk = new byte[4096];
+                int read;
+                while ((read = in.read(chunk)) != -1) {
+                    body.write(chunk, 0, read);
+                }
+                requestBody.set(new String(body.toByteArray(), StandardCharsets.UTF_8));
+            }
+            requestQuery.set(exchange.getRequestURI().getQuery());
+            byte[] response = RESPONSE.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        });
+        server.start();
+        client = RestClient.builder(new HttpHost("127.0.0.1", server.getAddress().getPort())).build();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        client.close();
+        server.stop(0);
+    }
+
+    @Test
+    public void testEncodesNdjsonAndParsesItemFailures() throws Exception {
+        BulkResult result = send(new NdjsonBulkTransport(client, 1024 * 1024));
+        assertThat(requestEncoding.get()).isNull();
+        assertThat(requestBody.get()).isEqualTo(
+                "{\"index\":{\"_index\":\"logs-a\",\"_id\":\"id-1\"}}\n{\"message\":\"one\"}\n"
+                        + "{\"index\":{\"_index\":\"logs-a\"}}\n{\"message\":\"two\"}\n"
+                        + "{\"index\":{\"_index\":\"logs-b\",\"_id\":\"id-3\"}}\n{\"message\":\"three\"}\n");
+        assertThat(requestQuery.get()).startsWith("filter_path=");
+
+        assertThat(result.getTookMillis()).isEqualTo(7);
+        assertThat(result.getItemCount()).isEqualTo(3);
+        assertThat(result.getFailures()).extracting(BulkResult.ItemFailure::getPosition).containsExactly(1, 2);
+        assertThat(result.getFailures()).extracting(BulkResult.ItemFailure::getStatus)
+                .containsExactly(RestStatus.TOO_MANY_REQUESTS, RestStatus.BAD_REQUEST);
+        assertThat(result.getFailures().get(1).getMessage()).contains("mapper_parsing_exception");
+    }
+
+    @Test
+    public void testCompressesBodiesAboveThreshold() throws Exception {
+        BulkCompressor compressor = new BulkCompressor(6, 64);
+        NdjsonBulkTransport transport = new NdjsonBulkTransport(client, 1024 * 1024, compressor);
+        send(transport);
+        assertThat(requestEncoding.get()).isEqualTo("gzip");
+        assertThat(requestBody.get()).startsWith("{\"index\":{\"_index\":\"logs-a\",\"_id\":\"id-1\"}}\n");
+        assertThat(compressor.getCompressedBatches()).isEqualTo(1);
+        assertThat(compressor.getUncompressedBytes()).isEqualTo(requestBody.get().length());
+
+        BulkCompressor highThreshold = new BulkCompressor(6, 1024 * 1024);
+        send(new NdjsonBulkTransport(client, 1024 * 1024, highThreshold));
+        assertThat(requestEncoding.get()).isNull();
+        assertThat(highThreshold.getSkippedBatches()).isEqualTo(1);
+        transport.close();
+    }
+
+    private static BulkResult send(NdjsonBulkTransport transport) throws Exception {
+        CompletableFuture<BulkResult> future = new CompletableFuture<>();
+        transport.send(Arrays.asList(
+                new BulkItem("logs-a", "id-1", "{\"message\":\"one\"}".getBytes(StandardCharsets.UTF_8)),
+                new BulkItem("logs-a", "{\"message\":\"two\"}".getBytes(StandardCharsets.UTF_8)),
+                new BulkItem("logs-b", "id-3", "{\"message\":\"three\"}".getBytes(StandardCharsets.UTF_8))),
+                new BulkTransport.Listener() {
+                    @Override
+                    public void onResponse(BulkResult result) {
+                        future.complete(result);
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        future.completeExceptionally(e);
+                    }
+                });
+        return future.get(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,145 @@
+package com.lz.logging.test;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import com.lz.logging.actuate.ElasticsearchLoggingEndpoint;
+import com.lz.logging.actuate.ElasticsearchLoggingMetrics;
+import com.lz.logging.config.ElasticsearchLoggingProperties;
+import com.lz.logging.core.client.ElasticsearchLogClient;
+import com.lz.logging.logback.ElasticsearchLogAppender;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PipelineMetricsTest {
+
+    private HttpServer server;
+    private ElasticsearchLogClient client;
+    private LoggerContext context;
+    private ElasticsearchLogAppender appender;
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        // 按请求中的文档逐条响应：消息为 second 的文档被限流，其余写入成功
+        server.createContext("/_bulk", exchange -> {
+            String[] lines;
+            try (InputStream in = exchange.getRequestBody()) {
+                ByteArrayOutputStream body = new ByteArrayOutputStream();
+                byte[] chunk = new byte[4096];
+                int read;
+                while ((read = in.read(chunk)) != -1) {
+                    body.write(chunk, 0, read);
+                }
+                lines = new String(body.toByteArray(), StandardCharsets.UTF_8).split("\n");
+            }
+            StringBuilder items = new StringBuilder();
+            boolean errors = false;
+            for (int i = 1; i < lines.length; i += 2) {
+                if (items.length() > 0) {
+                    items.append(',');
+                }
+                if (lines[i].contains("\"message\":\"second\"")) {
+                    errors = true;
+                    items.append("{\"index\":{\"status\":429,\"error\":{\"type\":\"es_rejected_execution_exception\","
+                            + "\"reason\":\"busy\"}}}");
+                } else {
+                    items.append("{\"index\":{\"status\":201}}");
+                }
+            }
+            byte[] response = ("{\"took\":7,\"errors\":" + errors + ",\"items\":[" + items + "]}")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        });
+        server.start();
+
+        ElasticsearchLoggingProperties properties = new ElasticsearchLoggingProperties();
+        properties.setHosts("127.0.0.1:" + server.getAddress().getPort());
+        properties.setBulkTransport("ndjson");
+        properties.setBulkLanes(1);
+        // 凑满两条才发出批次，且不会按时间发出，两条文档一定在同一个批次中
+        properties.setBulkSize(2);
+        properties.setBulkInterval(60_000);
+        // 不重试单条失败，被限流的条目直接计入失败
+        properties.setMaxRetries(0);
+        client = new ElasticsearchLogClient(properties);
+        client.start();
+
+        context = new LoggerContext();
+        appender = new ElasticsearchLogAppender(client, properties);
+        appender.setContext(context);
+        appender.setName("ELASTICSEARCH");
+        appender.start();
+    }
+
+    @After
+    public void tearDown() {
+        appender.stop();
+        client.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testBulkOutcomesAreExportedAndSnapshotted() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        new ElasticsearchLoggingMetrics(client, appender).bindTo(registry);
+
+        Logger logger = context.getLogger("com.lz.logging.test.Metrics");
+        logger.setLevel(Level.DEBUG);
+        logger.addAppender(appender);
+        logger.info("first");
+        logger.info("second");
+        logger.debug("below threshold");
+
+        // 批次观察者先于单条结果处理被回调，等到最后更新的失败计数出现再断言
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (registry.get("es.logging.documents").tag("outcome", "failed").functionCounter().count() == 0
+                && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertThat(registry.get("es.logging.events").tag("outcome", "accepted").functionCounter().count())
+                .isEqualTo(2);
+        assertThat(registry.get("es.logging.events").tag("outcome", "filtered").functionCounter().count())
+                .isEqualTo(1);
+        assertThat(registry.get("es.logging.documents").tag("outcome", "sent").functionCounter().count())
+                .isEqualTo(2);
+        assertThat(registry.get("es.logging.documents").tag("outcome", "failed").functionCounter().count())
+                .isEqualTo(1);
+        assertThat(registry.get("es.logging.bulk.took").timer().totalTime(TimeUnit.MILLISECONDS)).isEqualTo(7);
+        assertThat(registry.get("es.logging.bulk.size").summary().totalAmount()).isEqualTo(2);
+        assertThat(registry.get("es.logging.bulk.bytes").summary().totalAmount()).isPositive();
+        assertThat(registry.get("es.logging.bulk.item.failures").tag("reason", "too_many_requests").counter().count())
+                .isEqualTo(1);
+        assertThat(registry.get("es.logging.queue.depth").tag("queue", "bulk").gauge().value()).isZero();
+        assertThat(registry.get("es.logging.health").gauge().value()).isEqualTo(1);
+        assertThat(registry.get("es.logging.circuit.breaker.state").tag("state", "closed").gauge().value())
+                .isEqualTo(1);
+
+        Map<String, Object> snapshot = new ElasticsearchLoggingEndpoint(client, appender).snapshot();
+        Map<String, Object> events = (Map<String, Object>) ((Map<String, Object>) snapshot.get("appender")).get("events");
+        Map<String, Object> bulk = (Map<String, Object>) snapshot.get("bulk");
+        assertThat(events).containsEntry("accepted", 2L).containsEntry("filtered", 1L);
+        assertThat(bulk).containsEntry("sentBatches", 1L);
+        assertThat((Map<String, Long>) bulk.get("itemFailures")).containsEntry("too_many_requests", 1L);
+        assertThat((Map<String, Object>) snapshot.get("health")).containsEntry("circuitBreaker", "CLOSED");
+    }
+}
@@ -0,0 +1,78 @@
+package com.lz.logging.test;
+
+import com.lz.logging.core.pipeline.RingBuffer;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RingBufferTest {
+
+    @Test
+    public void testCapacityRoundedToPowerOfTwo() {
+        assertThat(new RingBuffer<>(1000).capacity()).isEqualTo(1024);
+        assertThat(new RingBuffer<>(1024).capacity()).isEqualTo(1024);
+    }
+
+    @Test
+    public void testOfferFailsWhenFull() {
+        RingBuffer<Integer> ring = new RingBuffer<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertThat(ring.offer(i)).isTrue();
+        }
+        assertThat(ring.offer(4)).isFalse();
+        assertThat(ring.size()).isEqualTo(4);
+
+        assertThat(ring.poll()).isEqualTo(0);
+        assertThat(ring.offer(4)).isTrue();
+        assertThat(ring.poll()).isEqualTo(1);
+        assertThat(ring.poll()).isEqualTo(2);
+        assertThat(ring.poll()).isEqualTo(3);
+        assertThat(ring.poll()).isEqualTo(4);
+        assertThat(ring.poll()).isNull();
+        assertThat(ring.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void testConcurrentProducersAndConsumer() throws InterruptedException {
+        int producers = 8;
+        int perProducer = 50_000;
+        RingBuffer<Long> ring = new RingBuffer<>(256);
+        CountDownLatch done = new CountDownLatch(producers);
+        AtomicLong expectedSum = new AtomicLong();
+
+        for (int p = 0; p < producers; p++) {
+            final long base = (long) p * perProducer;
+            new Thread(() -> {
+                long sum = 0;
+                for (long i = 0; i < perProducer; i++) {
+                    long value = base + i;
+                    while (!ring.offer(value)) {
+                        Thread.yield();
+                    }
+                    sum += value;
+                }
+                expectedSum.addAndGet(sum);
+                done.countDown();
+            }).start();
+        }
+
+        long received = 0;
+        long sum = 0;
+        while (received < (long) producers * perProducer) {
+            Long value = ring.poll();
+            if (value == null) {
+                Thread.yield();
+                continue;
+            }
+            received++;
+            sum += value;
+        }
+        done.await();
+
+        assertThat(sum).isEqualTo(expectedSum.get());
+        assertThat(ring.poll()).isNull();
+    }
+}
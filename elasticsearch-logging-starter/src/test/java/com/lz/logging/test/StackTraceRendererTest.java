@@ -0,0 +1,115 @@
+package com.lz.logging.test;
+
+import com.lz.logging.config.ElasticsearchLoggingProperties;
+import com.lz.logging.core.model.EsLogDocument;
+import com.lz.logging.core.model.LogEventSnapshot;
+import com.lz.logging.core.util.StackTraceRenderer;
+import com.lz.logging.logback.LogEventConverter;
+import org.junit.Test;
+import org.slf4j.event.Level;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StackTraceRendererTest {
+
+    @Test
+    public void testSameStructureSharesFingerprintAndCachedText() {
+        StackTraceRenderer renderer = new StackTraceRenderer(50, 5, 16);
+        StackTraceRenderer.RenderedTrace first = null;
+        for (int i = 0; i < 10; i++) {
+            StackTraceRenderer.RenderedTrace trace = renderer.render(failWith("request " + i));
+            if (first == null) {
+                first = trace;
+            }
+            assertThat(trace).isSameAs(first);
+        }
+        assertThat(renderer.getCacheMisses()).isEqualTo(1);
+        assertThat(renderer.getCacheHits()).isEqualTo(9);
+
+        assertThat(first.getFingerprint()).hasSize(16);
+        assertThat(first.getText(failWith("request 1")))
+                .startsWith("java.lang.IllegalStateException: request 1\n\tat ")
+                .contains("Caused by: java.io.IOException: io\n")
+                .contains(" more\n");
+        assertThat(first.getText(failWith("request 2"))).startsWith("java.lang.IllegalStateException: request 2\n");
+
+        StackTraceRenderer.RenderedTrace other = renderer.render(new IllegalArgumentException("x"));
+        assertThat(other.getFingerprint()).isNotEqualTo(first.getFingerprint());
+    }
+
+    @Test
+    public void testDepthLimitsAndLruEviction() {
+        StackTraceRenderer renderer = new StackTraceRenderer(2, 0, 1);
+        IllegalStateException failure = failWith("a");
+        String text = renderer.render(failure).getText(failure);
+        assertThat(text.split("\tat ")).hasSize(3);
+        assertThat(text).doesNotContain("Caused by").endsWith("... further causes omitted\n");
+
+        renderer.render(new IllegalArgumentException());
+        renderer.render(failWith("b"));
+        assertThat(renderer.getCacheSize()).isEqualTo(1);
+        assertThat(renderer.getCacheMisses()).isEqualTo(3);
+    }
+
+    @Test
+    public void testTextMatchesPrintStackTraceWithCausesAndSuppressed() {
+        IllegalStateException failure = failWith("outer");
+        failure.addSuppressed(failWith("suppressed"));
+        failure.addSuppressed(new IllegalArgumentException("second"));
+
+        StackTraceRenderer renderer = new StackTraceRenderer(1000, 5, 16);
+        StringWriter expected = new StringWriter();
+        failure.printStackTrace(new PrintWriter(expected));
+        assertThat(renderer.render(failure).getText(failure))
+                .isEqualTo(expected.toString().replace(System.lineSeparator(), "\n"))
+                .contains("\tSuppressed: java.lang.IllegalStateException: suppressed\n")
+                .contains("\tCaused by: java.io.IOException: io\n");
+
+        IllegalStateException withoutSuppressed = failWith("outer");
+        assertThat(renderer.fingerprint(withoutSuppressed)).isNotEqualTo(renderer.fingerprint(failure));
+    }
+
+    @Test
+    public void testFingerprintOnlyShipsFullTraceOncePerIndexPeriod() {
+        ElasticsearchLoggingProperties properties = new ElasticsearchLoggingProperties();
+        properties.setIndex("logs-%{yyyy.MM.dd}");
+        properties.setZoneId("UTC");
+        properties.setStackTraceFingerprintOnly(true);
+        LogEventConverter converter = new LogEventConverter(properties);
+
+        long day1 = Instant.parse("2024-01-01T10:00:00Z").toEpochMilli();
+        long day2 = Instant.parse("2024-01-02T10:00:00Z").toEpochMilli();
+        long[] times = {day1, day1 + 1000, day2};
+        EsLogDocument[] documents = new EsLogDocument[times.length];
+        for (int i = 0; i < times.length; i++) {
+            documents[i] = converter.convert(event(times[i], failWith(String.valueOf((char) ('a' + i)))));
+        }
+        EsLogDocument first = documents[0];
+        EsLogDocument repeated = documents[1];
+        EsLogDocument nextDay = documents[2];
+
+        assertThat(first.getException()).isEqualTo("java.lang.IllegalStateException: a");
+        assertThat(first.getStackTrace()).isNotNull();
+        assertThat(repeated.getStackTrace()).isNull();
+        assertThat(repeated.getStackFingerprint()).isEqualTo(first.getStackFingerprint());
+        assertThat(first.getStackTrace()).startsWith("java.lang.IllegalStateException: a\n");
+        assertThat(nextDay.getStackTrace()).startsWith("java.lang.IllegalStateException: c\n")
+                .isEqualTo(first.getStackTrace().replace(": a\n", ": c\n"));
+    }
+
+    private static LogEventSnapshot event(long time, Throwable throwable) {
+        return new LogEventSnapshot(time, Level.ERROR, "test", "main", "failed", null, throwable);
+    }
+
+    private static IllegalStateException failWith(String message) {
+        try {
+            throw new java.io.IOException("io");
+        } catch (java.io.IOException e) {
+            return new IllegalStateException(message, e);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.lz.logging.test;
+
+import com.lz.logging.config.ElasticsearchLoggingProperties;
+import com.lz.logging.core.bulk.BulkItem;
+import com.lz.logging.core.bulk.StripedBulkSender;
+import com.lz.logging.core.client.CircuitBreaker;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StripedBulkSenderTest {
+
+    private HttpServer server;
+    private RestHighLevelClient client;
+    private final List<String> requestBodies = new CopyOnWriteArrayList<>();
+    private volatile CountDownLatch responseGate;
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/_bulk", exchange -> {
+            try (InputStream in = exchange.getRequestBody()) {
+                ByteArrayOutputStream body = new ByteArrayOutputStream();
+                byte[] chunk = new byte[4096];
+                int read;
+                while ((read = in.read(chunk)) != -1) {
+                    body.write(chunk, 0, read);
+                }
+                requestBodies.add(new String(body.toByteArray(), StandardCharsets.UTF_8));
+            }
+            CountDownLatch gate = responseGate;
+            if (gate != null) {
+                try {
+                    gate.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            byte[] response = "{\"took\":1,\"errors\":false}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        });
+        server.start();
+        client = new RestHighLevelClient(RestClient.builder(
+                new HttpHost("127.0.0.1", server.getAddress().getPort())));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        client.close();
+        server.stop(0);
+    }
+
+    @Test
+    public void testThreadsStickToLanesAndFlushCoversAllLanes() throws Exception {
+        ElasticsearchLoggingProperties properties = new ElasticsearchLoggingProperties();
+        properties.setBulkLanes(2);
+        properties.setBulkTransport("ndjson");
+        // 间隔足够长，批次只能由 flush 发出
+        properties.setBulkInterval(60_000);
+        StripedBulkSender sender = new StripedBulkSender(client, properties, null, null);
+        sender.start();
+
+        Thread first = new Thread(() -> addItems(sender, 10));
+        Thread second = new Thread(() -> addItems(sender, 30));
+        first.start();
+        second.start();
+        first.join();
+        second.join();
+
+        sender.flush();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (sender.getSentItems() < 40 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertThat(sender.getLaneCount()).isEqualTo(2);
+        assertThat(sender.getSentItemsPerLane()).containsExactlyInAnyOrder(10L, 30L);
+        assertThat(sender.awaitClose(3, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    public void testBatchesAreGroupedPerIndex() throws Exception {
+        ElasticsearchLoggingProperties properties = new ElasticsearchLoggingProperties();
+        properties.setBulkLanes(1);
+        properties.setBulkTransport("ndjson");
+        properties.setBulkInterval(60_000);
+        StripedBulkSender sender = new StripedBulkSender(client, properties, null, null);
+        sender.start();
+        for (int i = 0; i < 20; i++) {
+            String index = i % 2 == 0 ? "logs-2024.01.01" : "logs-2023.12.31";
+            sender.add(new BulkItem(index, "{\"message\":\"m\"}".getBytes(StandardCharsets.UTF_8)));
+        }
+        sender.flush();
+        assertThat(sender.awaitClose(3, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(sender.getSentItems()).isEqualTo(20);
+        assertThat(requestBodies).hasSize(2);
+        for (String body : requestBodies) {
+            boolean today = body.contains("logs-2024.01.01");
+            boolean yesterday = body.contains("logs-2023.12.31");
+            assertThat(today ^ yesterday).isTrue();
+        }
+    }
+
+    @Test
+    public void testBatchesWaitForHalfOpenProbe() throws Exception {
+        ElasticsearchLoggingProperties properties = new ElasticsearchLoggingProperties();
+        properties.setBulkLanes(1);
+        properties.setBulkTransport("ndjson");
+        properties.setBulkInterval(60_000);
+        CircuitBreaker breaker = new CircuitBreaker(10, 0.5, 10_000, 60_000, 60_000);
+        CircuitBreakerTest.open(breaker);
+        breaker.recordPing(true);
+        responseGate = new CountDownLatch(1);
+        StripedBulkSender sender = new StripedBulkSender(client, properties, null, breaker);
+        sender.start();
+        for (int i = 0; i < 20; i++) {
+            String index = i % 2 == 0 ? "logs-2024.01.01" : "logs-2023.12.31";
+            sender.add(new BulkItem(index, "{\"message\":\"m\"}".getBytes(StandardCharsets.UTF_8)));
+        }
+        sender.flush();
+
+        // 第一个批次作为探测批次在途，另一个批次暂缓而不是丢弃
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (requestBodies.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(100);
+        assertThat(requestBodies).hasSize(1);
+        assertThat(breaker.isProbeInFlight()).isTrue();
+
+        responseGate.countDown();
+        assertThat(sender.awaitClose(3, TimeUnit.SECONDS)).isTrue();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(requestBodies).hasSize(2);
+        assertThat(sender.getSentItems()).isEqualTo(20);
+        assertThat(sender.getCircuitBreakerDroppedItems()).isZero();
+    }
+
+    @Test
+    public void testIdleSenderSleepsUntilWoken() throws Exception {
+        ElasticsearchLoggingProperties properties = new ElasticsearchLoggingProperties();
+        properties.setBulkLanes(1);
+        properties.setBulkTransport("ndjson");
+        properties.setBulkInterval(60_000);
+        StripedBulkSender sender = new StripedBulkSender(client, properties, null, null);
+        Set<Thread> existing = Thread.getAllStackTraces().keySet();
+        sender.start();
+        Thread senderThread = Thread.getAllStackTraces().keySet().stream()
+                .filter(t -> t.getName().equals("es-log-bulk-sender") && !existing.contains(t))
+                .findFirst().orElseThrow(IllegalStateException::new);
+
+        // 没有条目时发送线程应当休眠等待唤醒，而不是每 100 微秒轮询一次
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        Thread.sleep(200);
+        long cpuBefore = threads.getThreadCpuTime(senderThread.getId());
+        Thread.sleep(1000);
+        long idleCpuNanos = threads.getThreadCpuTime(senderThread.getId()) - cpuBefore;
+        if (cpuBefore >= 0) {
+            assertThat(idleCpuNanos).isLessThan(TimeUnit.MILLISECONDS.toNanos(20));
+        }
+
+        // 长时间空闲后写入和 flush 仍能立即唤醒发送线程
+        long start = System.nanoTime();
+        addItems(sender, 5);
+        sender.flush();
+        while (sender.getSentItems() < 5 && System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5)) {
+            Thread.sleep(1);
+        }
+        assertThat(sender.getSentItems()).isEqualTo(5);
+        assertThat(System.nanoTime() - start).isLessThan(TimeUnit.MILLISECONDS.toNanos(500));
+        assertThat(sender.awaitClose(3, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private static void addItems(StripedBulkSender sender, int count) {
+        for (int i = 0; i < count; i++) {
+            sender.add(new BulkItem("logs", "{\"message\":\"m\"}".getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.lz.logging.test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lz.logging.core.model.EsLogDocument;
+import com.lz.logging.core.model.EsLogDocumentModule;
+import com.lz.logging.core.util.TimestampEncoder;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TimestampEncoderTest {
+
+    private static final DateTimeFormatter ISO = DateTimeFormatter.ofPattern("uuuu-MM-dd'T'HH:mm:ss.SSSXXX");
+
+    @Test
+    public void testIsoMatchesFormatterAcrossSecondsAndOffsets() {
+        for (String zoneId : new String[]{"Asia/Shanghai", "UTC", "America/New_York"}) {
+            ZoneId zone = ZoneId.of(zoneId);
+            TimestampEncoder encoder = new TimestampEncoder(TimestampEncoder.Format.ISO, zone);
+            Random random = new Random(42);
+            long time = Instant.parse("2024-03-10T06:59:58Z").toEpochMilli();
+            for (int i = 0; i < 5000; i++) {
+                // 大部分是同一秒内的小步前进，偶尔回退或跳跃，覆盖缓存命中、失效和夏令时切换
+                time += random.nextInt(10) == 0 ? random.nextInt(7_200_000) - 3_600_000 : random.nextInt(300);
+                assertThat(encoder.encode(time)).isEqualTo(ISO.format(Instant.ofEpochMilli(time).atZone(zone)));
+            }
+        }
+        TimestampEncoder utc = new TimestampEncoder(TimestampEncoder.Format.ISO, ZoneId.of("UTC"));
+        assertThat(utc.encode(-1L)).isEqualTo("1969-12-31T23:59:59.999Z");
+    }
+
+    @Test
+    public void testDocumentSerializationUsesConfiguredFormat() throws Exception {
+        long time = Instant.parse("2024-01-15T02:30:00.007Z").toEpochMilli();
+        EsLogDocument document = new EsLogDocument();
+        document.setTimestampMillis(time);
+
+        ObjectMapper iso = new ObjectMapper().registerModule(new EsLogDocumentModule(
+                new TimestampEncoder(TimestampEncoder.Format.of("iso"), ZoneId.of("Asia/Shanghai"))));
+        assertThat(iso.writeValueAsString(document))
+                .contains("\"timestamp\":\"2024-01-15T10:30:00.007+08:00\"")
+                .doesNotContain("timestampMillis");
+
+        ObjectMapper epoch = new ObjectMapper().registerModule(new EsLogDocumentModule(
+                new TimestampEncoder(TimestampEncoder.Format.of("epoch-millis"), ZoneId.of("Asia/Shanghai"))));
+        assertThat(epoch.writeValueAsString(document)).contains("\"timestamp\":" + time + ",");
+
+        // 显式设置的字符串时间戳优先
+        document.setTimestamp("custom");
+        assertThat(epoch.writeValueAsString(document)).contains("\"timestamp\":\"custom\"");
+    }
+}
@@ -0,0 +1,62 @@
+package com.lz.logging.test;
+
+import com.lz.logging.core.pipeline.TraceSampler;
+import org.junit.Test;
+import org.slf4j.event.Level;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TraceSamplerTest {
+
+    @Test
+    public void testDecisionsAreConsistentPerTraceAndNested() {
+        Map<String, Double> loggerRates = new HashMap<>();
+        loggerRates.put("com.foo.access", 0.05);
+        TraceSampler sampler = new TraceSampler(Collections.singletonMap("info", 0.2), loggerRates);
+
+        int keptByService = 0;
+        for (int i = 0; i < 20_000; i++) {
+            String traceId = UUID.randomUUID().toString();
+            boolean service = sampler.isSampled("com.foo.Service", Level.INFO, traceId);
+            boolean dao = sampler.isSampled("com.foo.Dao", Level.INFO, traceId);
+            boolean access = sampler.isSampled("com.foo.access.Log", Level.INFO, traceId);
+            // 同一链路在相同采样率下的决定一致，低采样率保留的链路在高采样率下也保留
+            assertThat(dao).isEqualTo(service);
+            if (access) {
+                assertThat(service).isTrue();
+            }
+            if (service) {
+                keptByService++;
+            }
+        }
+        assertThat(keptByService).isBetween(3_600, 4_400);
+    }
+
+    @Test
+    public void testRatesPerLevelAndLoggerPrefix() {
+        Map<String, Double> levelRates = new HashMap<>();
+        levelRates.put("INFO", 0.1);
+        levelRates.put("DEBUG", 0.0);
+        levelRates.put("WARN", 0.0);
+        levelRates.put("bogus", 0.5);
+        TraceSampler sampler = new TraceSampler(levelRates,
+                Collections.singletonMap("com.foo.audit", 1.0));
+
+        assertThat(sampler.getRate("com.foo.Service", Level.INFO)).isEqualTo(0.1);
+        assertThat(sampler.getRate("com.foo.Service", Level.TRACE)).isEqualTo(1.0);
+        assertThat(sampler.getRate("com.foo.audit.Log", Level.INFO)).isEqualTo(1.0);
+        assertThat(sampler.isSampled("com.foo.Service", Level.DEBUG, "t")).isFalse();
+        // WARN 及以上始终保留
+        assertThat(sampler.getRate("com.foo.Service", Level.WARN)).isEqualTo(1.0);
+        assertThat(sampler.isSampled("com.foo.Service", Level.ERROR, "t")).isTrue();
+
+        sampler.reload(null, Collections.singletonMap("com.foo", 0.5));
+        assertThat(sampler.getRate("com.foo.Service", Level.DEBUG)).isEqualTo(0.5);
+        assertThat(sampler.getRate("com.bar.Service", Level.DEBUG)).isEqualTo(1.0);
+    }
+}